@@ -10,12 +10,14 @@ namespace Inventonater
         [SerializeField] private KeyboardBridge _keyboard;
         [SerializeField] private MouseBridge _mouse;
         [SerializeField] private MediaBridge _media;
+        [SerializeField] private GamepadBridge _gamepad;
         [SerializeField] private ConnectionBridge _connection;
         [SerializeField] private PermissionsBridge permissions;
 
         public KeyboardBridge Keyboard => _keyboard;
         public MouseBridge Mouse => _mouse;
         public MediaBridge Media => _media;
+        public GamepadBridge Gamepad => _gamepad;
         public PermissionsBridge Permissions => permissions;
         public ConnectionBridge Connection => _connection;
 
@@ -24,6 +26,7 @@ namespace Inventonater
             _keyboard = new KeyboardBridge(java);
             _mouse = new MouseBridge(java);
             _media = new MediaBridge(java);
+            _gamepad = new GamepadBridge(java);
             permissions = new PermissionsBridge();
             _connection = new ConnectionBridge(java);
         }
@@ -140,6 +140,73 @@ namespace Inventonater
             return false;
         }
 
+        /// <summary>
+        /// Opens a client GATT connection back to each host that connects.
+        /// Connection priority, MTU requests and RSSI reads need it; it is off by
+        /// default because it slows connection setup. Applies from the next connection.
+        /// </summary>
+        /// <param name="enabled">True to open the client connection on connect</param>
+        /// <returns>True if the setting was applied, false otherwise.</returns>
+        public bool SetClientConnectionEnabled(bool enabled) => _java.Call<bool>("setClientConnectionEnabled", enabled);
+
+        /// <summary>
+        /// Report types that can be routed to one host. Values match HidConstants.Routing.
+        /// </summary>
+        public enum ReportRoute
+        {
+            Keyboard = 0,
+            Mouse = 1,
+            Consumer = 2,
+            AbsolutePointer = 3,
+            Touchpad = 4,
+            Gamepad = 5
+        }
+
+        /// <summary>
+        /// Sets how many hosts may be connected at once. Advertising continues
+        /// after a connection until this many hosts are connected.
+        /// </summary>
+        /// <param name="hosts">Maximum connected hosts (at least 1)</param>
+        /// <returns>True if the setting was applied, false otherwise.</returns>
+        public bool SetMaxHosts(int hosts) => _java.Call<bool>("setMaxHosts", hosts);
+
+        /// <summary>
+        /// Gets the addresses of the connected hosts, in the order they connected.
+        /// </summary>
+        public string[] GetConnectedHosts() => _java.Call<string[]>("getConnectedHosts");
+
+        /// <summary>
+        /// Sends one report type only to one host. Without split reports every
+        /// type travels in one report, so all types share the route.
+        /// </summary>
+        /// <param name="route">The report type to route</param>
+        /// <param name="hostAddress">Address of the host, or null to send to every host</param>
+        /// <returns>True if the route was set, false otherwise.</returns>
+        public bool SetReportRoute(ReportRoute route, string hostAddress) => _java.Call<bool>("setReportRoute", (int)route, hostAddress ?? "");
+
+        /// <summary>
+        /// Sends all unrouted input to one connected host. The other hosts stay
+        /// connected but idle at the standby connection priority, so switching
+        /// does not wait for a reconnect. Needs the client connection for the
+        /// priority changes (see SetClientConnectionEnabled).
+        /// </summary>
+        /// <param name="hostAddress">Address of a connected host</param>
+        /// <returns>True if the switch was started, false otherwise.</returns>
+        public bool SwitchActiveHost(string hostAddress) => _java.Call<bool>("switchActiveHost", hostAddress);
+
+        /// <summary>
+        /// Gets the address of the host input goes to, or null if it goes to every connected host.
+        /// </summary>
+        public string GetActiveHost() => _java.Call<string>("getActiveHost");
+
+        /// <summary>
+        /// Sets the connection priority of idle standby hosts (0=HIGH, 1=BALANCED, 2=LOW_POWER).
+        /// LOW_POWER saves the most power but the first report after a switch can wait
+        /// over 100ms; BALANCED, the default, keeps it under about 50ms.
+        /// </summary>
+        /// <returns>True if the setting was applied, false otherwise.</returns>
+        public bool SetStandbyConnectionPriority(int priority) => _java.Call<bool>("setStandbyConnectionPriority", priority);
+
         /// <summary>
         /// Request a change in connection priority.
         /// Connection priority affects latency and power consumption.
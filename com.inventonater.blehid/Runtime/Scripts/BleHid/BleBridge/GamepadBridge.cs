@@ -0,0 +1,27 @@
+using System;
+using Unity.Profiling;
+using UnityEngine;
+
+namespace Inventonater
+{
+    [Serializable]
+    public class GamepadBridge
+    {
+        private JavaBridge _java;
+        public GamepadBridge(JavaBridge java) => _java = java;
+
+        public const int HatCentered = 8;
+
+        static readonly ProfilerMarker _marker = new("BleHid.GamepadBridge.SetState");
+
+        public void SetGamepad(bool enabled) => _java.Call("setGamepad", enabled); // before initialize
+
+        // Whole state in one JNI call; sticks -1..1 (+Y down), triggers 0..1, hat 0-7 clockwise from up or HatCentered.
+        // Stick and trigger updates are coalesced on the Java side, so this can be called every frame.
+        public void SetState(int buttons, int hat, Vector2 leftStick, Vector2 rightStick, float leftTrigger, float rightTrigger)
+        {
+            using var profilerMarker = _marker.Auto();
+            _java.Call("setGamepadState", buttons, hat, leftStick.x, leftStick.y, rightStick.x, rightStick.y, leftTrigger, rightTrigger);
+        }
+    }
+}
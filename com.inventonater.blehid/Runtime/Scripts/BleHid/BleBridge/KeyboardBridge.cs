@@ -12,6 +12,20 @@ namespace Inventonater
         public void SendKey(HidKeyCode keyCode) => SendKey((int)keyCode);
         public void SendKeyWithModifiers(HidKeyCode keyCode, HidKeyModifier modifiers) => _java.Call("sendKeyWithModifiers", (int)keyCode, (int)modifiers);
         public void TypeText(string text) => _java.Call("typeText", text);
+        // Frames are [delayMs, modifiers, keyCode, mediaButtons], flattened
+        public bool RegisterMacro(string name, int[] frames) => _java.Call<bool>("registerMacro", name, frames);
+        public bool UnregisterMacro(string name) => _java.Call<bool>("unregisterMacro", name);
+        public bool PlayMacro(string name, int loops = 1, int timeoutMs = 0) => _java.Call<bool>("playMacro", name, loops, timeoutMs);
+        public void CancelMacro() => _java.Call("cancelMacro");
+        public bool IsMacroPlaying() => _java.Call<bool>("isMacroPlaying");
+        public bool SetKeyboardLayout(string layout) => _java.Call<bool>("setKeyboardLayout", layout);
+        public string GetKeyboardLayout() => _java.Call<string>("getKeyboardLayout");
+        public void CancelTyping() => _java.Call("cancelTyping");
+        public bool IsTyping() => _java.Call<bool>("isTyping");
+        public void SetTypingReportsPerEvent(int reportsPerEvent) => _java.Call("setTypingReportsPerEvent", reportsPerEvent);
+        public void PressKey(HidKeyCode keyCode) => _java.Call("pressKey", (int)keyCode);
+        public void ReleaseKey(HidKeyCode keyCode) => _java.Call("releaseKey", (int)keyCode);
+        public void SetNkroEnabled(bool enabled) => _java.Call("setNkroEnabled", enabled);
 
         [MappableAction(id: MappableActionId.Up, displayName: "Send Arrow Up", description: "Send Arrow Up key")]
         public void ArrowUpKey() => SendKey(HidKeyCode.UpArrow);
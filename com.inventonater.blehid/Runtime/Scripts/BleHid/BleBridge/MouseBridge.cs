@@ -16,10 +16,44 @@ namespace Inventonater
         {
             using var profilerMarker = _marker.Auto();
             if (deltaX == 0 && deltaY == 0) return;
-            if (deltaX < -127 || deltaX > 127 || deltaY < -127 || deltaY > 127) LoggingManager.Instance.Error($"Mouse movement values out of range: {deltaX}, {deltaY}");
             _java.Call("moveMouse", deltaX, deltaY);
         }
-        public void MoveMouse(Vector2 delta) => MoveMouse(Mathf.RoundToInt(delta.x), Mathf.RoundToInt(delta.y));
+
+        // Fractions and out-of-range deltas are carried on the Java side, so the float value is passed through as-is
+        public void MoveMouse(Vector2 delta)
+        {
+            using var profilerMarker = _marker.Auto();
+            if (delta == Vector2.zero) return;
+            _java.Call("moveMouseFloat", delta.x, delta.y);
+        }
+
+        // Absolute pointer; normalized position, 0..1 from the left / top edge of the host screen
+        public void SetAbsolutePointer(bool enabled) => _java.Call("setAbsolutePointer", enabled); // before initialize
+        public void MoveMouseTo(Vector2 position) => _java.Call("moveMouseTo", position.x, position.y);
+        public void SendAbsolutePointer(Vector2 position, int buttons) => _java.Call("sendAbsolutePointer", position.x, position.y, buttons);
+
+        // Precision touchpad; the host recognizes scroll, pinch and swipe gestures from the contacts
+        public void SetTouchpad(bool enabled) => _java.Call("setTouchpad", enabled); // before initialize
+
+        // Every touch currently down (up to 5): contact IDs 0-63, normalized 0..1 from the left / top edge of the surface.
+        // Touches missing since the previous frame are reported as lifted.
+        public void SendTouchpadFrame(int[] contactIds, Vector2[] positions, int buttons = 0)
+        {
+            var packed = new float[contactIds.Length * 2];
+            for (int i = 0; i < contactIds.Length; i++)
+            {
+                packed[i * 2] = positions[i].x;
+                packed[i * 2 + 1] = positions[i].y;
+            }
+            _java.Call("sendTouchpadFrame", contactIds, packed, buttons);
+        }
+
+        // Wheel and pan in detents (fractions allowed); positive scrolls up / right
+        public void Scroll(float wheel, float pan = 0)
+        {
+            if (wheel == 0 && pan == 0) return;
+            _java.Call("scroll", wheel, pan);
+        }
 
         public void PressMouseButton(int button) => _java.Call("pressMouseButton", button);
         public void ReleaseMouseButton(int button) => _java.Call("releaseMouseButton", button);
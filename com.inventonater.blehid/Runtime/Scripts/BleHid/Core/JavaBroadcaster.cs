@@ -14,10 +14,13 @@ namespace Inventonater
         public delegate void PairingStateChangedHandler(string status, string deviceAddress);
         public delegate void ConnectionParametersChangedHandler(int interval, int latency, int timeout, int mtu);
         public delegate void RssiReadHandler(int rssi);
+        public delegate void ConnectionMilestoneHandler(string state, long elapsedMs);
         public delegate void ConnectionParameterRequestCompleteHandler(string parameterName, bool success, string actualValue);
         public delegate void ErrorHandler(int errorCode, string errorMessage);
         public delegate void DebugLogHandler(string message);
         public delegate void PipModeChangedHandler(bool isInPipMode);
+        public delegate void TypingCompleteHandler(int charactersTyped, int characterCount, bool completed);
+        public delegate void MacroCompleteHandler(string name, int loopsPlayed, bool completed);
 
         public event InitializeCompleteHandler OnInitializeComplete = delegate { };
         public event AdvertisingStateChangedHandler OnAdvertisingStateChanged = delegate { };
@@ -25,10 +28,13 @@ namespace Inventonater
         public event PairingStateChangedHandler OnPairingStateChanged = delegate { };
         public event ConnectionParametersChangedHandler OnConnectionParametersChanged = delegate { };
         public event RssiReadHandler OnRssiRead = delegate { };
+        public event ConnectionMilestoneHandler OnConnectionMilestone = delegate { };
         public event ConnectionParameterRequestCompleteHandler OnConnectionParameterRequestComplete = delegate { };
         public event ErrorHandler OnError = delegate { };
         public event DebugLogHandler OnDebugLog = delegate { };
         public event PipModeChangedHandler OnPipModeChanged = delegate { };
+        public event TypingCompleteHandler OnTypingComplete = delegate { };
+        public event MacroCompleteHandler OnMacroComplete = delegate { };
 
         [Preserve]
         public void HandleInitializeComplete(string message)
@@ -120,6 +126,18 @@ namespace Inventonater
             OnRssiRead?.Invoke(rssi);
         }
 
+        [Preserve]
+        public void HandleConnectionMilestone(string message)
+        {
+            string[] parts = message.Split(':');
+            if (parts.Length < 2) return;
+            string state = parts[0];
+            long elapsedMs = long.Parse(parts[1]);
+
+            Debug.Log($"Connection {state} after {elapsedMs}ms");
+            OnConnectionMilestone?.Invoke(state, elapsedMs);
+        }
+
         [Preserve]
         public void HandleConnectionParameterRequestComplete(string message)
         {
@@ -140,5 +158,31 @@ namespace Inventonater
             Debug.Log("BLE HID PiP mode changed: " + (isInPipMode ? "Enter PiP" : "Exit PiP"));
             OnPipModeChanged?.Invoke(isInPipMode);
         }
+
+        [Preserve]
+        public void HandleTypingComplete(string message)
+        {
+            string[] parts = message.Split(':');
+            if (parts.Length < 3) return;
+            int charactersTyped = int.Parse(parts[0]);
+            int characterCount = int.Parse(parts[1]);
+            bool completed = bool.Parse(parts[2]);
+
+            Debug.Log($"Typing complete: {charactersTyped}/{characterCount}, completed={completed}");
+            OnTypingComplete?.Invoke(charactersTyped, characterCount, completed);
+        }
+    
+        [Preserve]
+        public void HandleMacroComplete(string message)
+        {
+            string[] parts = message.Split(new[] { ':' }, 3);
+            if (parts.Length < 3) return;
+            int loopsPlayed = int.Parse(parts[0]);
+            bool completed = bool.Parse(parts[1]);
+            string name = parts[2];
+
+            Debug.Log($"Macro complete: {name}, loops={loopsPlayed}, completed={completed}");
+            OnMacroComplete?.Invoke(name, loopsPlayed, completed);
+        }
     }
 }
@@ -50,6 +50,7 @@ namespace Inventonater
         private string slaveLatency = "--";
         private string supervisionTimeout = "--";
         private string mtuSize = "--";
+        private string firstReportLatency = "--";
         private Color intervalColor = Color.white;
         private Color mtuColor = Color.white;
 
@@ -68,6 +69,7 @@ namespace Inventonater
             javaBroadcaster.OnConnectionParametersChanged += HandleConnectionParametersChanged;
             javaBroadcaster.OnConnectionParameterRequestComplete += HandleConnectionParameterRequestComplete;
             javaBroadcaster.OnConnectionStateChanged += HandleConnectionStateChanged;
+            javaBroadcaster.OnConnectionMilestone += HandleConnectionMilestone;
 
             // Initialize with current values if connected
             UpdateValuesFromManager();
@@ -133,6 +135,9 @@ namespace Inventonater
             mtuStyle.normal.textColor = mtuColor;
             GUILayout.Label("MTU Size: " + mtuSize + " bytes (Requested: " + requestedMtu + ")", mtuStyle);
 
+            // Time from connect until the first report reached the subscribed host
+            GUILayout.Label("Connect to First Report: " + firstReportLatency + " ms");
+
             GUILayout.EndVertical();
 
             GUILayout.Space(10);
@@ -428,9 +433,15 @@ namespace Inventonater
             else
             {
                 SetStatus("Disconnected", Color.red);
+                firstReportLatency = "--";
             }
 
             UpdateValuesFromManager();
         }
+
+        private void HandleConnectionMilestone(string state, long elapsedMs)
+        {
+            if (state == "READY") firstReportLatency = elapsedMs.ToString();
+        }
     }
 }
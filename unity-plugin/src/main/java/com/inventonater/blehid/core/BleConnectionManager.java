@@ -25,6 +25,7 @@ public class BleConnectionManager {
     private static final int DEFAULT_SLAVE_LATENCY = 0; // No skipped events for lowest latency
     private static final int DEFAULT_SUPERVISION_TIMEOUT = 2000; // 2000 ms
     private static final int DEFAULT_MTU_SIZE = 512; // Maximum MTU size for best throughput
+    private static final int ATT_DEFAULT_MTU = 23; // Until the host exchanges MTU
 
     // Connection priorities
     public static final int CONNECTION_PRIORITY_HIGH = BluetoothGatt.CONNECTION_PRIORITY_HIGH;        // 0
@@ -43,7 +44,9 @@ public class BleConnectionManager {
     private int connectionInterval = DEFAULT_CONNECTION_INTERVAL;
     private int slaveLatency = DEFAULT_SLAVE_LATENCY;
     private int supervisionTimeout = DEFAULT_SUPERVISION_TIMEOUT;
-    private int mtuSize = DEFAULT_MTU_SIZE;
+    private int mtuSize = ATT_DEFAULT_MTU;
+    private int txPhy = BluetoothDevice.PHY_LE_1M;
+    private int rxPhy = BluetoothDevice.PHY_LE_1M;
     private int rssi = 0;
     private int txPowerLevel = TX_POWER_LEVEL_HIGH;
 
@@ -51,6 +54,8 @@ public class BleConnectionManager {
     private int requestedConnectionPriority = CONNECTION_PRIORITY_HIGH;
     private int requestedMtu = DEFAULT_MTU_SIZE;
     private int requestedTxPowerLevel = TX_POWER_LEVEL_HIGH;
+    // Priority for hosts kept connected but idle; their interval bounds how soon a switch takes effect
+    private int standbyConnectionPriority = CONNECTION_PRIORITY_BALANCED;
 
     // Connection parameter update listener
     public interface ConnectionParameterListener {
@@ -92,7 +97,9 @@ public class BleConnectionManager {
         connectionInterval = DEFAULT_CONNECTION_INTERVAL;
         slaveLatency = DEFAULT_SLAVE_LATENCY;
         supervisionTimeout = DEFAULT_SUPERVISION_TIMEOUT;
-        mtuSize = DEFAULT_MTU_SIZE;
+        mtuSize = ATT_DEFAULT_MTU;
+        txPhy = BluetoothDevice.PHY_LE_1M;
+        rxPhy = BluetoothDevice.PHY_LE_1M;
 
         if (RSSI_MONITORING) startRssiMonitoring();
 
@@ -132,6 +139,15 @@ public class BleConnectionManager {
         notifyParameterChanged();
     }
 
+    /**
+     * Called when the PHY is read or changes.
+     */
+    void onPhyUpdated(int txPhy, int rxPhy) {
+        this.txPhy = txPhy;
+        this.rxPhy = rxPhy;
+        Log.i(TAG, "PHY tx=" + txPhy + " rx=" + rxPhy);
+    }
+
     /**
      * Called when RSSI is read.
      */
@@ -154,9 +170,20 @@ public class BleConnectionManager {
             return false;
         }
 
-        BluetoothGatt gatt = bleHidManager.getGattServerManager().getGattForConnectedDevice();
-        if (gatt == null) {
-            Log.e(TAG, "Cannot request connection priority: No GATT connection");
+        return requestConnectionPriority(bleHidManager.getConnectedDevice(), priority);
+    }
+
+    /**
+     * Requests a change in connection priority for one connected host.
+     *
+     * @param device The host
+     * @param priority The priority to request (CONNECTION_PRIORITY_*)
+     * @return true if request was queued, false otherwise
+     */
+    public boolean requestConnectionPriority(BluetoothDevice device, int priority) {
+        GattOperationQueue client = bleHidManager.getGattServerManager().getClientQueue(device);
+        if (client == null) {
+            Log.e(TAG, "Cannot request connection priority: No client GATT connection (see setClientConnectionEnabled)");
             return false;
         }
 
@@ -167,7 +194,9 @@ public class BleConnectionManager {
         }
 
         // Store requested value
-        requestedConnectionPriority = priority;
+        if (device.equals(bleHidManager.getConnectedDevice())) {
+            requestedConnectionPriority = priority;
+        }
 
         // Log the priority level
         String priorityName;
@@ -191,32 +220,45 @@ public class BleConnectionManager {
                 break;
         }
 
-        Log.i(TAG, "Requesting connection priority: " + priorityName +
+        Log.i(TAG, "Requesting connection priority for " + device.getAddress() + ": " + priorityName +
                 " (" + priority + "), expected interval: " + expectedInterval);
 
-        boolean result = gatt.requestConnectionPriority(priority);
-
-        if (result) {
-            Log.d(TAG, "Connection priority request sent successfully: " + priorityName);
-
-            // Actual values will be reported in the connection parameter update callback
-            return true;
-        } else {
-            Log.e(TAG, "Failed to request connection priority: " + priorityName);
+        // Actual values will be reported in the connection parameter update callback
+        client.enqueue(GattOperationQueue.OP_CONNECTION_PRIORITY, GattOperationQueue.DEFAULT_TIMEOUT_MS,
+                gatt -> gatt.requestConnectionPriority(priority))
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        Log.d(TAG, "Connection priority request sent successfully: " + priorityName);
+                    } else {
+                        Log.e(TAG, "Failed to request connection priority: " + priorityName);
+                        if (listener != null) {
+                            listener.onRequestComplete("connectionPriority", false, "Request failed");
+                        }
+                    }
+                });
+        return true;
+    }
 
-            if (listener != null) {
-                listener.onRequestComplete("connectionPriority", false, "Request failed");
-            }
+    /**
+     * Sets the priority requested for standby hosts. LOW_POWER saves the most
+     * power but a switch waits up to one of its 100-500ms intervals for the
+     * first report; BALANCED keeps that under about 50ms.
+     *
+     * @param priority The priority (CONNECTION_PRIORITY_*)
+     */
+    public void setStandbyConnectionPriority(int priority) {
+        standbyConnectionPriority = priority;
+    }
 
-            return false;
-        }
+    public int getStandbyConnectionPriority() {
+        return standbyConnectionPriority;
     }
 
     /**
      * Requests a change in MTU size.
      *
      * @param mtu The MTU size to request (23-517)
-     * @return true if request was sent, false otherwise
+     * @return true if request was queued, false otherwise
      */
     public boolean requestMtu(int mtu) {
         if (!bleHidManager.isConnected()) {
@@ -224,9 +266,20 @@ public class BleConnectionManager {
             return false;
         }
 
-        BluetoothGatt gatt = bleHidManager.getGattServerManager().getGattForConnectedDevice();
-        if (gatt == null) {
-            Log.e(TAG, "Cannot request MTU: No GATT connection");
+        return requestMtu(bleHidManager.getConnectedDevice(), mtu);
+    }
+
+    /**
+     * Requests a change in MTU size on one connected host's client connection.
+     *
+     * @param device The host
+     * @param mtu The MTU size to request (23-517)
+     * @return true if request was queued, false otherwise
+     */
+    public boolean requestMtu(BluetoothDevice device, int mtu) {
+        GattOperationQueue client = bleHidManager.getGattServerManager().getClientQueue(device);
+        if (client == null) {
+            Log.e(TAG, "Cannot request MTU: No client GATT connection (see setClientConnectionEnabled)");
             return false;
         }
 
@@ -239,22 +292,20 @@ public class BleConnectionManager {
         // Store requested value
         requestedMtu = mtu;
 
-        boolean result = gatt.requestMtu(mtu);
-
-        if (result) {
-            Log.d(TAG, "MTU request sent: " + mtu);
-
-            // Actual value will be reported in the MTU changed callback
-            return true;
-        } else {
-            Log.e(TAG, "Failed to request MTU");
-
-            if (listener != null) {
-                listener.onRequestComplete("mtu", false, "Request failed");
-            }
-
-            return false;
-        }
+        Log.d(TAG, "Queueing MTU request: " + mtu);
+
+        // Success is reported from the MTU changed callback
+        client.enqueue(GattOperationQueue.OP_REQUEST_MTU, GattOperationQueue.DEFAULT_TIMEOUT_MS,
+                gatt -> gatt.requestMtu(mtu))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Failed to request MTU: " + error.getMessage());
+                        if (listener != null) {
+                            listener.onRequestComplete("mtu", false, error.getMessage());
+                        }
+                    }
+                });
+        return true;
     }
 
     /**
@@ -294,7 +345,7 @@ public class BleConnectionManager {
     /**
      * Reads the current RSSI value.
      *
-     * @return true if read request was sent, false otherwise
+     * @return true if read request was queued, false otherwise
      */
     public boolean readRssi() {
         if (!bleHidManager.isConnected()) {
@@ -302,19 +353,22 @@ public class BleConnectionManager {
             return false;
         }
 
-        BluetoothGatt gatt = bleHidManager.getGattServerManager().getGattForConnectedDevice();
-        if (gatt == null) {
-            Log.e(TAG, "Cannot read RSSI: No GATT connection");
+        GattOperationQueue client = bleHidManager.getGattServerManager()
+                .getClientQueue(bleHidManager.getConnectedDevice());
+        if (client == null) {
+            Log.e(TAG, "Cannot read RSSI: No client GATT connection (see setClientConnectionEnabled)");
             return false;
         }
 
-        boolean result = gatt.readRemoteRssi();
-
-        if (!result) {
-            Log.e(TAG, "Failed to read RSSI");
-        }
-
-        return result;
+        // The value is reported from the RSSI read callback
+        client.enqueue(GattOperationQueue.OP_READ_RSSI, GattOperationQueue.DEFAULT_TIMEOUT_MS,
+                BluetoothGatt::readRemoteRssi)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Failed to read RSSI: " + error.getMessage());
+                    }
+                });
+        return true;
     }
 
     // RSSI monitoring - maintain higher frequency for responsive UI
@@ -360,6 +414,8 @@ public class BleConnectionManager {
         params.put("slaveLatency", String.valueOf(slaveLatency));
         params.put("supervisionTimeout", String.valueOf(supervisionTimeout));
         params.put("mtuSize", String.valueOf(mtuSize));
+        params.put("txPhy", String.valueOf(txPhy));
+        params.put("rxPhy", String.valueOf(rxPhy));
         params.put("rssi", String.valueOf(rssi));
         params.put("txPowerLevel", String.valueOf(txPowerLevel));
 
@@ -0,0 +1,127 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Who is connected, as one immutable value: the hosts in connection order,
+ * the primary host, the host unrouted reports go to and the client GATT
+ * connection (with its operation queue) to each host.
+ *
+ * GATT callbacks run on Binder threads and Unity calls on the Unity thread,
+ * so the current snapshot is published through an AtomicReference. Writers
+ * swap in a new snapshot derived from the old one; readers load the
+ * reference once and see a consistent set of fields without locking.
+ */
+final class BleConnectionSnapshot {
+    static final BleConnectionSnapshot EMPTY = new BleConnectionSnapshot(
+            Collections.<BluetoothDevice>emptyList(), null, null,
+            Collections.<String, GattOperationQueue>emptyMap());
+
+    // Connected hosts, in connection order
+    final List<BluetoothDevice> hosts;
+    // First host, or the one last switched to; null if none is connected
+    final BluetoothDevice primary;
+    // Address of the host unrouted reports go to, or null to notify every host
+    final String activeHost;
+    // Client GATT connections by host address
+    final Map<String, GattOperationQueue> clientConnections;
+
+    private BleConnectionSnapshot(List<BluetoothDevice> hosts, BluetoothDevice primary, String activeHost,
+                                  Map<String, GattOperationQueue> clientConnections) {
+        this.hosts = hosts;
+        this.primary = primary;
+        this.activeHost = activeHost;
+        this.clientConnections = clientConnections;
+    }
+
+    /**
+     * @return The connected host with this address, or null
+     */
+    BluetoothDevice getHost(String address) {
+        for (BluetoothDevice host : hosts) {
+            if (host.getAddress().equals(address)) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a host that connected; the first host becomes the primary.
+     */
+    BleConnectionSnapshot withHost(BluetoothDevice device) {
+        if (hosts.contains(device)) {
+            return this;
+        }
+        List<BluetoothDevice> added = new ArrayList<>(hosts);
+        added.add(device);
+        return new BleConnectionSnapshot(Collections.unmodifiableList(added),
+                primary != null ? primary : device, activeHost, clientConnections);
+    }
+
+    /**
+     * Removes a host that disconnected, with its client connection. If it was
+     * the primary or active host, the longest-connected remaining host takes over.
+     */
+    BleConnectionSnapshot withoutHost(BluetoothDevice device) {
+        String address = device.getAddress();
+        if (!hosts.contains(device) && !clientConnections.containsKey(address)) {
+            return this;
+        }
+        List<BluetoothDevice> remaining = new ArrayList<>(hosts);
+        remaining.remove(device);
+        Map<String, GattOperationQueue> clients = clientConnections;
+        if (clients.containsKey(address)) {
+            clients = new HashMap<>(clients);
+            clients.remove(address);
+            clients = Collections.unmodifiableMap(clients);
+        }
+
+        BluetoothDevice nextPrimary = primary;
+        if (device.equals(primary)) {
+            nextPrimary = remaining.isEmpty() ? null : remaining.get(0);
+        }
+        String nextActive = activeHost;
+        if (address.equals(activeHost)) {
+            nextActive = nextPrimary != null ? nextPrimary.getAddress() : null;
+        }
+        return new BleConnectionSnapshot(Collections.unmodifiableList(remaining), nextPrimary, nextActive, clients);
+    }
+
+    /**
+     * Makes a connected host the primary and the target of unrouted reports.
+     * Unchanged if the host is no longer connected.
+     */
+    BleConnectionSnapshot withActiveHost(BluetoothDevice device) {
+        if (!hosts.contains(device)) {
+            return this;
+        }
+        return new BleConnectionSnapshot(hosts, device, device.getAddress(), clientConnections);
+    }
+
+    BleConnectionSnapshot withClientConnection(String address, GattOperationQueue client) {
+        Map<String, GattOperationQueue> clients = new HashMap<>(clientConnections);
+        clients.put(address, client);
+        return new BleConnectionSnapshot(hosts, primary, activeHost, Collections.unmodifiableMap(clients));
+    }
+
+    /**
+     * Removes a client connection, unless the address has since been given a new one.
+     */
+    BleConnectionSnapshot withoutClientConnection(String address, BluetoothGatt gatt) {
+        GattOperationQueue client = clientConnections.get(address);
+        if (client == null || client.gatt != gatt) {
+            return this;
+        }
+        Map<String, GattOperationQueue> clients = new HashMap<>(clientConnections);
+        clients.remove(address);
+        return new BleConnectionSnapshot(hosts, primary, activeHost, Collections.unmodifiableMap(clients));
+    }
+}
@@ -0,0 +1,151 @@
+package com.inventonater.blehid.core;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks how far a host connection has come on its way to usable input:
+ * connected, encrypted, subscribed (a CCCD is on) and ready (the first
+ * report after subscribing was delivered).
+ *
+ * Milestones are fed from the GATT callbacks as they happen and each is
+ * timestamped once per connection. They can arrive out of order (a bonded
+ * host's CCCDs are restored before its link is encrypted); the state is the
+ * furthest milestone reached.
+ */
+public class BleConnectionStateMachine {
+    private static final String TAG = "BleConnectionState";
+
+    public static final int STATE_DISCONNECTED = 0;
+    public static final int STATE_CONNECTED = 1;
+    public static final int STATE_ENCRYPTED = 2;
+    public static final int STATE_SUBSCRIBED = 3;
+    public static final int STATE_READY = 4;
+
+    private static final String[] STATE_NAMES = {
+            "DISCONNECTED", "CONNECTED", "ENCRYPTED", "SUBSCRIBED", "READY"
+    };
+
+    /**
+     * Told when a connection reaches a milestone.
+     */
+    public interface Listener {
+        /**
+         * Called on a Binder thread; implementations should hand off and return quickly.
+         *
+         * @param state The milestone reached (STATE_*)
+         * @param elapsedMs Time since the host connected
+         */
+        void onConnectionMilestone(int state, long elapsedMs);
+    }
+
+    private int state = STATE_DISCONNECTED;
+    private long connectedAt = 0;
+    // Time since connect of each milestone, -1 until reached
+    private final long[] milestones = new long[STATE_NAMES.length];
+    private Listener listener;
+
+    public BleConnectionStateMachine() {
+        reset();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts timing a new connection.
+     */
+    void onConnected() {
+        synchronized (this) {
+            reset();
+            connectedAt = SystemClock.uptimeMillis();
+        }
+        reach(STATE_CONNECTED);
+    }
+
+    /**
+     * The host made a request on an attribute that needs encryption, so the link is encrypted.
+     */
+    void onEncrypted() {
+        reach(STATE_ENCRYPTED);
+    }
+
+    /**
+     * The host turned notifications on, or its saved CCCDs were restored.
+     */
+    void onSubscribed() {
+        reach(STATE_SUBSCRIBED);
+    }
+
+    /**
+     * A notification was delivered; the first one after subscribing makes the connection ready.
+     */
+    void onReportDelivered() {
+        synchronized (this) {
+            if (milestones[STATE_SUBSCRIBED] < 0 || milestones[STATE_READY] >= 0) {
+                return;
+            }
+        }
+        reach(STATE_READY);
+    }
+
+    void onDisconnected() {
+        synchronized (this) {
+            reset();
+        }
+    }
+
+    private void reach(int milestone) {
+        long elapsed;
+        synchronized (this) {
+            if (connectedAt == 0 || milestones[milestone] >= 0) {
+                return;
+            }
+            elapsed = SystemClock.uptimeMillis() - connectedAt;
+            milestones[milestone] = elapsed;
+            state = Math.max(state, milestone);
+        }
+
+        Log.i(TAG, STATE_NAMES[milestone] + " after " + elapsed + "ms");
+        // Outside the lock: the listener may take its own locks
+        Listener current = listener;
+        if (current != null) {
+            current.onConnectionMilestone(milestone, elapsed);
+        }
+    }
+
+    private void reset() {
+        state = STATE_DISCONNECTED;
+        connectedAt = 0;
+        for (int i = 0; i < milestones.length; i++) {
+            milestones[i] = -1;
+        }
+    }
+
+    public synchronized int getState() {
+        return state;
+    }
+
+    public static String getStateName(int state) {
+        return state >= 0 && state < STATE_NAMES.length ? STATE_NAMES[state] : "UNKNOWN";
+    }
+
+    /**
+     * Gets the time since connect of each milestone reached on the current connection.
+     *
+     * @return Map of milestone name to milliseconds since connect
+     */
+    public synchronized Map<String, String> getTimeline() {
+        Map<String, String> timeline = new LinkedHashMap<>();
+        for (int i = STATE_CONNECTED; i < milestones.length; i++) {
+            if (milestones[i] >= 0) {
+                timeline.put(STATE_NAMES[i], String.valueOf(milestones[i]));
+            }
+        }
+        return timeline;
+    }
+}
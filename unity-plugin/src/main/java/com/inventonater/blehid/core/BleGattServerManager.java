@@ -11,14 +11,18 @@ import android.bluetooth.BluetoothGattServerCallback;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
 import android.content.Context;
-import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Manages the GATT server for BLE HID functionality.
@@ -28,12 +32,6 @@ public class BleGattServerManager {
 
     // Standard UUIDs for HID service required characteristics
     private static final UUID HID_SERVICE_UUID = UUID.fromString("00001812-0000-1000-8000-00805f9b34fb");
-    private static final UUID HID_INFO_UUID = UUID.fromString("00002a4a-0000-1000-8000-00805f9b34fb");
-    private static final UUID HID_REPORT_MAP_UUID = UUID.fromString("00002a4b-0000-1000-8000-00805f9b34fb");
-    private static final UUID HID_CONTROL_POINT_UUID = UUID.fromString("00002a4c-0000-1000-8000-00805f9b34fb");
-    
-    // Client Characteristic Configuration Descriptor UUID
-    private static final UUID CLIENT_CONFIG_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
     
     private final BleHidManager bleHidManager;
     private final Context context;
@@ -42,9 +40,142 @@ public class BleGattServerManager {
     private BluetoothGattServer gattServer;
     private BluetoothGattService hidService;
     
-    // Client-side GATT connection to the connected device
-    private BluetoothGatt clientGatt;
-    private final Map<BluetoothDevice, BluetoothGatt> deviceGattMap = new HashMap<>();
+    // Characteristics, CCCDs, per-host CCCD values and request handlers, built once per service
+    private GattAttributeTable attributeTable;
+    
+    /**
+     * Told when the stack has room for another notification, so callers that
+     * hold back coalesced state can send it.
+     */
+    public interface NotificationListener {
+        /**
+         * Called on a Binder thread; implementations should hand off and return quickly.
+         */
+        void onNotificationCreditAvailable();
+    }
+    
+    // Outcome of sending a notification
+    public static final int NOTIFY_SENT = 0;
+    public static final int NOTIFY_QUEUED = 1;
+    public static final int NOTIFY_BUSY = 2;    // Droppable notification not sent; nothing was queued
+    public static final int NOTIFY_FAILED = 3;
+    
+    // Notification flow control, per host: at most maxNotificationsInFlight notifications
+    // are handed to the stack for a host before onNotificationSent returns a credit.
+    // Notifications sent while a host is out of credits wait in its queue, in order,
+    // so a slow host never holds up the others.
+    private static final int DEFAULT_NOTIFICATIONS_IN_FLIGHT = 2;
+    private static final int MAX_PENDING_NOTIFICATIONS = 64;
+    // Credits not returned within this time are assumed lost (e.g. across a disconnect)
+    private static final long NOTIFICATION_TIMEOUT_MS = 250;
+    
+    // Client connection setup: discovery can take several connection events on a busy link
+    private static final long SERVICE_DISCOVERY_TIMEOUT_MS = 10000;
+    // Largest MTU requested on the client connection
+    private static final int CLIENT_MTU = 512;
+    
+    /**
+     * A slot in a host's queue. Slots are reused, and the value is copied into
+     * a buffer the slot keeps per attribute, so queueing allocates nothing
+     * once the slot has held each report.
+     */
+    private static class PendingNotification {
+        BluetoothGattCharacteristic characteristic;
+        byte[] value;
+        // Copies by attribute index; an attribute's reports keep their length
+        private byte[][] buffers = new byte[0][];
+        
+        void set(GattAttributeTable.Attribute attribute, byte[] source) {
+            if (attribute.index >= buffers.length) {
+                buffers = Arrays.copyOf(buffers, attribute.index + 1);
+            }
+            byte[] buffer = buffers[attribute.index];
+            if (buffer == null || buffer.length != source.length) {
+                buffer = new byte[source.length];
+                buffers[attribute.index] = buffer;
+            }
+            System.arraycopy(source, 0, buffer, 0, source.length);
+            characteristic = attribute.characteristic;
+            value = buffer;
+        }
+    }
+    
+    /**
+     * A connected host with its own notification credits and queue.
+     */
+    private class HostLink {
+        final BluetoothDevice device;
+        // Queued notifications, as a ring of reused slots starting at pendingHead
+        final PendingNotification[] pending = new PendingNotification[MAX_PENDING_NOTIFICATIONS];
+        int pendingHead = 0;
+        int pendingCount = 0;
+        int inFlight = 0;
+        long lastProgress = 0;
+        // Frees the host once its credits time out, when nothing else is sent to it
+        final Runnable creditCheck = () -> runCreditCheck(this);
+        boolean creditCheckScheduled = false;
+        
+        HostLink(BluetoothDevice device) {
+            this.device = device;
+        }
+        
+        /**
+         * Copies a notification to the end of the queue.
+         * 
+         * @return false if the queue is full
+         */
+        boolean queue(GattAttributeTable.Attribute attribute, byte[] value) {
+            if (pendingCount == pending.length) {
+                return false;
+            }
+            int tail = (pendingHead + pendingCount) % pending.length;
+            if (pending[tail] == null) {
+                pending[tail] = new PendingNotification();
+            }
+            pending[tail].set(attribute, value);
+            pendingCount++;
+            return true;
+        }
+        
+        /**
+         * @return The oldest queued notification; the queue must not be empty
+         */
+        PendingNotification peekPending() {
+            return pending[pendingHead];
+        }
+        
+        void removePending() {
+            pendingHead = (pendingHead + 1) % pending.length;
+            pendingCount--;
+        }
+        
+        void clearPending() {
+            pendingHead = 0;
+            pendingCount = 0;
+        }
+    }
+    
+    private final Object notificationLock = new Object();
+    // Flow control per connected host by address, in connection order; guarded by notificationLock
+    private final Map<String, HostLink> hostLinks = new LinkedHashMap<>();
+    // The same hosts as an array, so sends iterate without allocating; guarded by notificationLock
+    private HostLink[] links = new HostLink[0];
+    // Who is connected; callbacks swap in new snapshots, readers take no lock
+    private final AtomicReference<BleConnectionSnapshot> connectionState =
+            new AtomicReference<>(BleConnectionSnapshot.EMPTY);
+    private int maxNotificationsInFlight = DEFAULT_NOTIFICATIONS_IN_FLIGHT;
+    private NotificationListener notificationListener;
+    // Runs the credit checks of stalled hosts; null until the report sender is running
+    private volatile HidReportScheduler reportScheduler;
+    
+    // Flow control statistics, over all hosts
+    private long queuedNotificationCount = 0;
+    private long notificationTimeoutCount = 0;
+    private long droppedNotificationCount = 0;
+    
+    // Optional client-side GATT connection back to the host, for connection priority,
+    // MTU requests and RSSI; the server callbacks report MTU, PHY and parameters without it
+    private volatile boolean clientConnectionEnabled = false;
     
     /**
      * Creates a new GATT server manager.
@@ -57,6 +188,20 @@ public class BleGattServerManager {
         this.bluetoothManager = bleHidManager.getBluetoothManager();
     }
     
+    /**
+     * Creates a manager around a GATT server that already holds the HID
+     * service, for tests that drive the notification path.
+     */
+    BleGattServerManager(BleHidManager bleHidManager, BluetoothGattServer gattServer,
+                         BluetoothGattService service) {
+        this.bleHidManager = bleHidManager;
+        this.context = null;
+        this.bluetoothManager = null;
+        this.gattServer = gattServer;
+        this.hidService = service;
+        this.attributeTable = new GattAttributeTable(service);
+    }
+    
     /**
      * Initializes the GATT server.
      * 
@@ -103,6 +248,7 @@ public class BleGattServerManager {
             }
             
             hidService = service;
+            attributeTable = new GattAttributeTable(service);
             Log.i(TAG, "Added HID service to GATT server");
             return true;
         } catch (Exception e) {
@@ -111,6 +257,28 @@ public class BleGattServerManager {
         }
     }
     
+    /**
+     * Gets the attribute table of the added HID service, for registering
+     * request handlers.
+     * 
+     * @return The attribute table, or null if no service has been added
+     */
+    GattAttributeTable getAttributeTable() {
+        return attributeTable;
+    }
+    
+    /**
+     * Gets the attribute index of a characteristic, so frequent senders can
+     * notify it without a lookup.
+     * 
+     * @param characteristic A characteristic of the HID service
+     * @return The index, or -1 if the characteristic is not in the HID service
+     */
+    public int getAttributeIndex(BluetoothGattCharacteristic characteristic) {
+        GattAttributeTable table = attributeTable;
+        return table != null ? table.indexOf(characteristic) : -1;
+    }
+    
     /**
      * Sends a notification for a characteristic.
      * 
@@ -118,62 +286,513 @@ public class BleGattServerManager {
      * @param value The value to send
      * @return true if the notification was sent, false otherwise
      */
-    @SuppressLint("MissingPermission")
     public boolean sendNotification(UUID charUuid, byte[] value) {
-        if (gattServer == null || hidService == null) {
-            Log.e(TAG, "GATT server not initialized or HID service not added");
+        GattAttributeTable table = attributeTable;
+        GattAttributeTable.Attribute attribute = table != null ? table.find(charUuid) : null;
+        if (attribute == null) {
+            Log.e(TAG, "Characteristic not found: " + charUuid);
             return false;
         }
         
-        BluetoothGattCharacteristic characteristic = hidService.getCharacteristic(charUuid);
-        if (characteristic == null) {
-            Log.e(TAG, "Characteristic not found: " + charUuid);
-            return false;
+        return sendNotification(attribute.index, value, false) != NOTIFY_FAILED;
+    }
+    
+    /**
+     * Sends a notification for a specific characteristic instance.
+     * Needed when several characteristics share a UUID, like per-function Report characteristics.
+     * While the stack holds maxNotificationsInFlight notifications, new ones are
+     * queued in order and sent as onNotificationSent returns credits.
+     * 
+     * @param characteristic The characteristic to notify
+     * @param value The value to send
+     * @return true if the notification was sent or queued, false otherwise
+     */
+    public boolean sendNotification(BluetoothGattCharacteristic characteristic, byte[] value) {
+        return sendNotification(characteristic, value, false) != NOTIFY_FAILED;
+    }
+    
+    /**
+     * Sends a notification for a specific characteristic instance.
+     * A droppable notification is never queued or retried: when it cannot go
+     * out right away the caller gets NOTIFY_BUSY and folds its content into a
+     * later notification (used for relative motion, which goes stale).
+     * 
+     * @param characteristic The characteristic to notify
+     * @param value The value to send
+     * @param droppable true to drop rather than queue the notification while the stack is busy
+     * @return NOTIFY_SENT, NOTIFY_QUEUED, NOTIFY_BUSY (droppable only) or NOTIFY_FAILED
+     */
+    public int sendNotification(BluetoothGattCharacteristic characteristic, byte[] value, boolean droppable) {
+        return sendNotification(getAttributeIndex(characteristic), value, droppable);
+    }
+    
+    /**
+     * Sends a notification for the characteristic at an attribute index.
+     * 
+     * @param attributeIndex Index from getAttributeIndex
+     * @param value The value to send
+     * @param droppable true to drop rather than queue the notification while the stack is busy
+     * @return NOTIFY_SENT, NOTIFY_QUEUED, NOTIFY_BUSY (droppable only) or NOTIFY_FAILED
+     */
+    public int sendNotification(int attributeIndex, byte[] value, boolean droppable) {
+        GattAttributeTable table = attributeTable;
+        if (gattServer == null || table == null) {
+            Log.e(TAG, "GATT server not initialized or HID service not added");
+            return NOTIFY_FAILED;
         }
         
-        BluetoothDevice connectedDevice = bleHidManager.getConnectedDevice();
-        if (connectedDevice == null) {
+        GattAttributeTable.Attribute attribute = table.get(attributeIndex);
+        if (attribute == null) {
+            Log.e(TAG, "Characteristic not in HID service: " + attributeIndex);
+            return NOTIFY_FAILED;
+        }
+        
+        // Not connected: fail fast rather than queue
+        BleConnectionSnapshot snapshot = connectionState.get();
+        if (snapshot.hosts.isEmpty()) {
             Log.e(TAG, "No connected device for sending notification");
-            return false;
+            return NOTIFY_FAILED;
         }
         
-        // Ensure that notifications are enabled by checking descriptor
-        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(CLIENT_CONFIG_UUID);
-        if (descriptor != null) {
-            byte[] descValue = descriptor.getValue();
-            if (descValue == null || !Arrays.equals(descValue, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE)) {
-                Log.w(TAG, "Notifications may not be enabled for " + charUuid + ", attempting to set");
-                descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                // Not calling write descriptor here as we don't have access to the GATT client
-            }
+        // Unrouted reports go to the active host when standby hosts are connected
+        String route = attribute.route;
+        if (route == null) {
+            route = snapshot.activeHost;
         }
         
-        try {
-            characteristic.setValue(value);
-            
-            // Simple retry once if it fails
-            boolean success = gattServer.notifyCharacteristicChanged(connectedDevice, characteristic, false);
-            if (!success) {
-                Log.w(TAG, "First notification attempt failed, retrying once");
-                try {
-                    Thread.sleep(10); // Small delay before retry
-                } catch (InterruptedException e) {
-                    // Ignore
+        synchronized (notificationLock) {
+            if (route != null) {
+                HostLink link = hostLinks.get(route);
+                if (link == null) {
+                    Log.e(TAG, "Host for " + attribute.characteristic.getUuid() + " not connected: " + route);
+                    return NOTIFY_FAILED;
                 }
-                success = gattServer.notifyCharacteristicChanged(connectedDevice, characteristic, false);
+                return sendToHost(table, link, attribute, value, droppable);
             }
             
-            if (success) {
-                Log.d(TAG, "HID notification sent successfully");
-            } else {
-                Log.e(TAG, "Failed to send HID notification after retry");
+            // Fan out to the hosts subscribed to the characteristic. Every host must get
+            // every motion delta, so droppable motion goes to all of them or, while one
+            // is out of credits, to none and rides along with a later report
+            if (droppable) {
+                for (HostLink link : links) {
+                    if (isSubscribed(table, link, attribute) && !readyToSend(link)) {
+                        droppedNotificationCount++;
+                        scheduleCreditCheck(link);
+                        return NOTIFY_BUSY;
+                    }
+                }
             }
             
-            return success;
+            // A host whose stack turns the notification away after the others took it
+            // gets it queued. The worst outcome wins (the NOTIFY_* codes are ordered best
+            // first), so a report one host missed is not taken as sent and goes out again
+            int result = NOTIFY_FAILED;
+            boolean subscribed = false;
+            for (HostLink link : links) {
+                if (isSubscribed(table, link, attribute)) {
+                    int hostResult = sendToHost(table, link, attribute, value, false);
+                    result = subscribed ? Math.max(result, hostResult) : hostResult;
+                    subscribed = true;
+                }
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Sends a notification to one host only, whatever the attribute's route.
+     * Used for the initial values a host gets when it subscribes.
+     * 
+     * @param device The host
+     * @param attributeIndex Index from getAttributeIndex
+     * @param value The value to send
+     * @return NOTIFY_SENT, NOTIFY_QUEUED or NOTIFY_FAILED
+     */
+    public int sendNotificationTo(BluetoothDevice device, int attributeIndex, byte[] value) {
+        GattAttributeTable table = attributeTable;
+        GattAttributeTable.Attribute attribute = table != null ? table.get(attributeIndex) : null;
+        if (gattServer == null || attribute == null) {
+            Log.e(TAG, "GATT server not initialized or characteristic not in HID service");
+            return NOTIFY_FAILED;
+        }
+        
+        synchronized (notificationLock) {
+            HostLink link = hostLinks.get(device.getAddress());
+            if (link == null) {
+                Log.e(TAG, "Host not connected: " + device.getAddress());
+                return NOTIFY_FAILED;
+            }
+            return sendToHost(table, link, attribute, value, false);
+        }
+    }
+    
+    /**
+     * Sends, queues or drops one notification for one host. Must hold notificationLock.
+     */
+    private int sendToHost(GattAttributeTable table, HostLink link, GattAttributeTable.Attribute attribute,
+                           byte[] value, boolean droppable) {
+        BluetoothGattCharacteristic characteristic = attribute.characteristic;
+        
+        // Notifications are enabled for every host on connection; one that has
+        // since turned them off gets nothing
+        if (!isSubscribed(table, link, attribute)) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Notifications off for " + characteristic.getUuid() + " on "
+                        + link.device.getAddress() + ", not sending");
+            }
+            return NOTIFY_FAILED;
+        }
+        
+        expireLostCredits(link);
+        drainPendingNotifications(link);
+        
+        if (link.inFlight < maxNotificationsInFlight && link.pendingCount == 0) {
+            int result = notifyNow(link, characteristic, value);
+            if (result != NOTIFY_BUSY) {
+                return result;
+            }
+        }
+        
+        if (droppable) {
+            droppedNotificationCount++;
+            scheduleCreditCheck(link);
+            return NOTIFY_BUSY;
+        }
+        
+        // Out of credits or the stack is busy: send when a credit comes back
+        if (!link.queue(attribute, value)) {
+            Log.e(TAG, "Notification queue full for " + link.device.getAddress() + ", dropping report");
+            return NOTIFY_FAILED;
+        }
+        queuedNotificationCount++;
+        scheduleCreditCheck(link);
+        return NOTIFY_QUEUED;
+    }
+    
+    /**
+     * Hands one notification to the stack, taking one of the host's credits,
+     * and classifies the stack's answer. Must hold notificationLock.
+     * 
+     * @return NOTIFY_SENT, NOTIFY_BUSY if it should wait for a credit, or NOTIFY_FAILED
+     */
+    @SuppressLint("MissingPermission")
+    private int notifyNow(HostLink link, BluetoothGattCharacteristic characteristic, byte[] value) {
+        int status;
+        try {
+            // Kept current for reads and for the initial notification on re-subscription
+            characteristic.setValue(value);
+            status = gattServer.notifyCharacteristicChanged(link.device, characteristic, false, value);
         } catch (Exception e) {
             Log.e(TAG, "Error sending notification", e);
+            return NOTIFY_FAILED;
+        }
+        
+        switch (status) {
+            case BluetoothStatusCodes.SUCCESS:
+                if (link.inFlight == 0) {
+                    link.lastProgress = SystemClock.uptimeMillis();
+                }
+                link.inFlight++;
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "HID notification sent successfully");
+                }
+                return NOTIFY_SENT;
+                
+            case BluetoothStatusCodes.ERROR_GATT_WRITE_REQUEST_BUSY:
+                // The stack is full even though we had credits; wait for onNotificationSent,
+                // or retry once the credits time out if it never comes
+                Log.w(TAG, "Notification rejected as busy, waiting for a credit");
+                link.inFlight = maxNotificationsInFlight;
+                link.lastProgress = SystemClock.uptimeMillis();
+                scheduleCreditCheck(link);
+                return NOTIFY_BUSY;
+                
+            case BluetoothStatusCodes.ERROR_BLUETOOTH_NOT_ENABLED:
+            case BluetoothStatusCodes.ERROR_PROFILE_SERVICE_NOT_BOUND:
+            case BluetoothStatusCodes.ERROR_MISSING_BLUETOOTH_CONNECT_PERMISSION:
+                // Nothing queued can be delivered either
+                Log.e(TAG, "Notifications unavailable, status " + status + "; dropping "
+                        + link.pendingCount + " queued");
+                link.clearPending();
+                return NOTIFY_FAILED;
+                
+            default:
+                Log.e(TAG, "Notification failed, status " + status);
+                return NOTIFY_FAILED;
+        }
+    }
+    
+    /**
+     * Sends a host's queued notifications while its credits last. Must hold notificationLock.
+     */
+    private void drainPendingNotifications(HostLink link) {
+        while (link.inFlight < maxNotificationsInFlight && link.pendingCount > 0) {
+            PendingNotification next = link.peekPending();
+            if (notifyNow(link, next.characteristic, next.value) == NOTIFY_BUSY) {
+                return;
+            }
+            // Sent, or failed and dropped
+            link.removePending();
+        }
+    }
+    
+    /**
+     * Gives back credits the stack has not returned in time. Must hold notificationLock.
+     */
+    private void expireLostCredits(HostLink link) {
+        if (link.inFlight > 0
+                && SystemClock.uptimeMillis() - link.lastProgress >= NOTIFICATION_TIMEOUT_MS) {
+            Log.w(TAG, "No onNotificationSent for " + link.inFlight + " notifications to "
+                    + link.device.getAddress() + ", resetting credits");
+            link.inFlight = 0;
+            notificationTimeoutCount++;
+        }
+    }
+    
+    private static boolean isSubscribed(GattAttributeTable table, HostLink link,
+                                        GattAttributeTable.Attribute attribute) {
+        return attribute.cccd == null || table.isNotifying(link.device, attribute);
+    }
+    
+    private boolean hasCredit(HostLink link) {
+        return link.inFlight < maxNotificationsInFlight && link.pendingCount == 0;
+    }
+    
+    /**
+     * Looks at a host without credit again when its credits time out, so a
+     * queued report or a lost onNotificationSent does not wait for the next
+     * input. Must hold notificationLock.
+     */
+    private void scheduleCreditCheck(HostLink link) {
+        HidReportScheduler scheduler = reportScheduler;
+        if (scheduler == null || link.creditCheckScheduled || hasCredit(link)) {
+            return;
+        }
+        link.creditCheckScheduled = true;
+        scheduler.postAt(link.creditCheck, link, link.lastProgress + NOTIFICATION_TIMEOUT_MS);
+    }
+    
+    /**
+     * Drops a host's credit check after progress, or when the host goes. Must hold notificationLock.
+     */
+    private void cancelCreditCheck(HostLink link) {
+        HidReportScheduler scheduler = reportScheduler;
+        if (scheduler != null && link.creditCheckScheduled) {
+            scheduler.cancel(link);
+        }
+        link.creditCheckScheduled = false;
+    }
+    
+    /**
+     * Expires a stalled host's lost credits and sends what it has queued.
+     * Runs on the report sender thread.
+     */
+    private void runCreditCheck(HostLink link) {
+        boolean creditAvailable;
+        synchronized (notificationLock) {
+            link.creditCheckScheduled = false;
+            if (hostLinks.get(link.device.getAddress()) != link) {
+                return;
+            }
+            expireLostCredits(link);
+            drainPendingNotifications(link);
+            creditAvailable = hasCredit(link);
+            scheduleCreditCheck(link);
+        }
+        
+        NotificationListener listener = notificationListener;
+        if (creditAvailable && listener != null) {
+            listener.onNotificationCreditAvailable();
+        }
+    }
+    
+    /**
+     * Checks whether a notification for an attribute sent now would go
+     * straight to the stack for the hosts it goes to: the host it is routed
+     * to, the active host, or else every host subscribed to it.
+     * Senders of coalescable state (motion, analog axes) hold it back while
+     * this is false and send the newest value once a credit comes back.
+     * 
+     * @param attributeIndex Index from getAttributeIndex
+     * @return true if every target host has a credit free and nothing queued
+     */
+    public boolean hasNotificationCredit(int attributeIndex) {
+        GattAttributeTable table = attributeTable;
+        GattAttributeTable.Attribute attribute = table != null ? table.get(attributeIndex) : null;
+        if (attribute == null) {
+            // Sending fails fast; nothing to wait for
+            return true;
+        }
+        
+        String route = attribute.route;
+        if (route == null) {
+            route = connectionState.get().activeHost;
+        }
+        
+        synchronized (notificationLock) {
+            if (route != null) {
+                HostLink link = hostLinks.get(route);
+                return link == null || readyToSend(link);
+            }
+            for (HostLink link : links) {
+                if (isSubscribed(table, link, attribute) && !readyToSend(link)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Catches a host up on expired credits and queued notifications, and
+     * checks it has a credit left. Must hold notificationLock.
+     */
+    private boolean readyToSend(HostLink link) {
+        expireLostCredits(link);
+        drainPendingNotifications(link);
+        return hasCredit(link);
+    }
+    
+    /**
+     * Sets how many notifications may be handed to the stack for each host
+     * before onNotificationSent. Fewer in flight keeps coalesced motion fresher.
+     * 
+     * @param maxInFlight Maximum notifications in flight per host (at least 1)
+     */
+    public void setMaxNotificationsInFlight(int maxInFlight) {
+        synchronized (notificationLock) {
+            maxNotificationsInFlight = Math.max(1, maxInFlight);
+        }
+    }
+    
+    public void setNotificationListener(NotificationListener listener) {
+        notificationListener = listener;
+    }
+    
+    /**
+     * Sets the thread that retries stalled hosts after NOTIFICATION_TIMEOUT_MS.
+     * 
+     * @param scheduler The report sender, or null to stop retrying
+     */
+    void setReportScheduler(HidReportScheduler scheduler) {
+        synchronized (notificationLock) {
+            for (HostLink link : links) {
+                cancelCreditCheck(link);
+            }
+            reportScheduler = scheduler;
+        }
+    }
+    
+    /**
+     * Registers a host that connected, with full credits and an empty queue.
+     */
+    private void addHost(BluetoothDevice device) {
+        synchronized (notificationLock) {
+            hostLinks.put(device.getAddress(), new HostLink(device));
+            links = hostLinks.values().toArray(new HostLink[0]);
+        }
+        connectionState.updateAndGet(state -> state.withHost(device));
+    }
+    
+    /**
+     * Forgets a host that disconnected, dropping what was queued for it.
+     * If it was the primary or active host, the next host takes over.
+     */
+    void removeHost(BluetoothDevice device) {
+        BleConnectionSnapshot previous = connectionState.getAndUpdate(state -> state.withoutHost(device));
+        GattOperationQueue client = previous.clientConnections.get(device.getAddress());
+        if (client != null) {
+            // The client link goes down with the host; its callback closes the connection
+            client.close();
+        }
+        synchronized (notificationLock) {
+            HostLink link = hostLinks.remove(device.getAddress());
+            if (link != null) {
+                cancelCreditCheck(link);
+                links = hostLinks.values().toArray(new HostLink[0]);
+            }
+        }
+    }
+    
+    /**
+     * Gets the current connection state. The snapshot does not change; load
+     * it once and read all fields from it.
+     */
+    BleConnectionSnapshot getConnectionSnapshot() {
+        return connectionState.get();
+    }
+    
+    /**
+     * Gets the connected hosts, in the order they connected.
+     * 
+     * @return The connected hosts
+     */
+    public List<BluetoothDevice> getConnectedHosts() {
+        return connectionState.get().hosts;
+    }
+    
+    /**
+     * Sets the host that gets reports whose type is not routed. Other hosts stay
+     * connected and subscribed but get no input.
+     * 
+     * The host also becomes the primary host.
+     * 
+     * @param device A connected host
+     * @return true if the host is now active, false if it is no longer connected
+     */
+    boolean setActiveHost(BluetoothDevice device) {
+        BleConnectionSnapshot state = connectionState.updateAndGet(current -> current.withActiveHost(device));
+        return device.getAddress().equals(state.activeHost);
+    }
+    
+    /**
+     * @return Address of the active host, or null if every connected host is notified
+     */
+    public String getActiveHost() {
+        return connectionState.get().activeHost;
+    }
+    
+    /**
+     * Sends a characteristic's notifications to one host only, or to every
+     * connected host.
+     * 
+     * @param characteristic A characteristic of the HID service
+     * @param hostAddress Address of the host, or null for every host
+     * @return true if the route was set, false if the characteristic is not in the HID service
+     */
+    public boolean setRoute(BluetoothGattCharacteristic characteristic, String hostAddress) {
+        GattAttributeTable table = attributeTable;
+        GattAttributeTable.Attribute attribute = table != null ? table.get(characteristic) : null;
+        if (attribute == null) {
+            Log.e(TAG, "Cannot route characteristic not in HID service");
             return false;
         }
+        attribute.route = hostAddress;
+        return true;
+    }
+    
+    /**
+     * Gets notification flow control statistics.
+     * 
+     * @return Map of statistic name to value
+     */
+    public Map<String, String> getNotificationStatistics() {
+        Map<String, String> stats = new HashMap<>();
+        synchronized (notificationLock) {
+            int inFlight = 0;
+            int pending = 0;
+            for (HostLink link : links) {
+                inFlight += link.inFlight;
+                pending += link.pendingCount;
+            }
+            stats.put("connectedHosts", String.valueOf(hostLinks.size()));
+            stats.put("notificationsInFlight", String.valueOf(inFlight));
+            stats.put("pendingNotifications", String.valueOf(pending));
+            stats.put("queuedNotifications", String.valueOf(queuedNotificationCount));
+            stats.put("notificationTimeouts", String.valueOf(notificationTimeoutCount));
+            stats.put("droppedNotifications", String.valueOf(droppedNotificationCount));
+        }
+        return stats;
     }
     
     /**
@@ -196,6 +815,13 @@ public class BleGattServerManager {
         return gattServer;
     }
     
+    /**
+     * Gets the callback the GATT server reports to, for tests that stand in for the stack.
+     */
+    BluetoothGattServerCallback getServerCallback() {
+        return gattServerCallback;
+    }
+    
     /**
      * Sets up HID notifications for a connected device.
      * This method force-enables notifications for critical HID characteristics
@@ -204,43 +830,75 @@ public class BleGattServerManager {
      * @param device The connected device
      */
     public void setupHidNotifications(BluetoothDevice device) {
-        if (hidService == null || device == null) {
+        setupHidNotifications(device, true);
+    }
+    
+    /**
+     * Enables notifications on all HID report characteristics for a host.
+     * 
+     * @param device The host
+     * @param sendInitialValues false for a standby host, which must not see
+     *                          input it will not see released
+     */
+    public void setupHidNotifications(BluetoothDevice device, boolean sendInitialValues) {
+        GattAttributeTable table = attributeTable;
+        if (table == null || device == null) {
             Log.e(TAG, "Cannot setup HID notifications: HID service or device is null");
             return;
         }
         
         Log.i(TAG, "Setting up HID notifications for device: " + device.getAddress());
         
-        // Get the report characteristic
-        BluetoothGattCharacteristic reportChar = hidService.getCharacteristic(HidConstants.Uuids.HID_REPORT);
-        if (reportChar == null) {
-            Log.e(TAG, "Cannot setup HID notifications: Report characteristic not found");
-            return;
-        }
-        
-        // Get the CCCD
-        BluetoothGattDescriptor descriptor = reportChar.getDescriptor(CLIENT_CONFIG_UUID);
-        if (descriptor == null) {
-            Log.e(TAG, "Cannot setup HID notifications: Client config descriptor not found");
-            return;
+        // Every Report characteristic needs its notifications on (one combined, or one per function)
+        boolean found = false;
+        for (int i = 0; i < table.size(); i++) {
+            GattAttributeTable.Attribute attribute = table.get(i);
+            BluetoothGattCharacteristic reportChar = attribute.characteristic;
+            // Feature reports are read and written by the host, never notified
+            if (!reportChar.getUuid().equals(HidConstants.Uuids.HID_REPORT)
+                    || (reportChar.getProperties() & BluetoothGattCharacteristic.PROPERTY_NOTIFY) == 0) {
+                continue;
+            }
+            found = true;
+            
+            if (attribute.cccd == null) {
+                Log.e(TAG, "Cannot setup HID notifications: Client config descriptor not found");
+                continue;
+            }
+            
+            // Force-enable notifications for this host
+            table.setCccd(device, attribute, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            Log.d(TAG, "Forced notification enable for HID report characteristic");
+            
+            // Send an initial notification to kickstart the HID functionality.
+            // Report characteristics get their initial (empty) value at service setup.
+            if (sendInitialValues && reportChar.getValue() != null) {
+                boolean result = sendNotificationTo(device, attribute.index, reportChar.getValue()) != NOTIFY_FAILED;
+                Log.d(TAG, "Sent initial notification to kickstart HID: " + result);
+            }
         }
         
-        // Force-enable notifications by setting the descriptor value
-        descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-        Log.d(TAG, "Forced notification enable for HID report characteristic");
-        
-        // Send an initial notification to kickstart the HID functionality
-        if (reportChar.getValue() != null) {
-            boolean result = sendNotification(reportChar.getUuid(), reportChar.getValue());
-            Log.d(TAG, "Sent initial notification to kickstart HID: " + result);
-        } else {
-            // If no value is set, send an empty report
-            byte[] emptyReport = new byte[12]; // 12-byte combined report format
-            boolean result = sendNotification(reportChar.getUuid(), emptyReport);
-            Log.d(TAG, "Sent empty initial notification to kickstart HID: " + result);
+        if (!found) {
+            Log.e(TAG, "Cannot setup HID notifications: Report characteristic not found");
         }
     }
     
+    /**
+     * Opens a client GATT connection back to each host that connects, so that
+     * connection priority and MTU can be requested and RSSI read. Off by
+     * default: the extra link adds a service discovery round and radio
+     * traffic while the host is setting up HID. Applies from the next connection.
+     * 
+     * @param enabled true to open the client connection on connect
+     */
+    public void setClientConnectionEnabled(boolean enabled) {
+        clientConnectionEnabled = enabled;
+    }
+    
+    public boolean isClientConnectionEnabled() {
+        return clientConnectionEnabled;
+    }
+    
     /**
      * Creates a client-side GATT connection to the specified device.
      * This allows us to perform operations like reading RSSI and 
@@ -256,17 +914,18 @@ public class BleGattServerManager {
         }
         
         // Check if we already have a connection to this device
-        if (deviceGattMap.containsKey(device)) {
+        if (connectionState.get().clientConnections.containsKey(device.getAddress())) {
             Log.d(TAG, "Already have client connection to " + device.getAddress());
             return true;
         }
         
         try {
             // Always use TRANSPORT_LE to ensure BLE connection (API 23+)
-            clientGatt = device.connectGatt(context, false, gattClientCallback, BluetoothDevice.TRANSPORT_LE);
+            BluetoothGatt clientGatt = device.connectGatt(context, false, gattClientCallback, BluetoothDevice.TRANSPORT_LE);
             
             if (clientGatt != null) {
-                deviceGattMap.put(device, clientGatt);
+                GattOperationQueue client = new GattOperationQueue(clientGatt);
+                connectionState.updateAndGet(state -> state.withClientConnection(device.getAddress(), client));
                 Log.i(TAG, "Created client GATT connection to " + device.getAddress());
                 return true;
             } else {
@@ -285,12 +944,54 @@ public class BleGattServerManager {
      * @return The BluetoothGatt instance for the connected device, or null if not connected
      */
     public BluetoothGatt getGattForConnectedDevice() {
-        BluetoothDevice device = bleHidManager.getConnectedDevice();
+        return getGattForDevice(bleHidManager.getConnectedDevice());
+    }
+    
+    /**
+     * Gets the GATT client connection for a connected host.
+     * 
+     * @param device The host
+     * @return The BluetoothGatt instance for the host, or null if there is no client connection
+     */
+    public BluetoothGatt getGattForDevice(BluetoothDevice device) {
+        GattOperationQueue client = getClientQueue(device);
+        return client != null ? client.gatt : null;
+    }
+    
+    /**
+     * Gets the operation queue of the client GATT connection to a host. Client
+     * operations must go through it: one started while another is outstanding fails.
+     * 
+     * @param device The host
+     * @return The queue, or null if there is no client connection
+     */
+    GattOperationQueue getClientQueue(BluetoothDevice device) {
         if (device == null) {
             return null;
         }
         
-        return deviceGattMap.get(device);
+        return connectionState.get().clientConnections.get(device.getAddress());
+    }
+    
+    /**
+     * Finds the queue a client callback completes an operation on.
+     */
+    private GattOperationQueue clientQueueFor(BluetoothGatt gatt) {
+        GattOperationQueue client = connectionState.get().clientConnections.get(gatt.getDevice().getAddress());
+        return client != null && client.gatt == gatt ? client : null;
+    }
+    
+    /**
+     * Fails what is queued on a client connection that went down, and closes it.
+     */
+    private void closeClientConnection(String address, BluetoothGatt gatt) {
+        BleConnectionSnapshot previous = connectionState.getAndUpdate(
+                state -> state.withoutClientConnection(address, gatt));
+        GattOperationQueue client = previous.clientConnections.get(address);
+        if (client != null && client.gatt == gatt) {
+            client.close();
+        }
+        gatt.close();
     }
     
     /**
@@ -317,35 +1018,34 @@ public class BleGattServerManager {
                 if (newState == BluetoothProfile.STATE_CONNECTED) {
                     Log.i(TAG, "Client GATT connected to " + address);
                     
-                    // First request HIGH priority for lowest latency (7.5-15ms intervals)
-                    boolean priorityResult = gatt.requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
-                    Log.i(TAG, "Requested HIGH connection priority for lowest latency: " + (priorityResult ? "success" : "failed"));
+                    // First request HIGH priority for lowest latency (7.5-15ms intervals);
+                    // standby hosts idle at the standby priority until switched to
+                    BleConnectionManager connectionManager = bleHidManager.getConnectionManager();
+                    String active = connectionState.get().activeHost;
+                    boolean standby = active != null && !active.equals(address);
+                    connectionManager.requestConnectionPriority(device, standby
+                            ? connectionManager.getStandbyConnectionPriority()
+                            : BleConnectionManager.CONNECTION_PRIORITY_HIGH);
                     
-                    // Then discover services
-                    boolean discoverResult = gatt.discoverServices();
-                    Log.i(TAG, "Service discovery initiated: " + (discoverResult ? "success" : "failed"));
+                    // Then discover services and request the largest MTU, each after the last completes
+                    GattOperationQueue client = clientQueueFor(gatt);
+                    if (client != null) {
+                        client.enqueue(GattOperationQueue.OP_DISCOVER_SERVICES, SERVICE_DISCOVERY_TIMEOUT_MS,
+                                BluetoothGatt::discoverServices);
+                    }
+                    connectionManager.requestMtu(device, CLIENT_MTU);
                     
                 } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
                     Log.i(TAG, "Client GATT disconnected from " + address);
                     
                     // Clean up GATT resources
-                    deviceGattMap.remove(device);
-                    gatt.close();
-                    
-                    if (gatt == clientGatt) {
-                        clientGatt = null;
-                    }
+                    closeClientConnection(address, gatt);
                 }
             } else {
                 Log.e(TAG, "Error in client GATT connection state change: " + status);
                 
                 // Clean up on error
-                deviceGattMap.remove(device);
-                gatt.close();
-                
-                if (gatt == clientGatt) {
-                    clientGatt = null;
-                }
+                closeClientConnection(address, gatt);
             }
         }
         
@@ -354,11 +1054,13 @@ public class BleGattServerManager {
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.i(TAG, "GATT services discovered on " + gatt.getDevice().getAddress());
-                // Request max MTU for better throughput (standard for API 23+)
-                gatt.requestMtu(512);
             } else {
                 Log.e(TAG, "Service discovery failed: " + status);
             }
+            GattOperationQueue client = clientQueueFor(gatt);
+            if (client != null) {
+                client.complete(GattOperationQueue.OP_DISCOVER_SERVICES, status, 0);
+            }
         }
         
         @Override
@@ -369,6 +1071,10 @@ public class BleGattServerManager {
             } else {
                 Log.e(TAG, "MTU change failed: " + status);
             }
+            GattOperationQueue client = clientQueueFor(gatt);
+            if (client != null) {
+                client.complete(GattOperationQueue.OP_REQUEST_MTU, status, mtu);
+            }
         }
         
         @Override
@@ -379,6 +1085,10 @@ public class BleGattServerManager {
             } else {
                 Log.e(TAG, "RSSI read failed: " + status);
             }
+            GattOperationQueue client = clientQueueFor(gatt);
+            if (client != null) {
+                client.complete(GattOperationQueue.OP_READ_RSSI, status, rssi);
+            }
         }
         
         // This is a newer API method (doesn't exist in older BluetoothGattCallback versions)
@@ -407,19 +1117,25 @@ public class BleGattServerManager {
      */
     public void close() {
         // Close all client GATT connections
-        for (BluetoothGatt gatt : deviceGattMap.values()) {
-            if (gatt != null) {
-                gatt.close();
-            }
+        BleConnectionSnapshot closed = connectionState.getAndSet(BleConnectionSnapshot.EMPTY);
+        for (GattOperationQueue client : closed.clientConnections.values()) {
+            client.close();
+            client.gatt.close();
         }
-        deviceGattMap.clear();
-        clientGatt = null;
         
         // Close the GATT server
         if (gattServer != null) {
             gattServer.close();
             gattServer = null;
             hidService = null;
+            attributeTable = null;
+            synchronized (notificationLock) {
+                for (HostLink link : links) {
+                    cancelCreditCheck(link);
+                }
+                hostLinks.clear();
+                links = new HostLink[0];
+            }
             Log.i(TAG, "GATT server closed");
         }
     }
@@ -428,14 +1144,19 @@ public class BleGattServerManager {
      * Callback for GATT server operations.
      */
     private final BluetoothGattServerCallback gattServerCallback = new BluetoothGattServerCallback() {
+        @SuppressLint("MissingPermission")
         @Override
         public void onConnectionStateChange(BluetoothDevice device, int status, int newState) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 if (newState == BluetoothProfile.STATE_CONNECTED) {
                     Log.i(TAG, "Device connected: " + device.getAddress());
+                    addHost(device);
                     bleHidManager.onDeviceConnected(device);
+                    // Answered in onPhyRead
+                    gattServer.readPhy(device);
                 } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
                     Log.i(TAG, "Device disconnected: " + device.getAddress());
+                    removeHost(device);
                     bleHidManager.onDeviceDisconnected(device);
                 }
             } else {
@@ -443,6 +1164,76 @@ public class BleGattServerManager {
             }
         }
 
+        @Override
+        public void onNotificationSent(BluetoothDevice device, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "Notification failed: " + status);
+            } else {
+                bleHidManager.getConnectionStateMachine(device).onReportDelivered();
+            }
+            
+            boolean creditAvailable;
+            synchronized (notificationLock) {
+                HostLink link = hostLinks.get(device.getAddress());
+                if (link == null) {
+                    return;
+                }
+                if (link.inFlight > 0) {
+                    link.inFlight--;
+                }
+                link.lastProgress = SystemClock.uptimeMillis();
+                cancelCreditCheck(link);
+                drainPendingNotifications(link);
+                creditAvailable = hasCredit(link);
+                scheduleCreditCheck(link);
+            }
+            
+            // Outside the lock: the listener may take its own locks
+            NotificationListener listener = notificationListener;
+            if (creditAvailable && listener != null) {
+                listener.onNotificationCreditAvailable();
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothDevice device, int mtu) {
+            // The host exchanges MTU itself; no client connection needed
+            Log.i(TAG, "MTU changed to " + mtu + " by " + device.getAddress());
+            bleHidManager.getConnectionManager().onMtuChanged(mtu);
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothDevice device, int txPhy, int rxPhy, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                bleHidManager.getConnectionManager().onPhyUpdated(txPhy, rxPhy);
+            } else {
+                Log.e(TAG, "PHY update failed: " + status);
+            }
+        }
+
+        @Override
+        public void onPhyRead(BluetoothDevice device, int txPhy, int rxPhy, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                bleHidManager.getConnectionManager().onPhyUpdated(txPhy, rxPhy);
+            } else {
+                Log.e(TAG, "PHY read failed: " + status);
+            }
+        }
+
+        // This is a hidden API method, called on the server when the host changes connection parameters
+        public void onConnectionUpdated(BluetoothDevice device, int interval, int latency, int timeout, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                // Convert from units (1.25ms) and (10ms) to milliseconds
+                int intervalMs = interval * 5 / 4;
+                int timeoutMs = timeout * 10;
+                
+                Log.i(TAG, "Connection parameters updated - interval: " + intervalMs + "ms, latency: " + latency + ", timeout: " + timeoutMs + "ms");
+                bleHidManager.getConnectionManager().onConnectionUpdated(intervalMs, latency, timeoutMs);
+            } else {
+                Log.e(TAG, "Connection parameter update failed: " + status);
+            }
+        }
+
         @Override
         public void onServiceAdded(int status, BluetoothGattService service) {
             if (status == BluetoothGatt.GATT_SUCCESS) {
@@ -456,99 +1247,42 @@ public class BleGattServerManager {
         @Override
         public void onCharacteristicReadRequest(BluetoothDevice device, int requestId, int offset, BluetoothGattCharacteristic characteristic) {
             Log.d(TAG, "Read request for characteristic: " + characteristic.getUuid() + " from device: " + device.getAddress());
+            // Every HID attribute needs encryption; the stack only passes requests on encrypted links
+            bleHidManager.getConnectionStateMachine(device).onEncrypted();
             
-            UUID charUuid = characteristic.getUuid();
-            boolean success = false;
-            
-            // Provide the requested data based on which characteristic was requested
-            if (charUuid.equals(HID_INFO_UUID)) {
-                // Default HID info
-                byte[] hidInfo = new byte[] { 
-                    0x11, 0x01,   // Version 1.11
-                    0x00,         // Country code
-                    0x03          // Flags (Remote wake + Normally connectable) - Changed from 0x01 to 0x03
-                };
-                
-                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, offset, hidInfo);
-                success = true;
-            } 
-            else if (charUuid.equals(HID_REPORT_MAP_UUID)) {
-                // Get the report map from the mouse service only
-                byte[] reportMap = null;
-                if (bleHidManager.getHidMediaService() != null) {
-                    reportMap = bleHidManager.getHidMediaService().getReportMap();
-                }
-                
-                if (reportMap != null) {
-                    // If the request wants part of the data (offset > 0)
-                    if (offset > 0) {
-                        if (offset < reportMap.length) {
-                            byte[] offsetData = Arrays.copyOfRange(reportMap, offset, reportMap.length);
-                            gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, 
-                                    offset, offsetData);
-                            success = true;
-                        } else {
-                            // Offset beyond data length
-                            gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_INVALID_OFFSET, 
-                                    0, null);
-                        }
-                    } else {
-                        // Send the whole report map
-                        gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, 
-                                0, reportMap);
-                        success = true;
-                    }
-                }
-            } 
-            else {
-                // Try the mouse service only
-                byte[] response = null;
-                if (bleHidManager.getHidMediaService() != null) {
-                    response = bleHidManager.getHidMediaService().handleCharacteristicRead(charUuid, offset);
-                }
-                
-                if (response != null) {
-                    gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, 
-                            offset, response);
-                    success = true;
-                }
+            GattAttributeTable table = attributeTable;
+            GattAttributeTable.Attribute attribute = table != null ? table.get(characteristic) : null;
+            if (attribute == null || attribute.readHandler == null) {
+                Log.e(TAG, "Unhandled read characteristic: " + characteristic.getUuid());
+                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_FAILURE, 0, null);
+                return;
             }
             
-            // If we didn't handle it above, send error response
-            if (!success) {
-                Log.e(TAG, "Unhandled read characteristic: " + charUuid);
-                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_FAILURE, 
-                        0, null);
+            byte[] response = attribute.readHandler.onRead(device, offset);
+            if (response != null) {
+                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, offset, response);
+            } else {
+                // Offset beyond data length
+                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_INVALID_OFFSET, 0, null);
             }
         }
 
+        @SuppressLint("MissingPermission")
         @Override
         public void onCharacteristicWriteRequest(BluetoothDevice device, int requestId, 
                                                 BluetoothGattCharacteristic characteristic,
                                                 boolean preparedWrite, boolean responseNeeded,
                                                 int offset, byte[] value) {
             Log.d(TAG, "Write request for characteristic: " + characteristic.getUuid() + " from device: " + device.getAddress());
+            bleHidManager.getConnectionStateMachine(device).onEncrypted();
             
-            UUID charUuid = characteristic.getUuid();
+            GattAttributeTable table = attributeTable;
+            GattAttributeTable.Attribute attribute = table != null ? table.get(characteristic) : null;
             boolean success = false;
-            
-            // Handle the write based on which characteristic is being written
-            if (charUuid.equals(HID_CONTROL_POINT_UUID)) {
-                // The HID Control Point only takes one-byte values
-                if (value.length == 1) {
-                    byte controlPoint = value[0];
-                    Log.d(TAG, "HID Control Point set to: " + controlPoint);
-                    
-                    // Process the control point command for mouse service only
-                    // Mouse doesn't generally need control point handling, but keep the structure
-                    // for future expansion if needed
-                    success = true;
-                }
-            } 
-            else {
-                // Delegate other characteristics to the mouse service handler
-                success = bleHidManager.getHidMediaService()
-                        .handleCharacteristicWrite(charUuid, value);
+            if (attribute == null || attribute.writeHandler == null) {
+                Log.e(TAG, "Unhandled write characteristic: " + characteristic.getUuid());
+            } else {
+                success = attribute.writeHandler.onWrite(device, value);
             }
             
             // Send response if needed
@@ -564,25 +1298,24 @@ public class BleGattServerManager {
                                            BluetoothGattDescriptor descriptor) {
             Log.d(TAG, "Read request for descriptor: " + descriptor.getUuid() +
                     " from device: " + device.getAddress());
+            bleHidManager.getConnectionStateMachine(device).onEncrypted();
             
-            // Most commonly requested descriptors are the Client Characteristic Config (for notifications)
-            if (descriptor.getUuid().equals(CLIENT_CONFIG_UUID)) {
-                byte[] value = new byte[] { 0x00, 0x00 }; // Default: notifications disabled
-                
-                // Check the current configuration for this descriptor
-                // This would need to be stored per-device and per-characteristic
-                
-                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, 0, value);
+            GattAttributeTable table = attributeTable;
+            GattAttributeTable.Attribute attribute = table != null ? table.getByCccd(descriptor) : null;
+            byte[] response;
+            if (attribute != null) {
+                // What this host last wrote to the Client Characteristic Config
+                response = GattAttributeTable.readAt(table.getCccd(device, attribute), offset);
             } else {
-                // Get descriptor value from mouse service handler
-                byte[] response = bleHidManager.getHidMediaService().handleDescriptorRead(descriptor.getUuid(), descriptor.getCharacteristic().getUuid());
-                
-                if (response != null) {
-                    gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, offset, response);
-                } else {
-                    Log.e(TAG, "Unhandled descriptor read: " + descriptor.getUuid());
-                    gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_FAILURE, 0, null);
-                }
+                // Other descriptors (Report Reference) hold constant values
+                response = GattAttributeTable.readAt(descriptor.getValue(), offset);
+            }
+            
+            if (response != null) {
+                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_SUCCESS, offset, response);
+            } else {
+                Log.e(TAG, "Unhandled descriptor read: " + descriptor.getUuid());
+                gattServer.sendResponse(device, requestId, BluetoothGatt.GATT_FAILURE, 0, null);
             }
         }
 
@@ -594,46 +1327,39 @@ public class BleGattServerManager {
                                             int offset, byte[] value) {
             Log.d(TAG, "Write request for descriptor: " + descriptor.getUuid() +
                     " from device: " + device.getAddress());
+            bleHidManager.getConnectionStateMachine(device).onEncrypted();
             
+            GattAttributeTable table = attributeTable;
+            GattAttributeTable.Attribute attribute = table != null ? table.getByCccd(descriptor) : null;
             boolean success = false;
             
-            // Most commonly written descriptor is the Client Characteristic Config (for notifications)
-            if (descriptor.getUuid().equals(CLIENT_CONFIG_UUID)) {
-                if (value.length == 2) {
-                    // Store descriptor value in the descriptor itself
-                    descriptor.setValue(value);
-                    
-                    // 0x00 0x00 = notifications disabled
-                    // 0x01 0x00 = notifications enabled
-                    // 0x02 0x00 = indications enabled
-                    if (Arrays.equals(value, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE)) {
-                        Log.d(TAG, "Notifications ENABLED for " + descriptor.getCharacteristic().getUuid());
-                        // Send an initial notification when notifications are enabled
-                        try {
-                            if (descriptor.getCharacteristic().getValue() != null) {
-                                boolean result = sendNotification(
-                                    descriptor.getCharacteristic().getUuid(),
-                                    descriptor.getCharacteristic().getValue());
-                                Log.d(TAG, "Sent initial notification after enabling: " + result);
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error sending initial notification", e);
-                        }
-                    } else if (Arrays.equals(value, BluetoothGattDescriptor.ENABLE_INDICATION_VALUE)) {
-                        Log.d(TAG, "Indications ENABLED for " + descriptor.getCharacteristic().getUuid());
-                    } else {
-                        Log.d(TAG, "Notifications/indications DISABLED for " + 
-                                descriptor.getCharacteristic().getUuid());
+            // Only the Client Characteristic Config is writable
+            if (attribute != null && value != null && value.length == 2) {
+                table.setCccd(device, attribute, value);
+                bleHidManager.getHidMediaService().saveBondState(device);
+                BluetoothGattCharacteristic characteristic = attribute.characteristic;
+                
+                // 0x00 0x00 = notifications disabled
+                // 0x01 0x00 = notifications enabled
+                // 0x02 0x00 = indications enabled
+                if ((value[0] & 0x01) != 0) {
+                    Log.d(TAG, "Notifications ENABLED for " + characteristic.getUuid());
+                    bleHidManager.getConnectionStateMachine(device).onSubscribed();
+                    // Send an initial notification when notifications are enabled
+                    if (characteristic.getValue() != null) {
+                        boolean result = sendNotificationTo(device, attribute.index, characteristic.getValue())
+                                != NOTIFY_FAILED;
+                        Log.d(TAG, "Sent initial notification after enabling: " + result);
                     }
-                    
-                    success = true;
+                } else if ((value[0] & 0x02) != 0) {
+                    Log.d(TAG, "Indications ENABLED for " + characteristic.getUuid());
+                } else {
+                    Log.d(TAG, "Notifications/indications DISABLED for " + characteristic.getUuid());
                 }
+                
+                success = true;
             } else {
-                // Delegate to mouse service handler for other descriptors
-                success = bleHidManager.getHidMediaService()
-                        .handleDescriptorWrite(descriptor.getUuid(), 
-                                descriptor.getCharacteristic().getUuid(), 
-                                value);
+                Log.e(TAG, "Unhandled descriptor write: " + descriptor.getUuid());
             }
             
             // Send response if needed
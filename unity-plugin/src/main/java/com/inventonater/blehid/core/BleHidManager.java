@@ -5,10 +5,15 @@ import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.inventonater.blehid.unity.BleHidUnityCallback;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 
 public class BleHidManager {
     private static final String TAG = "BleHidManager";
@@ -21,16 +26,99 @@ public class BleHidManager {
     private final BlePairingManager pairingManager;
     private final BleConnectionManager connectionManager;
     private final HidMediaService hidMediaService;
+    // Connection milestones of each connected host, by address
+    private final Map<String, BleConnectionStateMachine> connectionStateMachines = new ConcurrentHashMap<>();
+    // Stands in for hosts that are not connected; never started, so it records nothing
+    private final BleConnectionStateMachine disconnectedStateMachine = new BleConnectionStateMachine();
+    private volatile BleConnectionStateMachine.Listener connectionStateListener;
     private boolean isInitialized = false;
-    private BluetoothDevice connectedDevice = null;
+    private int maxHosts = 1;
     BleHidUnityCallback callback;
 
     public boolean isConnected() {
-        return connectedDevice != null;
+        return getConnectedDevice() != null;
     }
 
+    /**
+     * Gets the primary host: the first to connect, or the one last switched to.
+     */
     public BluetoothDevice getConnectedDevice() {
-        return connectedDevice;
+        return gattServerManager != null ? gattServerManager.getConnectionSnapshot().primary : null;
+    }
+
+    /**
+     * Gets every connected host, in the order they connected.
+     */
+    public List<BluetoothDevice> getConnectedDevices() {
+        return gattServerManager.getConnectedHosts();
+    }
+
+    /**
+     * Sets how many hosts may be connected at once. Advertising continues
+     * after a connection until this many hosts are connected.
+     *
+     * @param hosts Maximum connected hosts (at least 1)
+     */
+    public void setMaxHosts(int hosts) {
+        maxHosts = Math.max(1, hosts);
+    }
+
+    public boolean setReportRoute(int reportType, String hostAddress) {
+        return hidMediaService.setReportRoute(reportType, hostAddress);
+    }
+
+    /**
+     * Makes one connected host the target of all unrouted input. The others
+     * stay connected and subscribed at the standby connection priority, so
+     * switching back is a matter of redirecting reports rather than
+     * reconnecting. Input held on the previous host is released first.
+     *
+     * @param hostAddress Address of a connected host
+     * @return true if the switch was queued, false if the host is not connected
+     */
+    public boolean switchActiveHost(String hostAddress) {
+        BleConnectionSnapshot state = gattServerManager.getConnectionSnapshot();
+        BluetoothDevice target = state.getHost(hostAddress);
+        if (target == null) {
+            Log.e(TAG, "Cannot switch to host that is not connected: " + hostAddress);
+            return false;
+        }
+
+        BluetoothDevice previous = state.primary;
+        if (target.equals(previous) && hostAddress.equals(state.activeHost)) {
+            return true;
+        }
+
+        // Raise the new host first; its standby interval is what the first report waits for
+        connectionManager.requestConnectionPriority(target, BleConnectionManager.CONNECTION_PRIORITY_HIGH);
+        if (previous != null && !previous.equals(target)) {
+            connectionManager.requestConnectionPriority(previous, connectionManager.getStandbyConnectionPriority());
+        }
+
+        // On the sender thread, after reports already queued for the previous host
+        long requestedAt = SystemClock.uptimeMillis();
+        BluetoothDevice active = target;
+        hidMediaService.post(() -> {
+            hidMediaService.cancelTyping();
+            hidMediaService.cancelMacro();
+            if (previous != null) {
+                hidMediaService.sendInitialReports();
+            }
+            if (!gattServerManager.setActiveHost(active)) {
+                Log.w(TAG, "Host disconnected before the switch: " + active.getAddress());
+                return;
+            }
+            Log.i(TAG, "Switched to host " + active.getAddress() + " in "
+                    + (SystemClock.uptimeMillis() - requestedAt) + "ms");
+        });
+        return true;
+    }
+
+    /**
+     * @return Address of the host unrouted input goes to, or null if it goes to every host
+     */
+    public String getActiveHost() {
+        return gattServerManager.getActiveHost();
     }
 
     public BlePairingManager getBlePairingManager() {
@@ -131,7 +219,11 @@ public class BleHidManager {
                 return true; // Already not bonded
             }
 
-            return pairingManager.removeBond(device);
+            boolean removed = pairingManager.removeBond(device);
+            if (removed) {
+                hidMediaService.forgetBondState(address);
+            }
+            return removed;
         } catch (Exception e) {
             Log.e(TAG, "Error removing bond: " + e.getMessage(), e);
             return false;
@@ -144,7 +236,7 @@ public class BleHidManager {
             return false;
         }
 
-        if (connectedDevice == null) {
+        if (!isConnected()) {
             Log.e(TAG, "No device connected");
             return false;
         }
@@ -155,11 +247,14 @@ public class BleHidManager {
     public void close() {
         stopAdvertising();
 
+        if (hidMediaService != null) {
+            hidMediaService.close();
+        }
+
         if (gattServerManager != null) {
             gattServerManager.close();
         }
 
-        connectedDevice = null;
         isInitialized = false;
 
         Log.i(TAG, "BLE HID Manager closed");
@@ -191,6 +286,33 @@ public class BleHidManager {
         return connectionManager;
     }
 
+    /**
+     * Gets the connection milestones of the primary host.
+     */
+    public BleConnectionStateMachine getConnectionStateMachine() {
+        BluetoothDevice primary = getConnectedDevice();
+        return primary != null ? getConnectionStateMachine(primary) : disconnectedStateMachine;
+    }
+
+    /**
+     * Gets the connection milestones of a host. A host that is not connected
+     * gets a state machine that stays DISCONNECTED.
+     */
+    public BleConnectionStateMachine getConnectionStateMachine(BluetoothDevice device) {
+        BleConnectionStateMachine machine = connectionStateMachines.get(device.getAddress());
+        return machine != null ? machine : disconnectedStateMachine;
+    }
+
+    /**
+     * Sets the listener told when any host reaches a connection milestone.
+     */
+    public void setConnectionStateListener(BleConnectionStateMachine.Listener listener) {
+        connectionStateListener = listener;
+        for (BleConnectionStateMachine machine : connectionStateMachines.values()) {
+            machine.setListener(listener);
+        }
+    }
+
     public boolean playPause() {
         if (!validateConnectionState()) {
             return false;
@@ -247,6 +369,14 @@ public class BleHidManager {
         return hidMediaService.movePointer(x, y);
     }
 
+    public boolean moveMouse(float x, float y) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.movePointer(x, y);
+    }
+
     public boolean pressMouseButton(int button) {
         if (!validateConnectionState()) {
             return false;
@@ -284,8 +414,23 @@ public class BleHidManager {
             return false;
         }
 
-        // Vertical scrolling is often implemented as mouse movement along the Y axis
-        return hidMediaService.movePointer(0, amount);
+        // Wheel usage in the report map; the pointer does not move
+        return hidMediaService.scroll(amount, 0);
+    }
+
+    /**
+     * Scrolls vertically and horizontally with sub-detent precision.
+     *
+     * @param wheel Vertical scroll in detents; positive scrolls up
+     * @param pan Horizontal scroll in detents; positive scrolls right
+     * @return true if the scroll was queued, false otherwise
+     */
+    public boolean scroll(float wheel, float pan) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.scroll(wheel, pan);
     }
 
     public boolean sendCombinedReport(int mediaButtons, int mouseButtons, int x, int y) {
@@ -312,6 +457,22 @@ public class BleHidManager {
         hidMediaService.releaseAllKeys();
     }
 
+    public boolean pressKey(byte keyCode) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.pressKey(keyCode);
+    }
+
+    public boolean releaseKey(byte keyCode) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.releaseKey(keyCode);
+    }
+
     public boolean sendKeys(byte[] keyCodes, int modifiers) {
         if (!validateConnectionState()) {
             return false;
@@ -336,26 +497,184 @@ public class BleHidManager {
         return hidMediaService.typeText(text);
     }
 
+    public void registerMacro(HidMacro macro) {
+        hidMediaService.registerMacro(macro);
+    }
+
+    public boolean unregisterMacro(String name) {
+        return hidMediaService.unregisterMacro(name);
+    }
+
+    public boolean playMacro(String name, int loops, long timeoutMs) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.playMacro(name, loops, timeoutMs);
+    }
+
+    public void cancelMacro() {
+        hidMediaService.cancelMacro();
+    }
+
+    public boolean isMacroPlaying() {
+        return hidMediaService.isMacroPlaying();
+    }
+
+    public void setMacroListener(HidMacroPlayer.Listener listener) {
+        hidMediaService.setMacroListener(listener);
+    }
+
+    public boolean setKeyboardLayout(String name) {
+        return hidMediaService.setKeyboardLayout(name);
+    }
+
+    public String getKeyboardLayout() {
+        return hidMediaService.getKeyboardLayout();
+    }
+
+    public void cancelTyping() {
+        hidMediaService.cancelTyping();
+    }
+
+    public boolean isTyping() {
+        return hidMediaService.isTyping();
+    }
+
+    public void setTypingReportsPerEvent(int reportsPerEvent) {
+        hidMediaService.setTypingReportsPerEvent(reportsPerEvent);
+    }
+
+    public void setTextListener(HidTextStreamer.Listener listener) {
+        hidMediaService.setTextListener(listener);
+    }
+
+    public void setMotionCoalescing(boolean enabled, int reportRateHz) {
+        hidMediaService.setMotionCoalescing(enabled, reportRateHz);
+    }
+
+    public void setHighResolutionPointer(boolean enabled) {
+        hidMediaService.setHighResolutionPointer(enabled);
+    }
+
+    public void setSplitReports(boolean enabled) {
+        hidMediaService.setSplitReports(enabled);
+    }
+
+    public void setNkroKeyboard(boolean enabled) {
+        hidMediaService.setNkroKeyboard(enabled);
+    }
+
+    public void setAbsolutePointer(boolean enabled) {
+        hidMediaService.setAbsolutePointer(enabled);
+    }
+
+    public boolean moveMouseTo(int x, int y) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.movePointerTo(x, y);
+    }
+
+    public boolean sendAbsolutePointer(int x, int y, int buttons) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.sendAbsolutePointer(x, y, buttons);
+    }
+
+    public void setTouchpad(boolean enabled) {
+        hidMediaService.setTouchpad(enabled);
+    }
+
+    public boolean sendTouchpadFrame(int[] contacts, int buttons) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.sendTouchpadFrame(contacts, buttons);
+    }
+
+    public void setGamepad(boolean enabled) {
+        hidMediaService.setGamepad(enabled);
+    }
+
+    public boolean setGamepadState(int buttons, int hat, int leftX, int leftY, int rightX, int rightY,
+                                   int leftTrigger, int rightTrigger) {
+        if (!validateConnectionState()) {
+            return false;
+        }
+
+        return hidMediaService.setGamepadState(buttons, hat, leftX, leftY, rightX, rightY,
+                leftTrigger, rightTrigger);
+    }
+
+    public void setNkroEnabled(boolean enabled) {
+        hidMediaService.setNkroEnabled(enabled);
+    }
+
+    public void setHoldTimeMs(int holdTimeMs) {
+        hidMediaService.setHoldTimeMs(holdTimeMs);
+    }
+
+    public void setKeepaliveIntervalMs(int intervalMs) {
+        hidMediaService.setKeepaliveIntervalMs(intervalMs);
+    }
+
+    public void setMaxNotificationsInFlight(int maxInFlight) {
+        gattServerManager.setMaxNotificationsInFlight(maxInFlight);
+    }
+
+    public void setClientConnectionEnabled(boolean enabled) {
+        gattServerManager.setClientConnectionEnabled(enabled);
+    }
+
     void onDeviceConnected(BluetoothDevice device) {
-        connectedDevice = device;
+        // The GATT server registered the host already; the first becomes the primary
+        boolean firstHost = device.equals(getConnectedDevice());
+        // Each host is timed from its own connection
+        BleConnectionStateMachine connectionStateMachine = new BleConnectionStateMachine();
+        connectionStateMachine.setListener(connectionStateListener);
+        connectionStateMachines.put(device.getAddress(), connectionStateMachine);
+        connectionStateMachine.onConnected();
         Log.i(TAG, "Device connected: " + BluetoothControl.getDeviceInfo(device));
 
-        // Stop advertising once connected
-        stopAdvertising();
+        // Input first: a bonded host with saved CCCDs is subscribed already;
+        // others get the kickstart on the sender thread
+        if (hidMediaService.restoreBondState(device)) {
+            Log.i(TAG, "Restored bonded host state, skipping kickstart");
+            connectionStateMachine.onSubscribed();
+        } else if (firstHost) {
+            hidMediaService.post(() -> kickstartHidFunctionality(device));
+        } else if (gattServerManager.getActiveHost() != null) {
+            // Standby: subscribed but idle until switched to
+            gattServerManager.setupHidNotifications(device, false);
+        } else {
+            // Zero reports would release what the other hosts hold; send the current state instead
+            hidMediaService.post(() -> gattServerManager.setupHidNotifications(device));
+        }
+
+        // Stop advertising once no more hosts can connect
+        if (gattServerManager.getConnectedHosts().size() >= maxHosts) {
+            stopAdvertising();
+        }
 
-        // Create client GATT connection to monitor connection parameters
-        if (gattServerManager.createClientConnection(device)) {
+        // Opt-in client GATT connection for connection priority, MTU requests and RSSI
+        if (gattServerManager.isClientConnectionEnabled() && gattServerManager.createClientConnection(device)) {
             Log.d(TAG, "Created client GATT connection for parameter monitoring");
         }
 
         // Notify connection manager
         connectionManager.onDeviceConnected(device);
-
-        // Kickstart HID functionality to ensure it works on reconnection
-        kickstartHidFunctionality(device);
     }
 
     private void kickstartHidFunctionality(BluetoothDevice device) {
+        if (!device.equals(getConnectedDevice())) {
+            // Disconnected before the sender thread got here
+            return;
+        }
         Log.i(TAG, "Kickstarting HID functionality for device: " + device.getAddress());
 
         // 1. Force notification setup for HID characteristics
@@ -370,15 +689,33 @@ public class BleHidManager {
 
     void onDeviceDisconnected(BluetoothDevice device) {
         Log.i(TAG, "Device disconnected: " + BluetoothControl.getDeviceInfo(device));
-        connectionManager.onDeviceDisconnected();
-        connectedDevice = null;
+        // The GATT server already handed primary and active to the longest-connected remaining host
+        BleConnectionSnapshot state = gattServerManager.getConnectionSnapshot();
+        if (state.activeHost != null) {
+            // Bring it out of standby; a no-op if it was active already
+            connectionManager.requestConnectionPriority(state.primary, BleConnectionManager.CONNECTION_PRIORITY_HIGH);
+        }
+        BleConnectionStateMachine connectionStateMachine = connectionStateMachines.remove(device.getAddress());
+        if (connectionStateMachine != null) {
+            connectionStateMachine.onDisconnected();
+        }
+        if (state.primary == null) {
+            connectionManager.onDeviceDisconnected();
+        }
+        if (hidMediaService != null) {
+            hidMediaService.onDeviceDisconnected(device);
+        }
     }
 
     public void clearConnectedDevice() {
         Log.i(TAG, "Forcing disconnection");
-        BluetoothDevice device = connectedDevice;
-        connectedDevice = null;
-        if (device != null) connectionManager.onDeviceDisconnected();
+        BluetoothDevice device = getConnectedDevice();
+        if (device != null) {
+            gattServerManager.removeHost(device);
+            BleConnectionStateMachine connectionStateMachine = connectionStateMachines.remove(device.getAddress());
+            if (connectionStateMachine != null) connectionStateMachine.onDisconnected();
+            connectionManager.onDeviceDisconnected();
+        }
     }
 
     public boolean isAdvertising() {
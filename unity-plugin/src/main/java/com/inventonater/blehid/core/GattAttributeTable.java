@@ -0,0 +1,242 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Attribute table for the HID service, built once when the service is added.
+ *
+ * Every characteristic gets a fixed index, with its CCCD and the handlers for
+ * host reads and writes resolved up front. Report characteristics share one
+ * UUID, so lookups go by characteristic instance rather than UUID, and the
+ * notification path can skip lookups entirely by keeping the index.
+ * Each host's CCCD values are kept per index, so a read of a CCCD returns
+ * what that host wrote.
+ */
+class GattAttributeTable {
+    /**
+     * Answers a host read of a characteristic.
+     */
+    interface ReadHandler {
+        /**
+         * @param device The host reading the characteristic
+         * @param offset Offset of a long read
+         * @return The value from offset on, or null if the offset is past the end
+         */
+        byte[] onRead(BluetoothDevice device, int offset);
+    }
+
+    /**
+     * Applies a host write to a characteristic.
+     */
+    interface WriteHandler {
+        /**
+         * @param device The host writing the characteristic
+         * @param value The written value
+         * @return true if the write was accepted
+         */
+        boolean onWrite(BluetoothDevice device, byte[] value);
+    }
+
+    /**
+     * One characteristic with its CCCD and request handlers.
+     */
+    static final class Attribute {
+        final int index;
+        final BluetoothGattCharacteristic characteristic;
+        final BluetoothGattDescriptor cccd;    // null if the characteristic cannot notify
+        ReadHandler readHandler;
+        WriteHandler writeHandler;
+        // Address of the only host notified, or null to notify every connected host
+        volatile String route;
+
+        Attribute(int index, BluetoothGattCharacteristic characteristic, BluetoothGattDescriptor cccd) {
+            this.index = index;
+            this.characteristic = characteristic;
+            this.cccd = cccd;
+        }
+    }
+
+    private static final byte[] CCCD_DISABLED = {0x00, 0x00};
+
+    private final Attribute[] attributes;
+    private final Map<BluetoothGattCharacteristic, Attribute> byCharacteristic = new IdentityHashMap<>();
+    private final Map<BluetoothGattDescriptor, Attribute> byCccd = new IdentityHashMap<>();
+    private final Map<UUID, Attribute> byUuid = new HashMap<>();
+
+    // Per-host CCCD low byte for each attribute index (bit 0 notify, bit 1 indicate)
+    private final Map<String, byte[]> cccdValues = new HashMap<>();
+
+    /**
+     * Builds the table for a service.
+     *
+     * @param service The service, with all characteristics and descriptors added
+     */
+    GattAttributeTable(BluetoothGattService service) {
+        List<BluetoothGattCharacteristic> characteristics = service.getCharacteristics();
+        attributes = new Attribute[characteristics.size()];
+        for (int i = 0; i < attributes.length; i++) {
+            BluetoothGattCharacteristic characteristic = characteristics.get(i);
+            BluetoothGattDescriptor cccd = characteristic.getDescriptor(HidConstants.Uuids.CLIENT_CONFIG);
+            Attribute attribute = new Attribute(i, characteristic, cccd);
+            attributes[i] = attribute;
+            byCharacteristic.put(characteristic, attribute);
+            if (cccd != null) {
+                byCccd.put(cccd, attribute);
+            }
+            // First match wins, as with BluetoothGattService.getCharacteristic
+            if (!byUuid.containsKey(characteristic.getUuid())) {
+                byUuid.put(characteristic.getUuid(), attribute);
+            }
+        }
+    }
+
+    int size() {
+        return attributes.length;
+    }
+
+    /**
+     * @return The attribute at index, or null if the index is out of range
+     */
+    Attribute get(int index) {
+        return index >= 0 && index < attributes.length ? attributes[index] : null;
+    }
+
+    /**
+     * @return The attribute for a characteristic of this service, or null
+     */
+    Attribute get(BluetoothGattCharacteristic characteristic) {
+        return byCharacteristic.get(characteristic);
+    }
+
+    /**
+     * @return The first attribute with this UUID, or null
+     */
+    Attribute find(UUID uuid) {
+        return byUuid.get(uuid);
+    }
+
+    /**
+     * @return The attribute whose CCCD this is, or null if it is another descriptor
+     */
+    Attribute getByCccd(BluetoothGattDescriptor descriptor) {
+        return byCccd.get(descriptor);
+    }
+
+    /**
+     * Gets the index of a characteristic, for callers that notify it often.
+     *
+     * @return The index, or -1 if the characteristic is not in this table
+     */
+    int indexOf(BluetoothGattCharacteristic characteristic) {
+        Attribute attribute = byCharacteristic.get(characteristic);
+        return attribute != null ? attribute.index : -1;
+    }
+
+    /**
+     * Sets the handlers for host requests on a characteristic.
+     *
+     * @param characteristic The characteristic; ignored if null or not in this table
+     * @param readHandler Handler for reads, or null to reject them
+     * @param writeHandler Handler for writes, or null to reject them
+     */
+    void setHandlers(BluetoothGattCharacteristic characteristic, ReadHandler readHandler,
+                     WriteHandler writeHandler) {
+        Attribute attribute = characteristic != null ? byCharacteristic.get(characteristic) : null;
+        if (attribute != null) {
+            attribute.readHandler = readHandler;
+            attribute.writeHandler = writeHandler;
+        }
+    }
+
+    /**
+     * Checks whether a host has notifications on for an attribute.
+     */
+    synchronized boolean isNotifying(BluetoothDevice device, Attribute attribute) {
+        byte[] values = cccdValues.get(device.getAddress());
+        return values != null && (values[attribute.index] & 0x01) != 0;
+    }
+
+    /**
+     * Gets the CCCD value a host last wrote for an attribute.
+     *
+     * @return The two-byte CCCD value, notifications off if never written
+     */
+    synchronized byte[] getCccd(BluetoothDevice device, Attribute attribute) {
+        byte[] values = cccdValues.get(device.getAddress());
+        if (values == null || values[attribute.index] == 0) {
+            return CCCD_DISABLED.clone();
+        }
+        return new byte[] {values[attribute.index], 0x00};
+    }
+
+    /**
+     * Stores a host's CCCD value for an attribute.
+     *
+     * @param value The two-byte CCCD value
+     */
+    synchronized void setCccd(BluetoothDevice device, Attribute attribute, byte[] value) {
+        byte[] values = cccdValues.get(device.getAddress());
+        if (values == null) {
+            values = new byte[attributes.length];
+            cccdValues.put(device.getAddress(), values);
+        }
+        values[attribute.index] = value[0];
+    }
+
+    /**
+     * Gets all of a host's CCCD values, for saving across connections.
+     *
+     * @return CCCD low byte per attribute index, or null if the host wrote none
+     */
+    synchronized byte[] getCccds(BluetoothDevice device) {
+        byte[] values = cccdValues.get(device.getAddress());
+        return values != null ? values.clone() : null;
+    }
+
+    /**
+     * Restores all of a host's CCCD values.
+     *
+     * @param values CCCD low byte per attribute index, as from getCccds
+     * @return true if restored, false if the values are for another table
+     */
+    synchronized boolean setCccds(BluetoothDevice device, byte[] values) {
+        if (values.length != attributes.length) {
+            return false;
+        }
+        cccdValues.put(device.getAddress(), values.clone());
+        return true;
+    }
+
+    /**
+     * Forgets a host's CCCD values.
+     */
+    synchronized void clearCccds(String address) {
+        cccdValues.remove(address);
+    }
+
+    /**
+     * Slices a value for a read at an offset.
+     *
+     * @return The value from offset on, or null if the offset is past the end
+     */
+    static byte[] readAt(byte[] value, int offset) {
+        if (value == null || offset > value.length) {
+            return null;
+        }
+        if (offset == 0) {
+            return value;
+        }
+        byte[] slice = new byte[value.length - offset];
+        System.arraycopy(value, offset, slice, 0, slice.length);
+        return slice;
+    }
+}
@@ -0,0 +1,178 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothGatt;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the operations on one client GATT connection one at a time.
+ *
+ * Android allows one outstanding client operation per connection; one
+ * started while another waits for its callback fails or is lost. Here each
+ * operation starts only once the previous one has completed from its
+ * callback, failed to start or timed out, and returns a future completed
+ * with the callback's value.
+ *
+ * All queue state is confined to the main looper: callers and GATT
+ * callbacks post to it, so the queue itself takes no locks.
+ */
+final class GattOperationQueue {
+    private static final String TAG = "GattOperationQueue";
+
+    static final int OP_DISCOVER_SERVICES = 0;
+    static final int OP_REQUEST_MTU = 1;
+    static final int OP_READ_RSSI = 2;
+    // Has no callback of its own (the host may keep its parameters), so it completes once issued
+    static final int OP_CONNECTION_PRIORITY = 3;
+
+    private static final String[] OP_NAMES = {
+            "Service discovery", "MTU request", "RSSI read", "Connection priority request"
+    };
+
+    static final long DEFAULT_TIMEOUT_MS = 5000;
+
+    /**
+     * Starts an operation on the connection.
+     */
+    interface Starter {
+        /**
+         * @return true if the operation was started
+         */
+        boolean start(BluetoothGatt gatt);
+    }
+
+    private static final class Operation {
+        final int type;
+        final long timeoutMs;
+        final Starter starter;
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Operation(int type, long timeoutMs, Starter starter) {
+            this.type = type;
+            this.timeoutMs = timeoutMs;
+            this.starter = starter;
+        }
+    }
+
+    final BluetoothGatt gatt;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Operation> pending = new ArrayDeque<>();
+    // The operation waiting for its callback, or null
+    private Operation current;
+    private boolean closed = false;
+    private final Runnable timeoutRunnable = this::onTimeout;
+
+    GattOperationQueue(BluetoothGatt gatt) {
+        this.gatt = gatt;
+    }
+
+    /**
+     * Queues an operation.
+     *
+     * @param type The operation (OP_*), matched against the completing callback
+     * @param timeoutMs How long to wait for the callback
+     * @param starter Starts the operation
+     * @return Completed with the callback's value (MTU, RSSI; 0 for the others), or
+     *         exceptionally if the operation failed, timed out or the connection closed
+     */
+    CompletableFuture<Integer> enqueue(int type, long timeoutMs, Starter starter) {
+        Operation operation = new Operation(type, timeoutMs, starter);
+        handler.post(() -> {
+            if (closed) {
+                operation.future.completeExceptionally(new CancellationException("Client connection closed"));
+                return;
+            }
+            pending.add(operation);
+            startNext();
+        });
+        return operation.future;
+    }
+
+    /**
+     * Completes the current operation from its GATT callback.
+     *
+     * @param type The operation the callback is for (OP_*)
+     * @param status The callback's status
+     * @param value The callback's value
+     */
+    void complete(int type, int status, int value) {
+        handler.post(() -> {
+            Operation operation = current;
+            if (operation == null || operation.type != type) {
+                // Its operation timed out, or the stack started it on its own
+                Log.d(TAG, OP_NAMES[type] + " callback with no operation waiting");
+                return;
+            }
+            current = null;
+            handler.removeCallbacks(timeoutRunnable);
+
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                operation.future.complete(value);
+            } else {
+                operation.future.completeExceptionally(
+                        new IllegalStateException(OP_NAMES[type] + " failed: " + status));
+            }
+            startNext();
+        });
+    }
+
+    /**
+     * Fails the current and queued operations; later ones fail at once.
+     */
+    void close() {
+        handler.post(() -> {
+            closed = true;
+            handler.removeCallbacks(timeoutRunnable);
+            CancellationException closedException = new CancellationException("Client connection closed");
+            if (current != null) {
+                current.future.completeExceptionally(closedException);
+                current = null;
+            }
+            while (!pending.isEmpty()) {
+                pending.poll().future.completeExceptionally(closedException);
+            }
+        });
+    }
+
+    private void startNext() {
+        while (current == null && !pending.isEmpty()) {
+            Operation operation = pending.poll();
+            boolean started;
+            try {
+                started = operation.starter.start(gatt);
+            } catch (SecurityException e) {
+                Log.e(TAG, OP_NAMES[operation.type] + " not permitted", e);
+                started = false;
+            }
+
+            if (!started) {
+                Log.e(TAG, OP_NAMES[operation.type] + " could not be started");
+                operation.future.completeExceptionally(
+                        new IllegalStateException(OP_NAMES[operation.type] + " could not be started"));
+            } else if (operation.type == OP_CONNECTION_PRIORITY) {
+                operation.future.complete(0);
+            } else {
+                current = operation;
+                handler.postDelayed(timeoutRunnable, operation.timeoutMs);
+            }
+        }
+    }
+
+    private void onTimeout() {
+        Operation operation = current;
+        if (operation == null) {
+            return;
+        }
+        current = null;
+        Log.w(TAG, OP_NAMES[operation.type] + " timed out after " + operation.timeoutMs + "ms");
+        operation.future.completeExceptionally(
+                new TimeoutException(OP_NAMES[operation.type] + " timed out"));
+        startNext();
+    }
+}
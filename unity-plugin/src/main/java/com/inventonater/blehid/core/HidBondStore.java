@@ -0,0 +1,124 @@
+package com.inventonater.blehid.core;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+/**
+ * Remembers, per bonded host, the CCCD values and protocol mode the host
+ * wrote. Bonded hosts expect these to survive a disconnect and do not
+ * write them again on reconnection, so restoring them lets the first input
+ * go out at once instead of after the kickstart burst.
+ *
+ * Each host is one hex string keyed by its address:
+ * {version, layout (4 bytes), protocol mode, CCCD low byte per attribute index}.
+ * A record written for another service layout is ignored.
+ */
+class HidBondStore {
+    private static final String TAG = "HidBondStore";
+    private static final String PREFS_NAME = "ble_hid_bonds";
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 6;
+
+    /**
+     * What a bonded host last wrote.
+     */
+    static final class BondState {
+        final byte protocolMode;
+        final byte[] cccds;
+
+        BondState(byte protocolMode, byte[] cccds) {
+            this.protocolMode = protocolMode;
+            this.cccds = cccds;
+        }
+    }
+
+    private final SharedPreferences preferences;
+
+    HidBondStore(Context context) {
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Loads a host's state.
+     *
+     * @param address The host's address
+     * @param layout Signature of the current attribute layout
+     * @return The stored state, or null if none was stored for this layout
+     */
+    BondState load(String address, int layout) {
+        String encoded = preferences.getString(address, null);
+        if (encoded == null) {
+            return null;
+        }
+
+        byte[] record = fromHex(encoded);
+        if (record == null || record.length < HEADER_LENGTH || record[0] != VERSION) {
+            Log.w(TAG, "Discarding unreadable bond state for " + address);
+            remove(address);
+            return null;
+        }
+        int storedLayout = ((record[1] & 0xFF) << 24) | ((record[2] & 0xFF) << 16)
+                | ((record[3] & 0xFF) << 8) | (record[4] & 0xFF);
+        if (storedLayout != layout) {
+            // Written for another report map; the attribute indexes no longer match
+            return null;
+        }
+
+        byte[] cccds = new byte[record.length - HEADER_LENGTH];
+        System.arraycopy(record, HEADER_LENGTH, cccds, 0, cccds.length);
+        return new BondState(record[5], cccds);
+    }
+
+    /**
+     * Stores a host's state, replacing what was stored before.
+     *
+     * @param address The host's address
+     * @param layout Signature of the current attribute layout
+     * @param protocolMode The host's protocol mode
+     * @param cccds CCCD low byte per attribute index
+     */
+    void save(String address, int layout, byte protocolMode, byte[] cccds) {
+        byte[] record = new byte[HEADER_LENGTH + cccds.length];
+        record[0] = VERSION;
+        record[1] = (byte) (layout >>> 24);
+        record[2] = (byte) (layout >>> 16);
+        record[3] = (byte) (layout >>> 8);
+        record[4] = (byte) layout;
+        record[5] = protocolMode;
+        System.arraycopy(cccds, 0, record, HEADER_LENGTH, cccds.length);
+        preferences.edit().putString(address, toHex(record)).apply();
+    }
+
+    /**
+     * Forgets a host, e.g. when its bond is removed.
+     */
+    void remove(String address) {
+        preferences.edit().remove(address).apply();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
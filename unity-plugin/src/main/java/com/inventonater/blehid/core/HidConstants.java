@@ -1,5 +1,6 @@
 package com.inventonater.blehid.core;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -24,6 +25,24 @@ public class HidConstants {
         return sb.toString();
     }
     
+    /**
+     * Concatenates report descriptor fragments into a single report map.
+     */
+    public static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+    
     /**
      * BLE Service and Characteristic UUIDs for HID functionality.
      */
@@ -69,6 +88,18 @@ public class HidConstants {
         public static final byte[] HID_INFORMATION = {0x11, 0x01, 0x00, 0x03};
     }
     
+    /**
+     * Report types that can be routed to one host when several are connected.
+     */
+    public static class Routing {
+        public static final int KEYBOARD = 0;           // Keyboard and NKRO keyboard reports
+        public static final int MOUSE = 1;
+        public static final int CONSUMER = 2;           // Media keys
+        public static final int ABSOLUTE_POINTER = 3;
+        public static final int TOUCHPAD = 4;
+        public static final int GAMEPAD = 5;
+    }
+    
     /**
      * Mouse-related constants.
      */
@@ -238,12 +269,14 @@ public class HidConstants {
         public static final byte KEY_BRACKET_LEFT = 0x2F;
         public static final byte KEY_BRACKET_RIGHT = 0x30;
         public static final byte KEY_BACKSLASH = 0x31;
+        public static final byte KEY_NON_US_HASH = 0x32;
         public static final byte KEY_SEMICOLON = 0x33;
         public static final byte KEY_APOSTROPHE = 0x34;
         public static final byte KEY_GRAVE = 0x35;
         public static final byte KEY_COMMA = 0x36;
         public static final byte KEY_PERIOD = 0x37;
         public static final byte KEY_SLASH = 0x38;
+        public static final byte KEY_NON_US_BACKSLASH = 0x64;
         
         // Function keys
         public static final byte KEY_F1 = 0x3A;
@@ -275,8 +308,27 @@ public class HidConstants {
      * Combined report maps and structures.
      */
     public static class Combined {
-        // Combined HID Report Map descriptor for consumer control (media player), mouse, and keyboard
-        public static final byte[] REPORT_MAP = new byte[] {
+        // 8-bit relative X/Y: 14-byte report [media, buttons, x, y, wheel, pan, modifiers, reserved, keys x6]
+        public static final int REPORT_LENGTH = 14;
+        public static final int MAX_MOTION = 127;
+        
+        // 16-bit relative X/Y: 16-byte report [media, buttons, x(2), y(2), wheel, pan, modifiers, reserved, keys x6]
+        public static final int REPORT_LENGTH_16BIT = 16;
+        public static final int MAX_MOTION_16BIT = 32767;
+        
+        // Wheel and AC Pan: -127 to 127 per report, in detents or, once the host
+        // enables it through the Resolution Multiplier feature report, in
+        // 1/RESOLUTION_MULTIPLIER detents
+        public static final int MAX_SCROLL = 127;
+        public static final int RESOLUTION_MULTIPLIER = 8;
+        
+        // Resolution Multiplier feature report: [wheel multiplier (2 bits), pan multiplier (2 bits), padding]
+        public static final int FEATURE_REPORT_LENGTH = 1;
+        public static final int FEATURE_WHEEL_MULTIPLIER = 0x03;
+        public static final int FEATURE_PAN_MULTIPLIER = 0x0C;
+        
+        // Consumer control collection (left open; the mouse collection nests inside it)
+        private static final byte[] CONSUMER_CONTROLS = new byte[] {
             // === First part: Consumer Controls ===
             // USAGE_PAGE (Consumer)
             (byte)0x05, (byte)0x0C,
@@ -312,8 +364,11 @@ public class HidConstants {
             // REPORT_COUNT (2)
             (byte)0x95, (byte)0x02,
             // INPUT (Const,Var,Abs)
-            (byte)0x81, (byte)0x01,
-            
+            (byte)0x81, (byte)0x01
+        };
+        
+        // Mouse buttons and 8-bit X/Y (collections left open; MOUSE_WHEELS closes them)
+        private static final byte[] MOUSE_POINTER_8BIT = new byte[] {
             // === Second part: Mouse Controls ===
             // USAGE_PAGE (Generic Desktop)
             (byte)0x05, (byte)0x01,
@@ -368,16 +423,168 @@ public class HidConstants {
             // REPORT_COUNT (2)
             (byte)0x95, (byte)0x02,
             // INPUT (Data,Var,Rel)
+            (byte)0x81, (byte)0x06
+        };
+        
+        // Mouse buttons and 16-bit X/Y (collections left open; MOUSE_WHEELS closes them)
+        private static final byte[] MOUSE_POINTER_16BIT = new byte[] {
+            // === Second part: Mouse Controls ===
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (Mouse)
+            (byte)0x09, (byte)0x02,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // USAGE (Pointer)
+            (byte)0x09, (byte)0x01,
+            // COLLECTION (Physical)
+            (byte)0xA1, (byte)0x00,
+            
+            // Buttons (3 buttons: left, right, middle)
+            // USAGE_PAGE (Button)
+            (byte)0x05, (byte)0x09,
+            // USAGE_MINIMUM (Button 1)
+            (byte)0x19, (byte)0x01,
+            // USAGE_MAXIMUM (Button 3)
+            (byte)0x29, (byte)0x03,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_COUNT (3)
+            (byte)0x95, (byte)0x03,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Reserved padding (5 bits)
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // REPORT_SIZE (5)
+            (byte)0x75, (byte)0x05,
+            // INPUT (Const,Array,Abs) - Padding
+            (byte)0x81, (byte)0x01,
+            
+            // X and Y movement (-32767 to 32767 range)
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (X)
+            (byte)0x09, (byte)0x30,
+            // USAGE (Y)
+            (byte)0x09, (byte)0x31,
+            // LOGICAL_MINIMUM (-32767)
+            (byte)0x16, (byte)0x01, (byte)0x80,
+            // LOGICAL_MAXIMUM (32767)
+            (byte)0x26, (byte)0xFF, (byte)0x7F,
+            // REPORT_SIZE (16)
+            (byte)0x75, (byte)0x10,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // INPUT (Data,Var,Rel)
+            (byte)0x81, (byte)0x06
+        };
+        
+        // Vertical wheel and horizontal pan, each with a Resolution Multiplier
+        // feature, then the ends of the mouse collections
+        private static final byte[] MOUSE_WHEELS = new byte[] {
+            // COLLECTION (Logical)
+            (byte)0xA1, (byte)0x02,
+            // USAGE (Resolution Multiplier)
+            (byte)0x09, (byte)0x48,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // PHYSICAL_MINIMUM (1)
+            (byte)0x35, (byte)0x01,
+            // PHYSICAL_MAXIMUM (RESOLUTION_MULTIPLIER)
+            (byte)0x45, (byte)RESOLUTION_MULTIPLIER,
+            // REPORT_SIZE (2)
+            (byte)0x75, (byte)0x02,
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // FEATURE (Data,Var,Abs)
+            (byte)0xB1, (byte)0x02,
+            
+            // USAGE (Wheel)
+            (byte)0x09, (byte)0x38,
+            // LOGICAL_MINIMUM (-127)
+            (byte)0x15, (byte)0x81,
+            // LOGICAL_MAXIMUM (127)
+            (byte)0x25, (byte)0x7F,
+            // PHYSICAL_MINIMUM (0)
+            (byte)0x35, (byte)0x00,
+            // PHYSICAL_MAXIMUM (0)
+            (byte)0x45, (byte)0x00,
+            // REPORT_SIZE (8)
+            (byte)0x75, (byte)0x08,
+            // INPUT (Data,Var,Rel)
+            (byte)0x81, (byte)0x06,
+            // END_COLLECTION (Logical)
+            (byte)0xC0,
+            
+            // COLLECTION (Logical)
+            (byte)0xA1, (byte)0x02,
+            // USAGE (Resolution Multiplier)
+            (byte)0x09, (byte)0x48,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // PHYSICAL_MINIMUM (1)
+            (byte)0x35, (byte)0x01,
+            // PHYSICAL_MAXIMUM (RESOLUTION_MULTIPLIER)
+            (byte)0x45, (byte)RESOLUTION_MULTIPLIER,
+            // REPORT_SIZE (2)
+            (byte)0x75, (byte)0x02,
+            // FEATURE (Data,Var,Abs)
+            (byte)0xB1, (byte)0x02,
+            
+            // USAGE_PAGE (Consumer)
+            (byte)0x05, (byte)0x0C,
+            // USAGE (AC Pan)
+            (byte)0x0A, (byte)0x38, (byte)0x02,
+            // LOGICAL_MINIMUM (-127)
+            (byte)0x15, (byte)0x81,
+            // LOGICAL_MAXIMUM (127)
+            (byte)0x25, (byte)0x7F,
+            // PHYSICAL_MINIMUM (0)
+            (byte)0x35, (byte)0x00,
+            // PHYSICAL_MAXIMUM (0)
+            (byte)0x45, (byte)0x00,
+            // REPORT_SIZE (8)
+            (byte)0x75, (byte)0x08,
+            // INPUT (Data,Var,Rel)
             (byte)0x81, (byte)0x06,
+            // END_COLLECTION (Logical)
+            (byte)0xC0,
+            
+            // Feature padding (4 bits)
+            // REPORT_SIZE (4)
+            (byte)0x75, (byte)0x04,
+            // FEATURE (Const,Array,Abs)
+            (byte)0xB1, (byte)0x01,
             
             // END_COLLECTION (Physical)
             (byte)0xC0,
             // END_COLLECTION (Application)
-            (byte)0xC0,
-            
+            (byte)0xC0
+        };
+        
+        // Mouse application collection with 8-bit X/Y, wheel and pan
+        private static final byte[] MOUSE_8BIT = concat(MOUSE_POINTER_8BIT, MOUSE_WHEELS);
+        
+        // Mouse application collection with 16-bit X/Y, wheel and pan
+        private static final byte[] MOUSE_16BIT = concat(MOUSE_POINTER_16BIT, MOUSE_WHEELS);
+        
+        private static final byte[] END_CONSUMER_CONTROLS = new byte[] {
             // END_COLLECTION (Consumer Control Application)
-            (byte)0xC0,
-            
+            (byte)0xC0
+        };
+        
+        // Keyboard application collection with 6-key rollover
+        private static final byte[] KEYBOARD = new byte[] {
             // === Third part: Keyboard Controls ===
             // USAGE_PAGE (Generic Desktop)
             (byte)0x05, (byte)0x01,
@@ -455,5 +662,532 @@ public class HidConstants {
             // END_COLLECTION (Keyboard Application)
             (byte)0xC0
         };
+        
+        // Combined HID Report Map descriptor for consumer control (media player), mouse, and keyboard
+        public static final byte[] REPORT_MAP = concat(
+                CONSUMER_CONTROLS, MOUSE_8BIT, END_CONSUMER_CONTROLS, KEYBOARD);
+        
+        // Same as REPORT_MAP but with 16-bit X/Y so large movements fit in a single report
+        public static final byte[] REPORT_MAP_16BIT = concat(
+                CONSUMER_CONTROLS, MOUSE_16BIT, END_CONSUMER_CONTROLS, KEYBOARD);
+    }
+    
+    /**
+     * Per-function report maps and structures.
+     * Keyboard, mouse and consumer control are separate top-level collections,
+     * each with its own Report ID and its own Report characteristic, so an
+     * update only carries the function that changed.
+     */
+    public static class Split {
+        // Report IDs, matched to characteristics by their Report Reference descriptors
+        public static final byte REPORT_ID_KEYBOARD = 0x01;
+        public static final byte REPORT_ID_MOUSE = 0x02;
+        public static final byte REPORT_ID_CONSUMER = 0x03;
+        public static final byte REPORT_ID_NKRO_KEYBOARD = 0x04;
+        public static final byte REPORT_ID_ABSOLUTE_POINTER = 0x05;
+        public static final byte REPORT_ID_TOUCHPAD = 0x06;
+        public static final byte REPORT_ID_TOUCHPAD_CAPABILITIES = 0x07;
+        public static final byte REPORT_ID_TOUCHPAD_INPUT_MODE = 0x08;
+        public static final byte REPORT_ID_TOUCHPAD_FUNCTION_SWITCH = 0x09;
+        public static final byte REPORT_ID_GAMEPAD = 0x0A;
+        
+        // Keyboard: [modifiers, reserved, keys x6]
+        public static final int KEYBOARD_REPORT_LENGTH = 8;
+        // Mouse: [buttons, x, y, wheel, pan], or [buttons, x(2), y(2), wheel, pan] with 16-bit X/Y
+        public static final int MOUSE_REPORT_LENGTH = 5;
+        public static final int MOUSE_REPORT_LENGTH_16BIT = 7;
+        // Consumer control: [media buttons]
+        public static final int CONSUMER_REPORT_LENGTH = 1;
+        // NKRO keyboard: [modifiers, key bitmap x16], one bit per usage 0x00-0x7F.
+        // Usages above it (international and language keys) go out on the 6KRO keyboard:
+        // a bitmap up to 0xA4 would make the report 22 bytes, over the 20 a default MTU carries.
+        public static final int NKRO_REPORT_LENGTH = 17;
+        public static final int NKRO_MAX_USAGE = 0x7F;
+        // Absolute pointer: [buttons, x(2), y(2)], X/Y from 0 to ABSOLUTE_MAX across the host screen
+        public static final int ABSOLUTE_POINTER_REPORT_LENGTH = 5;
+        public static final int ABSOLUTE_MAX = 32767;
+        // Touchpad: [contact x3, scan time(2), contact count, buttons]; contact: [flags, x(2), y(2)].
+        // Flags: bit 0 confidence, bit 1 tip switch, bits 2-7 contact ID.
+        // Frames with more than three contacts go out as several reports (hybrid mode).
+        public static final int TOUCHPAD_REPORT_LENGTH = 19;
+        public static final int TOUCHPAD_CONTACT_LENGTH = 5;
+        public static final int TOUCHPAD_CONTACTS_PER_REPORT = 3;
+        public static final int TOUCHPAD_MAX_CONTACTS = 5;
+        public static final int TOUCHPAD_MAX_CONTACT_ID = 63;
+        // Touch surface: 0-4000 by 0-2500, reported as 100 mm by 62.5 mm
+        public static final int TOUCHPAD_MAX_X = 4000;
+        public static final int TOUCHPAD_MAX_Y = 2500;
+        // Touchpad feature reports: capabilities [max contacts | pad type << 4],
+        // input mode [mode] and function switch [surface | button << 1], all 1 byte
+        public static final byte[] TOUCHPAD_CAPABILITIES = {(byte) TOUCHPAD_MAX_CONTACTS};
+        public static final int TOUCHPAD_INPUT_MODE_MOUSE = 0x00;
+        public static final int TOUCHPAD_INPUT_MODE_TOUCHPAD = 0x03;
+        // In mouse input mode one contact moves the pointer: surface units per mouse count
+        public static final int TOUCHPAD_MOUSE_UNITS_PER_COUNT = 2;
+        public static final int TOUCHPAD_SWITCH_SURFACE = 0x01;
+        public static final int TOUCHPAD_SWITCH_BUTTON = 0x02;
+        // Gamepad: [buttons(2), hat, lx, ly, rx, ry, left trigger, right trigger].
+        // Sticks are signed (-127 to 127, +Y down), triggers 0 to 255.
+        public static final int GAMEPAD_REPORT_LENGTH = 9;
+        public static final int GAMEPAD_MAX_STICK = 127;
+        public static final int GAMEPAD_MAX_TRIGGER = 255;
+        // Hat switch: 0 = up, clockwise in 45 degree steps to 7 = up-left; 8 = centered
+        public static final int GAMEPAD_HAT_CENTERED = 8;
+        
+        // Report Reference report types
+        public static final byte REPORT_TYPE_INPUT = 0x01;
+        public static final byte REPORT_TYPE_FEATURE = 0x03;
+        
+        // HID Report Map with separate keyboard, mouse and consumer control reports
+        public static final byte[] REPORT_MAP = concat(
+                withReportId(Combined.CONSUMER_CONTROLS, REPORT_ID_CONSUMER), Combined.END_CONSUMER_CONTROLS,
+                withReportId(Combined.MOUSE_8BIT, REPORT_ID_MOUSE),
+                withReportId(Combined.KEYBOARD, REPORT_ID_KEYBOARD));
+        
+        // Same as REPORT_MAP but with 16-bit X/Y
+        public static final byte[] REPORT_MAP_16BIT = concat(
+                withReportId(Combined.CONSUMER_CONTROLS, REPORT_ID_CONSUMER), Combined.END_CONSUMER_CONTROLS,
+                withReportId(Combined.MOUSE_16BIT, REPORT_ID_MOUSE),
+                withReportId(Combined.KEYBOARD, REPORT_ID_KEYBOARD));
+        
+        // N-key rollover keyboard collection, added next to the 6KRO keyboard
+        public static final byte[] NKRO_KEYBOARD = new byte[] {
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (Keyboard)
+            (byte)0x09, (byte)0x06,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // REPORT_ID (4)
+            (byte)0x85, REPORT_ID_NKRO_KEYBOARD,
+            
+            // Modifier keys (8 bits)
+            // USAGE_PAGE (Keyboard/Keypad)
+            (byte)0x05, (byte)0x07,
+            // USAGE_MINIMUM (Keyboard Left Control)
+            (byte)0x19, (byte)0xE0,
+            // USAGE_MAXIMUM (Keyboard Right GUI)
+            (byte)0x29, (byte)0xE7,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // REPORT_COUNT (8)
+            (byte)0x95, (byte)0x08,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Key bitmap (128 bits, one per usage)
+            // USAGE_MINIMUM (Reserved)
+            (byte)0x19, (byte)0x00,
+            // USAGE_MAXIMUM (0x7F)
+            (byte)0x29, (byte)NKRO_MAX_USAGE,
+            // REPORT_COUNT (128)
+            (byte)0x95, (byte)0x80,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // END_COLLECTION (Keyboard Application)
+            (byte)0xC0
+        };
+        
+        // Absolute pointer collection, added next to the relative mouse
+        public static final byte[] ABSOLUTE_POINTER = new byte[] {
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (Mouse)
+            (byte)0x09, (byte)0x02,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // REPORT_ID (5)
+            (byte)0x85, REPORT_ID_ABSOLUTE_POINTER,
+            // USAGE (Pointer)
+            (byte)0x09, (byte)0x01,
+            // COLLECTION (Physical)
+            (byte)0xA1, (byte)0x00,
+            
+            // Buttons (3 buttons: left, right, middle)
+            // USAGE_PAGE (Button)
+            (byte)0x05, (byte)0x09,
+            // USAGE_MINIMUM (Button 1)
+            (byte)0x19, (byte)0x01,
+            // USAGE_MAXIMUM (Button 3)
+            (byte)0x29, (byte)0x03,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_COUNT (3)
+            (byte)0x95, (byte)0x03,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Reserved padding (5 bits)
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // REPORT_SIZE (5)
+            (byte)0x75, (byte)0x05,
+            // INPUT (Const,Array,Abs) - Padding
+            (byte)0x81, (byte)0x01,
+            
+            // X and Y position (0 to 32767 across the screen)
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (X)
+            (byte)0x09, (byte)0x30,
+            // USAGE (Y)
+            (byte)0x09, (byte)0x31,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (32767)
+            (byte)0x26, (byte)0xFF, (byte)0x7F,
+            // REPORT_SIZE (16)
+            (byte)0x75, (byte)0x10,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // END_COLLECTION (Physical)
+            (byte)0xC0,
+            // END_COLLECTION (Application)
+            (byte)0xC0
+        };
+        
+        // One touchpad contact (Finger logical collection). Unit and physical
+        // range are reset first, as they carry over from the previous contact.
+        private static final byte[] TOUCHPAD_CONTACT = new byte[] {
+            // USAGE_PAGE (Digitizer)
+            (byte)0x05, (byte)0x0D,
+            // USAGE (Finger)
+            (byte)0x09, (byte)0x22,
+            // COLLECTION (Logical)
+            (byte)0xA1, (byte)0x02,
+            // UNIT_EXPONENT (0)
+            (byte)0x55, (byte)0x00,
+            // UNIT (None)
+            (byte)0x65, (byte)0x00,
+            // PHYSICAL_MAXIMUM (0)
+            (byte)0x45, (byte)0x00,
+            
+            // Confidence and tip switch (1 bit each)
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // USAGE (Confidence)
+            (byte)0x09, (byte)0x47,
+            // USAGE (Tip Switch)
+            (byte)0x09, (byte)0x42,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Contact identifier (6 bits)
+            // LOGICAL_MAXIMUM (63)
+            (byte)0x25, (byte)TOUCHPAD_MAX_CONTACT_ID,
+            // USAGE (Contact Identifier)
+            (byte)0x09, (byte)0x51,
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // REPORT_SIZE (6)
+            (byte)0x75, (byte)0x06,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // X and Y position (16 bits each, in 0.1 mm steps of a 100 x 62.5 mm surface)
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // REPORT_SIZE (16)
+            (byte)0x75, (byte)0x10,
+            // UNIT_EXPONENT (-2)
+            (byte)0x55, (byte)0x0E,
+            // UNIT (Centimeter)
+            (byte)0x65, (byte)0x11,
+            // PHYSICAL_MINIMUM (0)
+            (byte)0x35, (byte)0x00,
+            // PHYSICAL_MAXIMUM (1000)
+            (byte)0x46, (byte)0xE8, (byte)0x03,
+            // LOGICAL_MAXIMUM (4000)
+            (byte)0x26, (byte)0xA0, (byte)0x0F,
+            // USAGE (X)
+            (byte)0x09, (byte)0x30,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            // PHYSICAL_MAXIMUM (625)
+            (byte)0x46, (byte)0x71, (byte)0x02,
+            // LOGICAL_MAXIMUM (2500)
+            (byte)0x26, (byte)0xC4, (byte)0x09,
+            // USAGE (Y)
+            (byte)0x09, (byte)0x31,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // END_COLLECTION (Logical)
+            (byte)0xC0
+        };
+        
+        // Precision touchpad collection: three contacts per report, then the
+        // frame fields and the capabilities feature report
+        public static final byte[] TOUCHPAD = concat(new byte[] {
+            // USAGE_PAGE (Digitizer)
+            (byte)0x05, (byte)0x0D,
+            // USAGE (Touch Pad)
+            (byte)0x09, (byte)0x05,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // REPORT_ID (6)
+            (byte)0x85, REPORT_ID_TOUCHPAD
+        }, TOUCHPAD_CONTACT, TOUCHPAD_CONTACT, TOUCHPAD_CONTACT, new byte[] {
+            // Scan time (16 bits, in 100 us units)
+            // UNIT_EXPONENT (-4)
+            (byte)0x55, (byte)0x0C,
+            // UNIT (Seconds)
+            (byte)0x66, (byte)0x01, (byte)0x10,
+            // PHYSICAL_MAXIMUM (65535)
+            (byte)0x47, (byte)0xFF, (byte)0xFF, (byte)0x00, (byte)0x00,
+            // LOGICAL_MAXIMUM (65535)
+            (byte)0x27, (byte)0xFF, (byte)0xFF, (byte)0x00, (byte)0x00,
+            // REPORT_SIZE (16)
+            (byte)0x75, (byte)0x10,
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // USAGE_PAGE (Digitizer)
+            (byte)0x05, (byte)0x0D,
+            // USAGE (Scan Time)
+            (byte)0x09, (byte)0x56,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Contact count (8 bits)
+            // UNIT_EXPONENT (0)
+            (byte)0x55, (byte)0x00,
+            // UNIT (None)
+            (byte)0x65, (byte)0x00,
+            // PHYSICAL_MAXIMUM (0)
+            (byte)0x45, (byte)0x00,
+            // LOGICAL_MAXIMUM (127)
+            (byte)0x25, (byte)0x7F,
+            // REPORT_SIZE (8)
+            (byte)0x75, (byte)0x08,
+            // USAGE (Contact Count)
+            (byte)0x09, (byte)0x54,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Pad button (1 bit)
+            // USAGE_PAGE (Button)
+            (byte)0x05, (byte)0x09,
+            // USAGE (Button 1)
+            (byte)0x09, (byte)0x01,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Reserved padding (7 bits)
+            // REPORT_COUNT (7)
+            (byte)0x95, (byte)0x07,
+            // INPUT (Const,Var,Abs) - Padding
+            (byte)0x81, (byte)0x03,
+            
+            // Capabilities feature report: contact count maximum and pad type (4 bits each)
+            // REPORT_ID (7)
+            (byte)0x85, REPORT_ID_TOUCHPAD_CAPABILITIES,
+            // USAGE_PAGE (Digitizer)
+            (byte)0x05, (byte)0x0D,
+            // USAGE (Contact Count Maximum)
+            (byte)0x09, (byte)0x55,
+            // USAGE (Pad Type)
+            (byte)0x09, (byte)0x59,
+            // LOGICAL_MAXIMUM (15)
+            (byte)0x25, (byte)0x0F,
+            // REPORT_SIZE (4)
+            (byte)0x75, (byte)0x04,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // FEATURE (Data,Var,Abs)
+            (byte)0xB1, (byte)0x02,
+            
+            // END_COLLECTION (Application)
+            (byte)0xC0
+        });
+        
+        // Touchpad configuration collection: the host selects touchpad input
+        // mode and which of the surface and button it wants reported
+        public static final byte[] TOUCHPAD_CONFIGURATION = new byte[] {
+            // USAGE_PAGE (Digitizer)
+            (byte)0x05, (byte)0x0D,
+            // USAGE (Device Configuration)
+            (byte)0x09, (byte)0x0E,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // REPORT_ID (8)
+            (byte)0x85, REPORT_ID_TOUCHPAD_INPUT_MODE,
+            // USAGE (Finger)
+            (byte)0x09, (byte)0x22,
+            // COLLECTION (Logical)
+            (byte)0xA1, (byte)0x02,
+            // USAGE (Input Mode)
+            (byte)0x09, (byte)0x52,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (10)
+            (byte)0x25, (byte)0x0A,
+            // REPORT_SIZE (8)
+            (byte)0x75, (byte)0x08,
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // FEATURE (Data,Var,Abs)
+            (byte)0xB1, (byte)0x02,
+            // END_COLLECTION (Logical)
+            (byte)0xC0,
+            
+            // USAGE (Finger)
+            (byte)0x09, (byte)0x22,
+            // COLLECTION (Physical)
+            (byte)0xA1, (byte)0x00,
+            // REPORT_ID (9)
+            (byte)0x85, REPORT_ID_TOUCHPAD_FUNCTION_SWITCH,
+            // USAGE (Surface Switch)
+            (byte)0x09, (byte)0x57,
+            // USAGE (Button Switch)
+            (byte)0x09, (byte)0x58,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // FEATURE (Data,Var,Abs)
+            (byte)0xB1, (byte)0x02,
+            // REPORT_COUNT (6)
+            (byte)0x95, (byte)0x06,
+            // FEATURE (Const,Var,Abs) - Padding
+            (byte)0xB1, (byte)0x03,
+            // END_COLLECTION (Physical)
+            (byte)0xC0,
+            
+            // END_COLLECTION (Application)
+            (byte)0xC0
+        };
+        
+        // Gamepad collection: 16 buttons, hat switch, two sticks and two triggers
+        public static final byte[] GAMEPAD = new byte[] {
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (Game Pad)
+            (byte)0x09, (byte)0x05,
+            // COLLECTION (Application)
+            (byte)0xA1, (byte)0x01,
+            // REPORT_ID (10)
+            (byte)0x85, REPORT_ID_GAMEPAD,
+            
+            // Buttons (16 buttons)
+            // USAGE_PAGE (Button)
+            (byte)0x05, (byte)0x09,
+            // USAGE_MINIMUM (Button 1)
+            (byte)0x19, (byte)0x01,
+            // USAGE_MAXIMUM (Button 16)
+            (byte)0x29, (byte)0x10,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (1)
+            (byte)0x25, (byte)0x01,
+            // REPORT_COUNT (16)
+            (byte)0x95, (byte)0x10,
+            // REPORT_SIZE (1)
+            (byte)0x75, (byte)0x01,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Hat switch (4 bits, 8 directions, out-of-range value when centered)
+            // USAGE_PAGE (Generic Desktop)
+            (byte)0x05, (byte)0x01,
+            // USAGE (Hat switch)
+            (byte)0x09, (byte)0x39,
+            // LOGICAL_MAXIMUM (7)
+            (byte)0x25, (byte)0x07,
+            // PHYSICAL_MINIMUM (0)
+            (byte)0x35, (byte)0x00,
+            // PHYSICAL_MAXIMUM (315)
+            (byte)0x46, (byte)0x3B, (byte)0x01,
+            // UNIT (Degrees)
+            (byte)0x65, (byte)0x14,
+            // REPORT_COUNT (1)
+            (byte)0x95, (byte)0x01,
+            // REPORT_SIZE (4)
+            (byte)0x75, (byte)0x04,
+            // INPUT (Data,Var,Abs,Null)
+            (byte)0x81, (byte)0x42,
+            // UNIT (None)
+            (byte)0x65, (byte)0x00,
+            // PHYSICAL_MAXIMUM (0)
+            (byte)0x45, (byte)0x00,
+            
+            // Reserved padding (4 bits)
+            // INPUT (Const,Var,Abs) - Padding
+            (byte)0x81, (byte)0x03,
+            
+            // Sticks: left X/Y, right X/Y as Z/Rz (-127 to 127)
+            // USAGE (X)
+            (byte)0x09, (byte)0x30,
+            // USAGE (Y)
+            (byte)0x09, (byte)0x31,
+            // USAGE (Z)
+            (byte)0x09, (byte)0x32,
+            // USAGE (Rz)
+            (byte)0x09, (byte)0x35,
+            // LOGICAL_MINIMUM (-127)
+            (byte)0x15, (byte)0x81,
+            // LOGICAL_MAXIMUM (127)
+            (byte)0x25, (byte)0x7F,
+            // REPORT_SIZE (8)
+            (byte)0x75, (byte)0x08,
+            // REPORT_COUNT (4)
+            (byte)0x95, (byte)0x04,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // Triggers: left as Brake, right as Accelerator (0 to 255)
+            // USAGE_PAGE (Simulation Controls)
+            (byte)0x05, (byte)0x02,
+            // USAGE (Brake)
+            (byte)0x09, (byte)0xC5,
+            // USAGE (Accelerator)
+            (byte)0x09, (byte)0xC4,
+            // LOGICAL_MINIMUM (0)
+            (byte)0x15, (byte)0x00,
+            // LOGICAL_MAXIMUM (255)
+            (byte)0x26, (byte)0xFF, (byte)0x00,
+            // REPORT_COUNT (2)
+            (byte)0x95, (byte)0x02,
+            // INPUT (Data,Var,Abs)
+            (byte)0x81, (byte)0x02,
+            
+            // END_COLLECTION (Application)
+            (byte)0xC0
+        };
+        
+        /**
+         * Inserts a REPORT_ID item right after an application collection's
+         * opening COLLECTION item (usage page, usage, collection: 6 bytes).
+         */
+        private static byte[] withReportId(byte[] collection, byte reportId) {
+            return concat(
+                    Arrays.copyOfRange(collection, 0, 6),
+                    // REPORT_ID (reportId)
+                    new byte[] {(byte)0x85, reportId},
+                    Arrays.copyOfRange(collection, 6, collection.length));
+        }
     }
 }
@@ -0,0 +1,66 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothGattCharacteristic;
+
+import java.util.Arrays;
+
+/**
+ * One input report: the characteristic it is sent on, the buffer being
+ * built, and a copy of the last value that reached the host.
+ */
+class HidInputReport {
+    final BluetoothGattCharacteristic characteristic;
+    final byte[] data;
+
+    // Attribute table index of the characteristic, resolved on first send
+    int attributeIndex = -1;
+
+    private final byte[] lastSent;
+    private boolean lastSentValid = false;
+
+    /**
+     * Creates an input report.
+     *
+     * @param characteristic The Report (or Boot Mouse Input Report) characteristic
+     * @param length Report length in bytes, without the Report ID
+     */
+    HidInputReport(BluetoothGattCharacteristic characteristic, int length) {
+        this(characteristic, new byte[length]);
+    }
+
+    /**
+     * Creates an input report over an existing buffer.
+     *
+     * @param characteristic The Report characteristic
+     * @param data Buffer the report is built in, shared with the caller
+     */
+    HidInputReport(BluetoothGattCharacteristic characteristic, byte[] data) {
+        this.characteristic = characteristic;
+        this.data = data;
+        this.lastSent = new byte[data.length];
+    }
+
+    /**
+     * Checks whether the buffer holds exactly what the host last received.
+     *
+     * @return true if sending the buffer would tell the host nothing new
+     */
+    boolean isUnchanged() {
+        return lastSentValid && Arrays.equals(data, lastSent);
+    }
+
+    /**
+     * Records the buffer as the value the host now has.
+     */
+    void markSent() {
+        System.arraycopy(data, 0, lastSent, 0, data.length);
+        lastSentValid = true;
+    }
+
+    /**
+     * Forgets the last sent value, so the next report always goes out.
+     */
+    void invalidate() {
+        lastSentValid = false;
+    }
+}
@@ -0,0 +1,218 @@
+package com.inventonater.blehid.core;
+
+import java.util.Locale;
+
+/**
+ * Host keyboard layout: maps characters to the keystrokes that type them.
+ * Mappings are precomputed into 256-entry pages indexed by the character,
+ * so every lookup costs the same two array reads.
+ *
+ * Each entry packs the final keystroke in its low 16 bits and an optional
+ * dead-key keystroke, typed first, in its high 16 bits. A keystroke is
+ * (modifiers << 8) | usage. An entry of 0 means the character is not typeable.
+ */
+public final class HidKeyboardLayout {
+    private static final int SHIFT = HidConstants.Keyboard.MOD_LSHIFT;
+    private static final int ALTGR = HidConstants.Keyboard.MOD_RALT;
+
+    private static final String LOWER = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    public static final HidKeyboardLayout US = createUs();
+    public static final HidKeyboardLayout UK = createUk();
+    public static final HidKeyboardLayout DE = createDe();
+    public static final HidKeyboardLayout FR = createFr();
+
+    private final String name;
+    private final int[][] pages = new int[256][];
+
+    private HidKeyboardLayout(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Looks up the keystrokes for a character.
+     *
+     * @param c The character to type
+     * @return The packed entry, or 0 if the layout cannot type the character
+     */
+    public int lookup(char c) {
+        int[] page = pages[c >>> 8];
+        return page == null ? 0 : page[c & 0xFF];
+    }
+
+    /**
+     * Finds a layout by name ("US", "UK"/"GB", "DE", "FR"), ignoring case.
+     *
+     * @param name The layout name
+     * @return The layout, or null if there is no layout with that name
+     */
+    public static HidKeyboardLayout forName(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case "US":
+                return US;
+            case "UK":
+            case "GB":
+                return UK;
+            case "DE":
+                return DE;
+            case "FR":
+                return FR;
+            default:
+                return null;
+        }
+    }
+
+    // ==================== Table construction ====================
+
+    private void put(char c, int entry) {
+        int[] page = pages[c >>> 8];
+        if (page == null) {
+            page = new int[256];
+            pages[c >>> 8] = page;
+        }
+        page[c & 0xFF] = entry;
+    }
+
+    private void map(char c, int usage, int modifiers) {
+        put(c, (modifiers << 8) | usage);
+    }
+
+    /**
+     * Maps characters to consecutive usages; '\0' skips a usage.
+     */
+    private void row(String chars, int firstUsage, int modifiers) {
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c != '\0') {
+                map(c, firstUsage + i, modifiers);
+            }
+        }
+    }
+
+    /**
+     * Maps characters typed as a dead key followed by a base character.
+     * Characters that already have a direct mapping keep it.
+     */
+    private void compose(int deadUsage, int deadModifiers, String composed, String bases) {
+        int dead = (deadModifiers << 8) | deadUsage;
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            int base = lookup(bases.charAt(i));
+            if (lookup(c) == 0 && base != 0) {
+                put(c, (dead << 16) | (base & 0xFFFF));
+            }
+        }
+    }
+
+    private void mapCommon() {
+        map('\n', HidConstants.Keyboard.KEY_ENTER, 0);
+        map('\r', HidConstants.Keyboard.KEY_ENTER, 0);
+        map('\t', HidConstants.Keyboard.KEY_TAB, 0);
+        map('\b', HidConstants.Keyboard.KEY_BACKSPACE, 0);
+        map(' ', HidConstants.Keyboard.KEY_SPACE, 0);
+        row(LOWER, HidConstants.Keyboard.KEY_A, 0);
+        row(UPPER, HidConstants.Keyboard.KEY_A, SHIFT);
+    }
+
+    private static HidKeyboardLayout createUs() {
+        HidKeyboardLayout layout = new HidKeyboardLayout("US");
+        layout.mapCommon();
+        layout.row("1234567890", HidConstants.Keyboard.KEY_1, 0);
+        layout.row("!@#$%^&*()", HidConstants.Keyboard.KEY_1, SHIFT);
+        layout.row("-=[]\\\0;'`,./", HidConstants.Keyboard.KEY_MINUS, 0);
+        layout.row("_+{}|\0:\"~<>?", HidConstants.Keyboard.KEY_MINUS, SHIFT);
+        return layout;
+    }
+
+    private static HidKeyboardLayout createUk() {
+        HidKeyboardLayout layout = new HidKeyboardLayout("UK");
+        layout.mapCommon();
+        layout.row("1234567890", HidConstants.Keyboard.KEY_1, 0);
+        layout.row("!\"£$%^&*()", HidConstants.Keyboard.KEY_1, SHIFT);
+        layout.row("-=[]\0#;'`,./", HidConstants.Keyboard.KEY_MINUS, 0);
+        layout.row("_+{}\0~:@¬<>?", HidConstants.Keyboard.KEY_MINUS, SHIFT);
+        layout.map('\\', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, 0);
+        layout.map('|', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, SHIFT);
+        layout.map('€', HidConstants.Keyboard.KEY_4, ALTGR);
+        layout.map('¦', HidConstants.Keyboard.KEY_GRAVE, ALTGR);
+        layout.row("á\0\0\0é\0\0\0í\0\0\0\0\0ó\0\0\0\0\0ú", HidConstants.Keyboard.KEY_A, ALTGR);
+        layout.row("Á\0\0\0É\0\0\0Í\0\0\0\0\0Ó\0\0\0\0\0Ú", HidConstants.Keyboard.KEY_A, ALTGR | SHIFT);
+        return layout;
+    }
+
+    private static HidKeyboardLayout createDe() {
+        HidKeyboardLayout layout = new HidKeyboardLayout("DE");
+        layout.mapCommon();
+
+        // QWERTZ: Y and Z trade places
+        layout.map('z', HidConstants.Keyboard.KEY_Y, 0);
+        layout.map('y', HidConstants.Keyboard.KEY_Z, 0);
+        layout.map('Z', HidConstants.Keyboard.KEY_Y, SHIFT);
+        layout.map('Y', HidConstants.Keyboard.KEY_Z, SHIFT);
+
+        layout.row("1234567890", HidConstants.Keyboard.KEY_1, 0);
+        layout.row("!\"§$%&/()=", HidConstants.Keyboard.KEY_1, SHIFT);
+        layout.row("\0²³\0\0\0{[]}", HidConstants.Keyboard.KEY_1, ALTGR);
+        layout.row("ß\0ü+\0#öä\0,.-", HidConstants.Keyboard.KEY_MINUS, 0);
+        layout.row("?\0Ü*\0'ÖÄ°;:_", HidConstants.Keyboard.KEY_MINUS, SHIFT);
+        layout.map('\\', HidConstants.Keyboard.KEY_MINUS, ALTGR);
+        layout.map('~', HidConstants.Keyboard.KEY_BRACKET_RIGHT, ALTGR);
+        layout.map('<', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, 0);
+        layout.map('>', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, SHIFT);
+        layout.map('|', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, ALTGR);
+        layout.map('@', HidConstants.Keyboard.KEY_Q, ALTGR);
+        layout.map('€', HidConstants.Keyboard.KEY_E, ALTGR);
+        layout.map('µ', HidConstants.Keyboard.KEY_M, ALTGR);
+
+        // Dead keys: circumflex (^), acute (´) and grave (Shift+´)
+        layout.compose(HidConstants.Keyboard.KEY_GRAVE, 0, "^âêîôûÂÊÎÔÛ", " aeiouAEIOU");
+        layout.compose(HidConstants.Keyboard.KEY_EQUALS, 0, "´áéíóúýÁÉÍÓÚÝ", " aeiouyAEIOUY");
+        layout.compose(HidConstants.Keyboard.KEY_EQUALS, SHIFT, "`àèìòùÀÈÌÒÙ", " aeiouAEIOU");
+        return layout;
+    }
+
+    private static HidKeyboardLayout createFr() {
+        HidKeyboardLayout layout = new HidKeyboardLayout("FR");
+        layout.mapCommon();
+
+        // AZERTY: A/Q and Z/W trade places, M sits right of L
+        layout.map('a', HidConstants.Keyboard.KEY_Q, 0);
+        layout.map('q', HidConstants.Keyboard.KEY_A, 0);
+        layout.map('z', HidConstants.Keyboard.KEY_W, 0);
+        layout.map('w', HidConstants.Keyboard.KEY_Z, 0);
+        layout.map('m', HidConstants.Keyboard.KEY_SEMICOLON, 0);
+        layout.map('A', HidConstants.Keyboard.KEY_Q, SHIFT);
+        layout.map('Q', HidConstants.Keyboard.KEY_A, SHIFT);
+        layout.map('Z', HidConstants.Keyboard.KEY_W, SHIFT);
+        layout.map('W', HidConstants.Keyboard.KEY_Z, SHIFT);
+        layout.map('M', HidConstants.Keyboard.KEY_SEMICOLON, SHIFT);
+        layout.map(',', HidConstants.Keyboard.KEY_M, 0);
+        layout.map('?', HidConstants.Keyboard.KEY_M, SHIFT);
+
+        layout.row("&é\"'(-è_çà", HidConstants.Keyboard.KEY_1, 0);
+        layout.row("1234567890", HidConstants.Keyboard.KEY_1, SHIFT);
+        layout.row("\0\0#{[|\0\\^@", HidConstants.Keyboard.KEY_1, ALTGR);
+        layout.row(")=\0$\0*\0ù²;:!", HidConstants.Keyboard.KEY_MINUS, 0);
+        layout.row("°+\0£\0µ\0%\0./§", HidConstants.Keyboard.KEY_MINUS, SHIFT);
+        layout.row("]}\0¤", HidConstants.Keyboard.KEY_MINUS, ALTGR);
+        layout.map('<', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, 0);
+        layout.map('>', HidConstants.Keyboard.KEY_NON_US_BACKSLASH, SHIFT);
+        layout.map('€', HidConstants.Keyboard.KEY_E, ALTGR);
+
+        // Dead keys: circumflex, diaeresis (Shift+^), tilde (AltGr+2) and grave (AltGr+7)
+        layout.compose(HidConstants.Keyboard.KEY_BRACKET_LEFT, 0, "âêîôûÂÊÎÔÛ", "aeiouAEIOU");
+        layout.compose(HidConstants.Keyboard.KEY_BRACKET_LEFT, SHIFT, "¨äëïöüÿÄËÏÖÜ", " aeiouyAEIOU");
+        layout.compose(HidConstants.Keyboard.KEY_2, ALTGR, "~ãñõÃÑÕ", " anoANO");
+        layout.compose(HidConstants.Keyboard.KEY_7, ALTGR, "`àèìòùÀÈÌÒÙ", " aeiouAEIOU");
+        return layout;
+    }
+}
@@ -0,0 +1,99 @@
+package com.inventonater.blehid.core;
+
+import android.util.Log;
+
+/**
+ * A key sequence encoded once into report frames with precomputed timings,
+ * so playback does no per-step parsing or allocation.
+ */
+public class HidMacro {
+    private static final String TAG = "HidMacro";
+
+    /**
+     * Ints per frame in the definition passed to {@link #encode(String, int[])}:
+     * [delayMs, modifiers, keyCode, mediaButtons].
+     */
+    public static final int FRAME_FIELDS = 4;
+
+    // Encoded frame: [mediaButtons, modifiers, keyCode]
+    static final int FRAME_LENGTH = 3;
+
+    // Releases keys and media buttons at the end of playback
+    static final byte[] RELEASE_FRAME = new byte[FRAME_LENGTH];
+
+    private final String name;
+    final byte[] frames;
+    final long[] offsetsMs;
+    final int frameCount;
+    final long durationMs;
+
+    private HidMacro(String name, byte[] frames, long[] offsetsMs) {
+        this.name = name;
+        this.frames = frames;
+        this.offsetsMs = offsetsMs;
+        this.frameCount = offsetsMs.length;
+        this.durationMs = offsetsMs[offsetsMs.length - 1];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return Time from the start of one pass to its last frame, in milliseconds
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * Encodes a macro definition.
+     * Each frame is the full keyboard and media state to send, after waiting
+     * delayMs since the previous frame. Keys held at the end of playback are
+     * released automatically.
+     *
+     * @param name The macro name
+     * @param definition Frames of {@link #FRAME_FIELDS} ints: [delayMs, modifiers, keyCode, mediaButtons]
+     * @return The encoded macro, or null if the definition is invalid
+     */
+    public static HidMacro encode(String name, int[] definition) {
+        if (name == null || definition == null || definition.length == 0
+                || definition.length % FRAME_FIELDS != 0) {
+            Log.e(TAG, "Invalid macro definition: " + name);
+            return null;
+        }
+
+        int frameCount = definition.length / FRAME_FIELDS;
+        byte[] frames = new byte[frameCount * FRAME_LENGTH];
+        long[] offsetsMs = new long[frameCount];
+        long offset = 0;
+
+        for (int i = 0; i < frameCount; i++) {
+            int field = i * FRAME_FIELDS;
+            int delayMs = definition[field];
+            int modifiers = definition[field + 1];
+            int keyCode = definition[field + 2];
+            int mediaButtons = definition[field + 3];
+
+            if (delayMs < 0 || (modifiers & ~0xFF) != 0 || (keyCode & ~0xFF) != 0
+                    || (mediaButtons & ~0xFF) != 0) {
+                Log.e(TAG, "Invalid frame " + i + " in macro " + name);
+                return null;
+            }
+
+            offset += delayMs;
+            offsetsMs[i] = offset;
+
+            int frame = i * FRAME_LENGTH;
+            frames[frame] = (byte) mediaButtons;
+            frames[frame + 1] = (byte) modifiers;
+            frames[frame + 2] = (byte) keyCode;
+        }
+
+        return new HidMacro(name, frames, offsetsMs);
+    }
+}
@@ -0,0 +1,165 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+/**
+ * Plays encoded macros on the HID sender thread.
+ * One macro plays at a time; starting another stops the current one.
+ * Frames are scheduled against the start time, so delays do not drift
+ * across frames or loops.
+ */
+public class HidMacroPlayer {
+    private static final String TAG = "HidMacroPlayer";
+
+    /** Loop count that repeats until cancelled or the deadline passes. */
+    public static final int LOOP_FOREVER = -1;
+
+    /**
+     * Receives the outcome of each playback.
+     */
+    public interface Listener {
+        /**
+         * Called on the sender thread when playback ends.
+         *
+         * @param name The macro name
+         * @param loopsPlayed Complete passes through the macro
+         * @param completed true if every requested loop played, false if cancelled,
+         *                  past its deadline or a report failed
+         */
+        void onMacroComplete(String name, int loopsPlayed, boolean completed);
+    }
+
+    private final HidReportHandler reportHandler;
+    private final HidReportScheduler scheduler;
+    private final Runnable step = this::playFrame;
+    private final Object stepToken = new Object();
+
+    private BluetoothDevice device;
+    private HidMacro current;
+    private int frameIndex;
+    private int loopsPlayed;
+    private int loops;
+    private long loopStart;
+    private long deadline;
+    private Listener listener;
+
+    /**
+     * Creates a macro player.
+     *
+     * @param reportHandler The report handler frames are sent through
+     * @param scheduler The sender thread
+     */
+    public HidMacroPlayer(HidReportHandler reportHandler, HidReportScheduler scheduler) {
+        this.reportHandler = reportHandler;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts playing a macro, stopping any macro already playing.
+     *
+     * @param device The connected Bluetooth device
+     * @param macro The macro to play
+     * @param loops Number of passes, or {@link #LOOP_FOREVER}
+     * @param timeoutMs Stop after this long even if loops remain; 0 for no deadline
+     * @return true if playback started, false otherwise
+     */
+    public synchronized boolean play(BluetoothDevice device, HidMacro macro, int loops, long timeoutMs) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+
+        if (loops == 0 || loops < LOOP_FOREVER || timeoutMs < 0) {
+            Log.e(TAG, "Invalid playback: loops=" + loops + ", timeoutMs=" + timeoutMs);
+            return false;
+        }
+
+        if (loops != 1 && macro.durationMs == 0) {
+            Log.e(TAG, "Macro " + macro.getName() + " has no duration and cannot loop");
+            return false;
+        }
+
+        cancel();
+
+        long now = scheduler.now();
+        this.device = device;
+        this.current = macro;
+        this.loops = loops;
+        this.frameIndex = 0;
+        this.loopsPlayed = 0;
+        this.loopStart = now;
+        this.deadline = timeoutMs > 0 ? now + timeoutMs : Long.MAX_VALUE;
+
+        return scheduler.postAt(step, stepToken, loopStart + macro.offsetsMs[0]);
+    }
+
+    /**
+     * Stops the current macro and releases any keys it holds.
+     */
+    public synchronized void cancel() {
+        scheduler.cancel(stepToken);
+        if (current != null) {
+            finish(false);
+        }
+    }
+
+    public synchronized boolean isPlaying() {
+        return current != null;
+    }
+
+    /**
+     * Sends the next frame, then schedules the one after it.
+     */
+    private synchronized void playFrame() {
+        if (current == null) {
+            return;
+        }
+
+        if (scheduler.now() > deadline) {
+            Log.w(TAG, "Macro " + current.getName() + " passed its deadline");
+            finish(false);
+            return;
+        }
+
+        if (!reportHandler.sendMacroFrame(device, current.frames, frameIndex * HidMacro.FRAME_LENGTH)) {
+            Log.e(TAG, "Macro " + current.getName() + " stopped at frame " + frameIndex);
+            finish(false);
+            return;
+        }
+
+        frameIndex++;
+        if (frameIndex == current.frameCount) {
+            frameIndex = 0;
+            loopsPlayed++;
+            loopStart += current.durationMs;
+            if (loops != LOOP_FOREVER && loopsPlayed >= loops) {
+                finish(true);
+                return;
+            }
+        }
+
+        long next = loopStart + current.offsetsMs[frameIndex];
+        if (next > deadline) {
+            // The next frame would land past the deadline; stop now
+            finish(false);
+            return;
+        }
+        scheduler.postAt(step, stepToken, next);
+    }
+
+    private void finish(boolean completed) {
+        reportHandler.sendMacroFrame(device, HidMacro.RELEASE_FRAME, 0);
+
+        String name = current.getName();
+        current = null;
+        device = null;
+        if (listener != null) {
+            listener.onMacroComplete(name, loopsPlayed, completed);
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.inventonater.blehid.core;
 
+import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.util.Log;
 
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class HidMediaService {
     private static final String TAG = "HidMediaService";
@@ -38,17 +42,162 @@ public class HidMediaService {
     private final BleGattServerManager gattServerManager;
     private BluetoothGattService hidService;
     private BluetoothGattCharacteristic reportCharacteristic;
+    private BluetoothGattCharacteristic keyboardReportCharacteristic;
+    private BluetoothGattCharacteristic mouseReportCharacteristic;
+    private BluetoothGattCharacteristic consumerReportCharacteristic;
+    private BluetoothGattCharacteristic nkroKeyboardReportCharacteristic;
+    private BluetoothGattCharacteristic featureReportCharacteristic;
+    private BluetoothGattCharacteristic absolutePointerReportCharacteristic;
+    private BluetoothGattCharacteristic touchpadReportCharacteristic;
+    private BluetoothGattCharacteristic touchpadCapabilitiesCharacteristic;
+    private BluetoothGattCharacteristic touchpadInputModeCharacteristic;
+    private BluetoothGattCharacteristic touchpadFunctionSwitchCharacteristic;
+    private BluetoothGattCharacteristic gamepadReportCharacteristic;
     private BluetoothGattCharacteristic protocolModeCharacteristic;
 
-    private BluetoothDevice connectedDevice;
     private boolean isInitialized = false;
     private byte currentProtocolMode = HidConstants.Protocol.MODE_REPORT;
 
+    // CCCD values and protocol mode of bonded hosts, kept across connections
+    private final HidBondStore bondStore;
+    // Hosts that wrote state before their bond completed, by address; saved once it has
+    private final Set<String> bondStatePending = ConcurrentHashMap.newKeySet();
+
     private HidReportHandler reportHandler;
+    private HidReportScheduler reportScheduler;
+    private HidTextStreamer textStreamer;
+    private HidTextStreamer.Listener textListener;
+    private HidKeyboardLayout keyboardLayout = HidKeyboardLayout.US;
+    private HidMacroPlayer macroPlayer;
+    private HidMacroPlayer.Listener macroListener;
+    private final Map<String, HidMacro> macros = new ConcurrentHashMap<>();
+    
+    // Report map options, fixed once the service is set up
+    private boolean highResolutionPointer = false;
+    private boolean splitReports = false;
+    private boolean nkroKeyboard = false;
+    private boolean absolutePointer = false;
+    private boolean touchpad = false;
+    private boolean gamepad = false;
+    private byte[] reportMap;
 
     public HidMediaService(BleHidManager bleHidManager) {
         this.bleHidManager = bleHidManager;
         this.gattServerManager = bleHidManager.getGattServerManager();
+        this.bondStore = new HidBondStore(bleHidManager.getContext());
+    }
+
+    /**
+     * Selects the 8-bit or 16-bit relative pointer report map.
+     * Must be called before {@link #initialize()}; hosts cache the report map,
+     * so bonded hosts may need to re-pair to pick up a change.
+     *
+     * @param enabled true for 16-bit X/Y (-32767 to 32767), false for 8-bit
+     */
+    public void setHighResolutionPointer(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "Pointer resolution is fixed while the service is running, ignoring");
+            return;
+        }
+        highResolutionPointer = enabled;
+    }
+
+    public boolean isHighResolutionPointer() {
+        return highResolutionPointer;
+    }
+
+    /**
+     * Selects one combined report or separate keyboard, mouse and consumer
+     * control reports, each with its own Report ID and characteristic.
+     * Must be called before {@link #initialize()}; bonded hosts may need to
+     * re-pair to pick up a change.
+     *
+     * @param enabled true for per-function reports (HidConstants.Split), false for the combined report
+     */
+    public void setSplitReports(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "Report layout is fixed while the service is running, ignoring");
+            return;
+        }
+        splitReports = enabled;
+    }
+
+    public boolean isSplitReports() {
+        return splitReports;
+    }
+
+    /**
+     * Adds an N-key rollover keyboard report next to the 6KRO keyboard.
+     * NKRO needs Report IDs, so this implies split reports. Keys above
+     * usage 0x7F still go out on the 6KRO keyboard, up to six at a time.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param enabled true to add the NKRO bitmap keyboard
+     */
+    public void setNkroKeyboard(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "NKRO keyboard is fixed while the service is running, ignoring");
+            return;
+        }
+        nkroKeyboard = enabled;
+    }
+
+    /**
+     * Adds an absolute pointer (0-32767 on both axes) next to the relative mouse.
+     * The absolute pointer needs Report IDs, so this implies split reports.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param enabled true to add the absolute pointer
+     */
+    public void setAbsolutePointer(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "Absolute pointer is fixed while the service is running, ignoring");
+            return;
+        }
+        absolutePointer = enabled;
+    }
+
+    public boolean hasAbsolutePointer() {
+        return reportHandler != null && reportHandler.hasAbsolutePointer();
+    }
+
+    /**
+     * Adds a multi-contact precision touchpad next to the relative mouse, so
+     * the host recognizes scrolling, pinch and swipe gestures itself.
+     * The touchpad needs Report IDs, so this implies split reports.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param enabled true to add the touchpad
+     */
+    public void setTouchpad(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "Touchpad is fixed while the service is running, ignoring");
+            return;
+        }
+        touchpad = enabled;
+    }
+
+    public boolean hasTouchpad() {
+        return reportHandler != null && reportHandler.hasTouchpad();
+    }
+
+    /**
+     * Adds a gamepad with two sticks, two triggers, a hat switch and 16 buttons.
+     * The gamepad needs Report IDs, so this implies split reports.
+     * Must be called before {@link #initialize()}.
+     *
+     * @param enabled true to add the gamepad
+     */
+    public void setGamepad(boolean enabled) {
+        if (isInitialized) {
+            Log.w(TAG, "Gamepad is fixed while the service is running, ignoring");
+            return;
+        }
+        gamepad = enabled;
+    }
+
+    public boolean hasGamepad() {
+        return reportHandler != null && reportHandler.hasGamepad();
     }
 
     public boolean initialize() {
@@ -58,6 +207,12 @@ public class HidMediaService {
             return false;
         }
 
+        // The NKRO keyboard, absolute pointer, touchpad and gamepad need Report IDs
+        if (!splitReports && (nkroKeyboard || absolutePointer || touchpad || gamepad)) {
+            Log.i(TAG, "Added collections need Report IDs, using split reports");
+            splitReports = true;
+        }
+
         // Create HID service
         hidService = new BluetoothGattService(HidConstants.Uuids.HID_SERVICE, BluetoothGattService.SERVICE_TYPE_PRIMARY);
 
@@ -67,8 +222,26 @@ public class HidMediaService {
         boolean success = gattServerManager.addHidService(hidService);
 
         if (success) {
-            // Create the report handler
-            reportHandler = new HidReportHandler(gattServerManager, reportCharacteristic);
+            // Create the report handler and its sender thread
+            reportScheduler = new HidReportScheduler();
+            if (splitReports) {
+                reportHandler = new HidReportHandler(gattServerManager, keyboardReportCharacteristic,
+                        mouseReportCharacteristic, consumerReportCharacteristic, nkroKeyboardReportCharacteristic,
+                        reportScheduler, bleHidManager.getConnectionManager(), highResolutionPointer);
+                reportHandler.setAbsolutePointerCharacteristic(absolutePointerReportCharacteristic);
+                reportHandler.setTouchpadCharacteristic(touchpadReportCharacteristic);
+                reportHandler.setGamepadCharacteristic(gamepadReportCharacteristic);
+            } else {
+                reportHandler = new HidReportHandler(gattServerManager, reportCharacteristic,
+                        reportScheduler, bleHidManager.getConnectionManager(), highResolutionPointer);
+            }
+            gattServerManager.setNotificationListener(reportHandler::onNotificationCreditAvailable);
+            gattServerManager.setReportScheduler(reportScheduler);
+            registerAttributeHandlers(gattServerManager.getAttributeTable());
+            textStreamer = new HidTextStreamer(reportHandler, reportScheduler, bleHidManager.getConnectionManager());
+            textStreamer.setListener(textListener);
+            macroPlayer = new HidMacroPlayer(reportHandler, reportScheduler);
+            macroPlayer.setListener(macroListener);
             isInitialized = true;
             Log.i(TAG, "HID media service initialized with standard HID descriptor");
         } else {
@@ -91,7 +264,8 @@ public class HidMediaService {
                 HidConstants.Uuids.HID_REPORT_MAP,
                 BluetoothGattCharacteristic.PROPERTY_READ,
                 BluetoothGattCharacteristic.PERMISSION_READ_ENCRYPTED);
-        reportMapCharacteristic.setValue(HidConstants.Combined.REPORT_MAP);
+        reportMap = buildReportMap();
+        reportMapCharacteristic.setValue(reportMap);
 
         // HID Control Point characteristic
         BluetoothGattCharacteristic hidControlCharacteristic = new BluetoothGattCharacteristic(
@@ -108,18 +282,84 @@ public class HidMediaService {
                         BluetoothGattCharacteristic.PERMISSION_WRITE_ENCRYPTED);
         protocolModeCharacteristic.setValue(new byte[]{HidConstants.Protocol.MODE_REPORT});
 
-        // Report characteristic (for media control reports)
-        reportCharacteristic = setupReportCharacteristic();
-
         // Add characteristics to service
         hidService.addCharacteristic(hidInfoCharacteristic);
         hidService.addCharacteristic(reportMapCharacteristic);
         hidService.addCharacteristic(hidControlCharacteristic);
         hidService.addCharacteristic(protocolModeCharacteristic);
-        hidService.addCharacteristic(reportCharacteristic);
+
+        if (splitReports) {
+            // One Report characteristic per function, matched to the report map by Report ID
+            keyboardReportCharacteristic = setupReportCharacteristic(
+                    HidConstants.Split.REPORT_ID_KEYBOARD, HidConstants.Split.KEYBOARD_REPORT_LENGTH);
+            mouseReportCharacteristic = setupReportCharacteristic(
+                    HidConstants.Split.REPORT_ID_MOUSE, highResolutionPointer
+                            ? HidConstants.Split.MOUSE_REPORT_LENGTH_16BIT : HidConstants.Split.MOUSE_REPORT_LENGTH);
+            consumerReportCharacteristic = setupReportCharacteristic(
+                    HidConstants.Split.REPORT_ID_CONSUMER, HidConstants.Split.CONSUMER_REPORT_LENGTH);
+            hidService.addCharacteristic(keyboardReportCharacteristic);
+            hidService.addCharacteristic(mouseReportCharacteristic);
+            hidService.addCharacteristic(consumerReportCharacteristic);
+
+            // Resolution Multiplier feature report, part of the mouse collection
+            featureReportCharacteristic = setupFeatureReportCharacteristic(HidConstants.Split.REPORT_ID_MOUSE);
+            hidService.addCharacteristic(featureReportCharacteristic);
+
+            if (nkroKeyboard) {
+                nkroKeyboardReportCharacteristic = setupReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_NKRO_KEYBOARD, HidConstants.Split.NKRO_REPORT_LENGTH);
+                hidService.addCharacteristic(nkroKeyboardReportCharacteristic);
+            }
+
+            if (absolutePointer) {
+                // No initial value: any absolute report moves the host cursor
+                absolutePointerReportCharacteristic = setupReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_ABSOLUTE_POINTER, null);
+                hidService.addCharacteristic(absolutePointerReportCharacteristic);
+            }
+
+            if (touchpad) {
+                // Contacts go out as frames; there is nothing to kickstart
+                touchpadReportCharacteristic = setupReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_TOUCHPAD, null);
+                touchpadCapabilitiesCharacteristic = setupFeatureReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_TOUCHPAD_CAPABILITIES, HidConstants.Split.TOUCHPAD_CAPABILITIES);
+                touchpadInputModeCharacteristic = setupFeatureReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_TOUCHPAD_INPUT_MODE, new byte[1]);
+                touchpadFunctionSwitchCharacteristic = setupFeatureReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_TOUCHPAD_FUNCTION_SWITCH, new byte[1]);
+                hidService.addCharacteristic(touchpadReportCharacteristic);
+                hidService.addCharacteristic(touchpadCapabilitiesCharacteristic);
+                hidService.addCharacteristic(touchpadInputModeCharacteristic);
+                hidService.addCharacteristic(touchpadFunctionSwitchCharacteristic);
+            }
+
+            if (gamepad) {
+                // Initial report value: buttons released, hat and sticks centered
+                byte[] neutral = new byte[HidConstants.Split.GAMEPAD_REPORT_LENGTH];
+                neutral[2] = HidConstants.Split.GAMEPAD_HAT_CENTERED;
+                gamepadReportCharacteristic = setupReportCharacteristic(
+                        HidConstants.Split.REPORT_ID_GAMEPAD, neutral);
+                hidService.addCharacteristic(gamepadReportCharacteristic);
+            }
+        } else {
+            // Report characteristic for the combined format (media, mouse, keyboard); no report ID
+            reportCharacteristic = setupReportCharacteristic((byte) 0, highResolutionPointer
+                    ? HidConstants.Combined.REPORT_LENGTH_16BIT : HidConstants.Combined.REPORT_LENGTH);
+            hidService.addCharacteristic(reportCharacteristic);
+
+            // Resolution Multiplier feature report for the wheel and pan
+            featureReportCharacteristic = setupFeatureReportCharacteristic((byte) 0);
+            hidService.addCharacteristic(featureReportCharacteristic);
+        }
     }
 
-    private BluetoothGattCharacteristic setupReportCharacteristic() {
+    private BluetoothGattCharacteristic setupReportCharacteristic(byte reportId, int reportLength) {
+        // Initial report value: all released, no movement
+        return setupReportCharacteristic(reportId, new byte[reportLength]);
+    }
+
+    private BluetoothGattCharacteristic setupReportCharacteristic(byte reportId, byte[] initialReport) {
         BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(
                 HidConstants.Uuids.HID_REPORT,
                 BluetoothGattCharacteristic.PROPERTY_READ |
@@ -128,16 +368,17 @@ public class HidMediaService {
                 BluetoothGattCharacteristic.PERMISSION_READ_ENCRYPTED |
                         BluetoothGattCharacteristic.PERMISSION_WRITE_ENCRYPTED);
 
-        // Set initial report value for 12-byte combined format (media, mouse, keyboard)
-        byte[] initialReport = new byte[12];
-        characteristic.setValue(initialReport);
+        // Set the initial report value; without one, no kickstart report is sent for it
+        if (initialReport != null) {
+            characteristic.setValue(initialReport);
+        }
 
         // Add Report Reference descriptor to help hosts identify the report type
-        // We're not using report IDs so value is {0, Input report type}
+        // Value is {Report ID (0 = none), Input report type}
         BluetoothGattDescriptor reportRefDescriptor = new BluetoothGattDescriptor(
                 HidConstants.Uuids.REPORT_REFERENCE,
                 BluetoothGattDescriptor.PERMISSION_READ_ENCRYPTED);
-        reportRefDescriptor.setValue(new byte[]{0, 0x01});  // No report ID, Input report
+        reportRefDescriptor.setValue(new byte[]{reportId, HidConstants.Split.REPORT_TYPE_INPUT});
         characteristic.addDescriptor(reportRefDescriptor);
 
         // Add Client Characteristic Configuration Descriptor (CCCD) to enable notifications
@@ -150,121 +391,255 @@ public class HidMediaService {
         return characteristic;
     }
 
+    private BluetoothGattCharacteristic setupFeatureReportCharacteristic(byte reportId) {
+        return setupFeatureReportCharacteristic(reportId, new byte[HidConstants.Combined.FEATURE_REPORT_LENGTH]);
+    }
+
+    private BluetoothGattCharacteristic setupFeatureReportCharacteristic(byte reportId, byte[] initialReport) {
+        // Hosts read and write feature reports; they are never notified
+        BluetoothGattCharacteristic characteristic = new BluetoothGattCharacteristic(
+                HidConstants.Uuids.HID_REPORT,
+                BluetoothGattCharacteristic.PROPERTY_READ |
+                        BluetoothGattCharacteristic.PROPERTY_WRITE,
+                BluetoothGattCharacteristic.PERMISSION_READ_ENCRYPTED |
+                        BluetoothGattCharacteristic.PERMISSION_WRITE_ENCRYPTED);
+        characteristic.setValue(initialReport);
+
+        // Report Reference: {Report ID, Feature report type}
+        BluetoothGattDescriptor reportRefDescriptor = new BluetoothGattDescriptor(
+                HidConstants.Uuids.REPORT_REFERENCE,
+                BluetoothGattDescriptor.PERMISSION_READ_ENCRYPTED);
+        reportRefDescriptor.setValue(new byte[]{reportId, HidConstants.Split.REPORT_TYPE_FEATURE});
+        characteristic.addDescriptor(reportRefDescriptor);
+
+        return characteristic;
+    }
+
     public boolean sendCombinedReport(int mediaButtons, int mouseButtons, int x, int y) {
-        return reportHandler.sendCombinedReport(connectedDevice, mediaButtons, mouseButtons, x, y);
+        return reportHandler.sendCombinedReport(bleHidManager.getConnectedDevice(), mediaButtons, mouseButtons, x, y);
     }
 
     public boolean sendMediaReport(int buttons) {
-        return reportHandler.sendMediaReport(connectedDevice, buttons);
+        return reportHandler.sendMediaReport(bleHidManager.getConnectedDevice(), buttons);
     }
 
     public boolean movePointer(int x, int y) {
-        return reportHandler.movePointer(connectedDevice, x, y);
+        return reportHandler.movePointer(bleHidManager.getConnectedDevice(), x, y);
+    }
+
+    public boolean movePointer(float x, float y) {
+        return reportHandler.movePointer(bleHidManager.getConnectedDevice(), x, y);
+    }
+
+    public boolean movePointerTo(int x, int y) {
+        return reportHandler.movePointerTo(bleHidManager.getConnectedDevice(), x, y);
+    }
+
+    public boolean sendAbsolutePointer(int x, int y, int buttons) {
+        return reportHandler.sendAbsolutePointer(bleHidManager.getConnectedDevice(), x, y, buttons);
+    }
+
+    /**
+     * Sends one touchpad frame of the contacts currently on the surface.
+     *
+     * @param contacts Contacts of 3 ints: [contactId, x, y] (see HidConstants.Split.TOUCHPAD_MAX_X/Y)
+     * @param buttons Pad button state (bit 0: surface pressed)
+     * @return true if the frame was sent successfully, false otherwise
+     */
+    public boolean sendTouchpadFrame(int[] contacts, int buttons) {
+        return reportHandler.sendTouchpadFrame(bleHidManager.getConnectedDevice(), contacts, buttons);
+    }
+
+    public boolean setGamepadState(int buttons, int hat, int leftX, int leftY, int rightX, int rightY,
+                                   int leftTrigger, int rightTrigger) {
+        return reportHandler.setGamepadState(bleHidManager.getConnectedDevice(), buttons, hat, leftX, leftY, rightX, rightY,
+                leftTrigger, rightTrigger);
+    }
+
+    public boolean scroll(float wheel, float pan) {
+        return reportHandler.scroll(bleHidManager.getConnectedDevice(), wheel, pan);
     }
 
     public boolean pressButton(int button) {
-        return reportHandler.sendMouseButtons(connectedDevice, button);
+        return reportHandler.sendMouseButtons(bleHidManager.getConnectedDevice(), button);
     }
 
     public boolean releaseButtons() {
-        return reportHandler.sendMouseButtons(connectedDevice, 0);
+        return reportHandler.sendMouseButtons(bleHidManager.getConnectedDevice(), 0);
     }
 
     public boolean releaseButton(int button) {
-        return reportHandler.releaseMouseButton(connectedDevice, button);
+        return reportHandler.releaseMouseButton(bleHidManager.getConnectedDevice(), button);
     }
 
     public boolean click(int button) {
-        return reportHandler.click(connectedDevice, button);
+        return reportHandler.click(bleHidManager.getConnectedDevice(), button);
     }
 
     public boolean sendKey(byte keyCode, int modifiers) {
-        return reportHandler.sendKey(connectedDevice, keyCode, modifiers);
+        return reportHandler.sendKey(bleHidManager.getConnectedDevice(), keyCode, modifiers);
     }
 
     public boolean releaseAllKeys() {
-        return reportHandler.releaseKeys(connectedDevice);
+        return reportHandler.releaseKeys(bleHidManager.getConnectedDevice());
+    }
+
+    public boolean pressKey(byte keyCode) {
+        return reportHandler.pressKey(bleHidManager.getConnectedDevice(), keyCode);
+    }
+
+    public boolean releaseKey(byte keyCode) {
+        return reportHandler.releaseKey(bleHidManager.getConnectedDevice(), keyCode);
+    }
+
+    public void setNkroEnabled(boolean enabled) {
+        reportHandler.setNkroEnabled(bleHidManager.getConnectedDevice(), enabled);
     }
 
     public boolean sendKeys(byte[] keyCodes, int modifiers) {
-        return reportHandler.sendKeyboardReport(connectedDevice, modifiers, keyCodes);
+        return reportHandler.sendKeyboardReport(bleHidManager.getConnectedDevice(), modifiers, keyCodes);
     }
 
     public boolean typeKey(byte keyCode, int modifiers) {
-        return reportHandler.typeKey(connectedDevice, keyCode, modifiers);
+        return reportHandler.typeKey(bleHidManager.getConnectedDevice(), keyCode, modifiers);
+    }
+
+    public void setMotionCoalescing(boolean enabled, int reportRateHz) {
+        reportHandler.setMotionCoalescing(enabled, reportRateHz);
+    }
+
+    public void setHoldTimeMs(int holdTimeMs) {
+        reportHandler.setHoldTimeMs(holdTimeMs);
+    }
+
+    public void setKeepaliveIntervalMs(int intervalMs) {
+        reportHandler.setKeepaliveIntervalMs(intervalMs);
     }
 
+    public Map<String, String> getReportStatistics() {
+        return reportHandler.getReportStatistics();
+    }
+
+    /**
+     * Types text without blocking: the text is compiled to a report sequence
+     * up front and streamed on the sender thread, paced by the connection interval.
+     *
+     * @param text The text to type
+     * @return true if the text was queued, false otherwise
+     */
     public boolean typeText(String text) {
         if (text == null || text.isEmpty()) {
             return true;
         }
 
-        boolean success = true;
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            byte keyCode = 0;
-            int modifiers = 0;
-
-            // Convert ASCII character to HID key code and modifiers
-            if (c >= 'a' && c <= 'z') {
-                // Lowercase letters
-                keyCode = (byte) (HidConstants.Keyboard.KEY_A + (c - 'a'));
-            } else if (c >= 'A' && c <= 'Z') {
-                // Uppercase letters (use shift modifier)
-                keyCode = (byte) (HidConstants.Keyboard.KEY_A + (c - 'A'));
-                modifiers = KEY_MOD_LSHIFT;
-            } else if (c >= '1' && c <= '9') {
-                // Numbers 1-9
-                keyCode = (byte) (HidConstants.Keyboard.KEY_1 + (c - '1'));
-            } else if (c == '0') {
-                keyCode = HidConstants.Keyboard.KEY_0;
-            } else if (c == ' ') {
-                keyCode = HidConstants.Keyboard.KEY_SPACE;
-            } else if (c == '\n' || c == '\r') {
-                keyCode = HidConstants.Keyboard.KEY_ENTER;
-            } else if (c == '\t') {
-                keyCode = HidConstants.Keyboard.KEY_TAB;
-            } else if (c == '.') {
-                keyCode = HidConstants.Keyboard.KEY_PERIOD;
-            } else if (c == ',') {
-                keyCode = HidConstants.Keyboard.KEY_COMMA;
-            } else if (c == '-') {
-                keyCode = HidConstants.Keyboard.KEY_MINUS;
-            } else if (c == '=') {
-                keyCode = HidConstants.Keyboard.KEY_EQUALS;
-            } else if (c == ';') {
-                keyCode = HidConstants.Keyboard.KEY_SEMICOLON;
-            } else if (c == '/') {
-                keyCode = HidConstants.Keyboard.KEY_SLASH;
-            } else if (c == '\\') {
-                keyCode = HidConstants.Keyboard.KEY_BACKSLASH;
-            } else if (c == '[') {
-                keyCode = HidConstants.Keyboard.KEY_BRACKET_LEFT;
-            } else if (c == ']') {
-                keyCode = HidConstants.Keyboard.KEY_BRACKET_RIGHT;
-            } else if (c == '\'') {
-                keyCode = HidConstants.Keyboard.KEY_APOSTROPHE;
-            } else if (c == '`') {
-                keyCode = HidConstants.Keyboard.KEY_GRAVE;
-            } else {
-                // Skip unsupported characters
-                continue;
-            }
+        HidTextCompiler.CompiledText compiled = HidTextCompiler.compile(text, keyboardLayout);
+        if (compiled.getReportCount() == 0) {
+            // Nothing typeable
+            return true;
+        }
 
-            boolean result = typeKey(keyCode, modifiers);
-            if (!result) {
-                success = false;
-            }
+        return textStreamer.stream(bleHidManager.getConnectedDevice(), compiled);
+    }
 
-            // Add a small delay between characters
-            try {
-                Thread.sleep(20);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+    /**
+     * Selects the host keyboard layout used by {@link #typeText(String)}.
+     * Takes effect for text queued after the call.
+     *
+     * @param name Layout name: "US", "UK", "DE" or "FR"
+     * @return true if the layout exists, false otherwise
+     */
+    public boolean setKeyboardLayout(String name) {
+        HidKeyboardLayout layout = HidKeyboardLayout.forName(name);
+        if (layout == null) {
+            Log.e(TAG, "Unknown keyboard layout: " + name);
+            return false;
         }
 
-        return success;
+        keyboardLayout = layout;
+        Log.i(TAG, "Keyboard layout set to " + layout.getName());
+        return true;
+    }
+
+    public String getKeyboardLayout() {
+        return keyboardLayout.getName();
+    }
+
+    /**
+     * Stops text being typed and drops queued text.
+     */
+    public void cancelTyping() {
+        if (textStreamer != null) {
+            textStreamer.cancel();
+        }
+    }
+
+    public boolean isTyping() {
+        return textStreamer != null && textStreamer.isStreaming();
+    }
+
+    public void setTypingReportsPerEvent(int reportsPerEvent) {
+        textStreamer.setReportsPerEvent(reportsPerEvent);
+    }
+
+    /**
+     * Sets the listener told when each typed text completes.
+     *
+     * @param listener The listener, or null to remove it
+     */
+    public void setTextListener(HidTextStreamer.Listener listener) {
+        textListener = listener;
+        if (textStreamer != null) {
+            textStreamer.setListener(listener);
+        }
+    }
+
+    /**
+     * Registers a macro, replacing any macro with the same name.
+     * Registered macros survive service re-initialization.
+     *
+     * @param macro The encoded macro
+     */
+    public void registerMacro(HidMacro macro) {
+        macros.put(macro.getName(), macro);
+    }
+
+    public boolean unregisterMacro(String name) {
+        return macros.remove(name) != null;
+    }
+
+    /**
+     * Plays a registered macro on the sender thread.
+     *
+     * @param name The macro name
+     * @param loops Number of passes, or {@link HidMacroPlayer#LOOP_FOREVER}
+     * @param timeoutMs Stop after this long even if loops remain; 0 for no deadline
+     * @return true if playback started, false otherwise
+     */
+    public boolean playMacro(String name, int loops, long timeoutMs) {
+        HidMacro macro = macros.get(name);
+        if (macro == null) {
+            Log.e(TAG, "Unknown macro: " + name);
+            return false;
+        }
+
+        return macroPlayer.play(bleHidManager.getConnectedDevice(), macro, loops, timeoutMs);
+    }
+
+    public void cancelMacro() {
+        if (macroPlayer != null) {
+            macroPlayer.cancel();
+        }
+    }
+
+    public boolean isMacroPlaying() {
+        return macroPlayer != null && macroPlayer.isPlaying();
+    }
+
+    public void setMacroListener(HidMacroPlayer.Listener listener) {
+        macroListener = listener;
+        if (macroPlayer != null) {
+            macroPlayer.setListener(listener);
+        }
     }
 
     public boolean playPause() {
@@ -292,7 +667,7 @@ public class HidMediaService {
     }
 
     private boolean sendControlAction(int button) {
-        connectedDevice = bleHidManager.getConnectedDevice();
+        BluetoothDevice connectedDevice = bleHidManager.getConnectedDevice();
         if (connectedDevice == null) {
             Log.e(TAG, "No connected device");
             return false;
@@ -302,18 +677,98 @@ public class HidMediaService {
     }
 
     public byte[] getReportMap() {
-        return HidConstants.Combined.REPORT_MAP;
+        if (reportMap == null) {
+            reportMap = buildReportMap();
+        }
+        return reportMap;
+    }
+
+    private byte[] buildReportMap() {
+        if (splitReports) {
+            byte[] map = highResolutionPointer ? HidConstants.Split.REPORT_MAP_16BIT : HidConstants.Split.REPORT_MAP;
+            if (nkroKeyboard) {
+                map = HidConstants.concat(map, HidConstants.Split.NKRO_KEYBOARD);
+            }
+            if (absolutePointer) {
+                map = HidConstants.concat(map, HidConstants.Split.ABSOLUTE_POINTER);
+            }
+            if (touchpad) {
+                map = HidConstants.concat(map, HidConstants.Split.TOUCHPAD, HidConstants.Split.TOUCHPAD_CONFIGURATION);
+            }
+            if (gamepad) {
+                map = HidConstants.concat(map, HidConstants.Split.GAMEPAD);
+            }
+            return map;
+        }
+        return highResolutionPointer ? HidConstants.Combined.REPORT_MAP_16BIT : HidConstants.Combined.REPORT_MAP;
+    }
+
+    /**
+     * Sends one type of report only to one host, or to every connected host.
+     * The combined report carries every type, so without split reports all
+     * types share one route.
+     *
+     * @param reportType The report type (HidConstants.Routing)
+     * @param hostAddress Address of the host, or null for every host
+     * @return true if the route was set, false if the type is unknown or not in the report map
+     */
+    public boolean setReportRoute(int reportType, String hostAddress) {
+        if (!isInitialized) {
+            Log.e(TAG, "Cannot route reports: Not initialized");
+            return false;
+        }
+
+        if (!splitReports) {
+            Log.w(TAG, "The combined report carries every report type; routing all of them");
+            return gattServerManager.setRoute(reportCharacteristic, hostAddress);
+        }
+
+        switch (reportType) {
+            case HidConstants.Routing.KEYBOARD:
+                if (nkroKeyboardReportCharacteristic != null) {
+                    gattServerManager.setRoute(nkroKeyboardReportCharacteristic, hostAddress);
+                }
+                return gattServerManager.setRoute(keyboardReportCharacteristic, hostAddress);
+            case HidConstants.Routing.MOUSE:
+                return gattServerManager.setRoute(mouseReportCharacteristic, hostAddress);
+            case HidConstants.Routing.CONSUMER:
+                return gattServerManager.setRoute(consumerReportCharacteristic, hostAddress);
+            case HidConstants.Routing.ABSOLUTE_POINTER:
+                return gattServerManager.setRoute(absolutePointerReportCharacteristic, hostAddress);
+            case HidConstants.Routing.TOUCHPAD:
+                return gattServerManager.setRoute(touchpadReportCharacteristic, hostAddress);
+            case HidConstants.Routing.GAMEPAD:
+                return gattServerManager.setRoute(gamepadReportCharacteristic, hostAddress);
+            default:
+                Log.e(TAG, "Unknown report type: " + reportType);
+                return false;
+        }
+    }
+
+    /**
+     * Runs an action on the report sender thread, so that its sends and
+     * pauses do not hold up the Binder thread delivering GATT callbacks.
+     *
+     * @param action The action to run
+     */
+    void post(Runnable action) {
+        if (reportScheduler == null || !reportScheduler.post(action)) {
+            action.run();
+        }
     }
 
     public void sendInitialReports() {
         Log.i(TAG, "Sending initial HID reports to kickstart functionality");
 
-        connectedDevice = bleHidManager.getConnectedDevice();
+        BluetoothDevice connectedDevice = bleHidManager.getConnectedDevice();
         if (connectedDevice == null) {
             Log.e(TAG, "No connected device for sending initial reports");
             return;
         }
 
+        // Duplicate zero reports below are suppressed once the first one is sent
+        reportHandler.resetLastReport();
+
         try {
             // 1. Send empty media report (all buttons released)
             sendMediaReport(0);
@@ -334,103 +789,202 @@ public class HidMediaService {
         }
     }
 
-    public byte[] handleCharacteristicRead(UUID charUuid, int offset) {
-        if (charUuid.equals(HidConstants.Uuids.HID_REPORT)) {
-            return handleReportRead(offset, reportHandler.getReport());
-        } else if (charUuid.equals(HidConstants.Uuids.HID_PROTOCOL_MODE)) {
-            // Return the current protocol mode
-            return new byte[]{currentProtocolMode};
+    /**
+     * Routes host reads and writes of each characteristic to its handler.
+     * Resolved once here, so requests are dispatched without UUID comparisons.
+     */
+    private void registerAttributeHandlers(GattAttributeTable table) {
+        // Input reports: hosts may read the last report; writes are accepted and ignored
+        for (int i = 0; i < table.size(); i++) {
+            BluetoothGattCharacteristic characteristic = table.get(i).characteristic;
+            if (characteristic.getUuid().equals(HidConstants.Uuids.HID_REPORT)
+                    && (characteristic.getProperties() & BluetoothGattCharacteristic.PROPERTY_NOTIFY) != 0) {
+                table.setHandlers(characteristic,
+                        (device, offset) -> GattAttributeTable.readAt(reportHandler.getReport(characteristic), offset),
+                        (device, value) -> {
+                            Log.d(TAG, "Received write to report characteristic: " + HidConstants.bytesToHex(value));
+                            return true;
+                        });
+            }
         }
 
-        // For other characteristics use default handling
-        return null;
+        table.setHandlers(table.find(HidConstants.Uuids.HID_INFORMATION).characteristic,
+                (device, offset) -> GattAttributeTable.readAt(HidConstants.Protocol.HID_INFORMATION, offset),
+                null);
+        table.setHandlers(table.find(HidConstants.Uuids.HID_REPORT_MAP).characteristic,
+                (device, offset) -> GattAttributeTable.readAt(reportMap, offset),
+                null);
+        table.setHandlers(table.find(HidConstants.Uuids.HID_CONTROL_POINT).characteristic,
+                null,
+                (device, value) -> {
+                    // The HID Control Point only takes one-byte values (suspend / exit suspend)
+                    if (value == null || value.length != 1) {
+                        return false;
+                    }
+                    Log.d(TAG, "Control point value written: " + value[0]);
+                    return true;
+                });
+        table.setHandlers(protocolModeCharacteristic,
+                (device, offset) -> GattAttributeTable.readAt(new byte[]{currentProtocolMode}, offset),
+                (device, value) -> writeProtocolMode(device, value));
+
+        // Feature reports
+        table.setHandlers(featureReportCharacteristic,
+                (device, offset) -> GattAttributeTable.readAt(reportHandler.getFeatureReport(), offset),
+                (device, value) -> {
+                    // Host selects detent or high-resolution wheel and pan
+                    Log.d(TAG, "Resolution Multiplier set to: " + HidConstants.bytesToHex(value));
+                    return reportHandler.setFeatureReport(value);
+                });
+        table.setHandlers(touchpadCapabilitiesCharacteristic,
+                (device, offset) -> GattAttributeTable.readAt(HidConstants.Split.TOUCHPAD_CAPABILITIES, offset),
+                (device, value) -> {
+                    Log.w(TAG, "Touchpad capabilities are read-only");
+                    return false;
+                });
+        // Host switches the touchpad between mouse and touchpad input
+        table.setHandlers(touchpadInputModeCharacteristic,
+                (device, offset) -> GattAttributeTable.readAt(reportHandler.getTouchpadInputMode(), offset),
+                (device, value) -> reportHandler.setTouchpadInputMode(value));
+        // Host selects whether surface contacts and the pad button are reported
+        table.setHandlers(touchpadFunctionSwitchCharacteristic,
+                (device, offset) -> GattAttributeTable.readAt(reportHandler.getTouchpadFunctionSwitch(), offset),
+                (device, value) -> reportHandler.setTouchpadFunctionSwitch(value));
     }
 
-    private byte[] handleReportRead(int offset, byte[] report) {
-        if (offset > report.length) {
-            return null;
+    private boolean writeProtocolMode(BluetoothDevice device, byte[] value) {
+        if (value != null && value.length > 0) {
+            if (applyProtocolMode(value[0])) {
+                saveBondState(device);
+            } else {
+                Log.w(TAG, "Invalid protocol mode value: " + value[0]);
+            }
         }
+        return true;
+    }
 
-        if (offset == 0) {
-            return report;
-        } else {
-            byte[] offsetResponse = new byte[report.length - offset];
-            System.arraycopy(report, offset, offsetResponse, 0, offsetResponse.length);
-            return offsetResponse;
+    private boolean applyProtocolMode(byte mode) {
+        if (mode != HidConstants.Protocol.MODE_REPORT) {
+            return false;
         }
+        Log.d(TAG, "Protocol mode set to Report Protocol");
+        currentProtocolMode = mode;
+        protocolModeCharacteristic.setValue(new byte[]{currentProtocolMode});
+
+        // Let the report handler know about the protocol mode change
+        reportHandler.setProtocolMode(mode);
+        return true;
     }
 
-    public boolean handleCharacteristicWrite(UUID charUuid, byte[] value) {
-        if (charUuid.equals(HidConstants.Uuids.HID_REPORT)) {
-            // Handle write to report characteristic if needed
-            Log.d(TAG, "Received write to report characteristic: " + HidConstants.bytesToHex(value));
-            return true;
-        } else if (charUuid.equals(HidConstants.Uuids.HID_PROTOCOL_MODE)) {
-            // Handle write to protocol mode characteristic
-            if (value != null && value.length > 0) {
-                byte newMode = value[0];
-                if (newMode == HidConstants.Protocol.MODE_REPORT) {
-                    Log.d(TAG, "Protocol mode set to Report Protocol");
-                    currentProtocolMode = newMode;
-                    protocolModeCharacteristic.setValue(new byte[]{currentProtocolMode});
-
-                    // Let the report handler know about the protocol mode change
-                    if (reportHandler != null) {
-                        reportHandler.setProtocolMode(newMode);
-                    }
+    /**
+     * Restores the CCCD values and protocol mode a bonded host wrote on an
+     * earlier connection. Bonded hosts do not write them again, so with
+     * them restored the host needs no kickstart reports.
+     *
+     * @param device The reconnected host
+     * @return true if the host's state was restored, false if it needs the kickstart
+     */
+    @SuppressLint("MissingPermission")
+    public boolean restoreBondState(BluetoothDevice device) {
+        GattAttributeTable table = gattServerManager.getAttributeTable();
+        if (!isInitialized || table == null || device.getBondState() != BluetoothDevice.BOND_BONDED) {
+            return false;
+        }
 
-                    return true;
-                } else {
-                    Log.w(TAG, "Invalid protocol mode value: " + newMode);
-                }
-            }
-            return true;
-        } else if (charUuid.equals(HidConstants.Uuids.HID_CONTROL_POINT)) {
-            // Handle write to control point characteristic
-            if (value != null && value.length > 0) {
-                byte controlPoint = value[0];
-                Log.d(TAG, "Control point value written: " + controlPoint);
-                // Handle control point commands as needed
-            }
-            return true;
+        HidBondStore.BondState state = bondStore.load(device.getAddress(), bondLayout(table));
+        if (state == null || !hasReportNotifications(table, state.cccds) || !table.setCccds(device, state.cccds)) {
+            return false;
         }
 
-        // Unhandled characteristic
-        return false;
+        applyProtocolMode(state.protocolMode);
+        // Notifications are already on at the host; the first input goes out as is
+        reportHandler.setNotificationsEnabled(HidConstants.Uuids.HID_REPORT, true);
+        Log.i(TAG, "Restored CCCDs and protocol mode for bonded host " + device.getAddress());
+        return true;
     }
 
-    public byte[] handleDescriptorRead(UUID descriptorUuid, UUID characteristicUuid) {
-        if (descriptorUuid.equals(HidConstants.Uuids.REPORT_REFERENCE) &&
-                characteristicUuid.equals(HidConstants.Uuids.HID_REPORT)) {
-            // Report Reference descriptor for report characteristic (no report ID)
-            return new byte[]{0x00, 0x01};  // No report ID, Input report
+    /**
+     * Saves the CCCD values and protocol mode a host has written, if it is
+     * bonded. Called after each such write.
+     *
+     * @param device The host that wrote them
+     */
+    @SuppressLint("MissingPermission")
+    public void saveBondState(BluetoothDevice device) {
+        GattAttributeTable table = gattServerManager.getAttributeTable();
+        byte[] cccds = table != null ? table.getCccds(device) : null;
+        if (cccds == null) {
+            return;
         }
 
-        // Unhandled descriptor
-        return null;
+        if (device.getBondState() != BluetoothDevice.BOND_BONDED) {
+            bondStatePending.add(device.getAddress());
+            return;
+        }
+        bondStore.save(device.getAddress(), bondLayout(table), currentProtocolMode, cccds);
+        bondStatePending.remove(device.getAddress());
     }
 
-    public boolean handleDescriptorWrite(UUID descriptorUuid, UUID characteristicUuid, byte[] value) {
-        if (descriptorUuid.equals(HidConstants.Uuids.CLIENT_CONFIG)) {
-            if (value.length == 2) {
-                boolean enabled = (value[0] == 0x01 && value[1] == 0x00);
-                String state = enabled ? "enabled" : "disabled";
+    /**
+     * Forgets a host's saved state, e.g. when its bond is removed.
+     *
+     * @param address The host's address
+     */
+    public void forgetBondState(String address) {
+        bondStore.remove(address);
+        GattAttributeTable table = gattServerManager.getAttributeTable();
+        if (table != null) {
+            table.clearCccds(address);
+        }
+    }
 
-                if (characteristicUuid.equals(HidConstants.Uuids.HID_REPORT)) {
-                    Log.d(TAG, "Notifications " + state + " for media report characteristic");
-                    if (reportHandler != null) {
-                        reportHandler.setNotificationsEnabled(characteristicUuid, enabled);
-                    }
-                    return true;
-                }
+    /**
+     * Signature of the attribute layout that saved CCCD indexes refer to.
+     */
+    private int bondLayout(GattAttributeTable table) {
+        return 31 * Arrays.hashCode(reportMap) + table.size();
+    }
+
+    private static boolean hasReportNotifications(GattAttributeTable table, byte[] cccds) {
+        for (int i = 0; i < table.size() && i < cccds.length; i++) {
+            if (table.get(i).cccd != null && (cccds[i] & 0x01) != 0) {
+                return true;
             }
         }
-
-        // Unhandled descriptor
         return false;
     }
 
+    /**
+     * Forgets per-host report state when the host disconnects.
+     */
+    public void onDeviceDisconnected(BluetoothDevice device) {
+        if (device != null && bondStatePending.remove(device.getAddress())) {
+            // Bonding may complete after the host subscribed
+            saveBondState(device);
+        }
+        if (!bleHidManager.isConnected() && reportHandler != null) {
+            // The next host starts at detent resolution and in touchpad mouse mode
+            // until it writes the feature reports
+            reportHandler.resetFeatureReport();
+        }
+    }
+
     public void close() {
+        if (macroPlayer != null) {
+            macroPlayer.cancel();
+            macroPlayer = null;
+        }
+        if (textStreamer != null) {
+            textStreamer.cancel();
+            textStreamer = null;
+        }
+        if (reportScheduler != null) {
+            if (gattServerManager != null) {
+                gattServerManager.setReportScheduler(null);
+            }
+            reportScheduler.close();
+            reportScheduler = null;
+        }
         isInitialized = false;
         Log.i(TAG, "HID media service closed");
     }
@@ -4,6 +4,9 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
 import android.util.Log;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -23,23 +26,152 @@ public class HidReportHandler {
         COMBINED
     }
     
-    // Combined report: 12 bytes
+    // Combined report: 14 bytes (16 with 16-bit X/Y)
+    // Holds the current state in every mode; with split reports it is
+    // copied out into the keyboard, mouse and consumer reports before sending.
     // Byte 0: Media buttons
     // Byte 1: Mouse buttons
-    // Byte 2: X movement
-    // Byte 3: Y movement
-    // Byte 4: Keyboard modifiers (CTRL, SHIFT, ALT, etc.)
-    // Byte 5: Reserved (always 0)
-    // Bytes 6-11: Keyboard keys (up to 6 keys)
-    private final byte[] combinedReport = new byte[12];
+    // Byte 2: X movement (bytes 2-3, little-endian, with 16-bit X/Y)
+    // Byte 3: Y movement (bytes 4-5 with 16-bit X/Y)
+    // Byte 4: Vertical wheel (byte 6 with 16-bit X/Y)
+    // Byte 5: Horizontal pan (byte 7 with 16-bit X/Y)
+    // Byte 6: Keyboard modifiers (CTRL, SHIFT, ALT, etc.)
+    // Byte 7: Reserved (always 0)
+    // Bytes 8-13: Keyboard keys (up to 6 keys)
+    private final byte[] combinedReport;
+    
+    // Combined report layout, selected by the report map in use
+    private static final int MOUSE_X_INDEX = 2;
+    private final int axisBytes;
+    private final int wheelIndex;
+    private final int panIndex;
+    private final int modifiersIndex;
+    private final int keysIndex;
+    private final int maxMotion;
+    
+    // Scratch buffers reused by the report path so steady-state reports don't allocate
+    private final byte[] singleKey = new byte[1];
+    
+    // Timing used when no connection interval is known
+    private static final int DEFAULT_HOLD_TIME_MS = 50;
     
     private final BleGattServerManager gattServerManager;
-    private final BluetoothGattCharacteristic reportCharacteristic;
-    private final BluetoothGattCharacteristic bootMouseInputReportCharacteristic;
+    private final HidReportScheduler scheduler;
+    private final BleConnectionManager connectionManager;
+    
+    // Written from GATT callbacks, read by senders
+    private volatile byte currentProtocolMode = HidConstants.Protocol.MODE_REPORT;
+    private volatile boolean notificationsEnabled = false;
+    private volatile boolean bootNotificationsEnabled = false;
+    
+    // Press/release hold time; 0 means one connection interval. Set by callers, read on the sender thread
+    private volatile int holdTimeMs = 0;
+    // Time at which the last queued press/release pair is finished
+    private long tapQueueTail = 0;
+    
+    // Per-axis motion accumulators. Fractional deltas and anything beyond one
+    // report's range stay here until they can be sent, so no motion is lost.
+    private double motionResidualX = 0;
+    private double motionResidualY = 0;
+    
+    // Wheel and pan accumulators, in the units the host currently expects
+    // (detents, or 1/RESOLUTION_MULTIPLIER detents once it enables high resolution)
+    private double scrollResidualWheel = 0;
+    private double scrollResidualPan = 0;
+    
+    // Resolution Multiplier feature report, as last written by the host
+    private final byte[] featureReport = new byte[HidConstants.Combined.FEATURE_REPORT_LENGTH];
+    private int wheelMultiplier = 1;
+    private int panMultiplier = 1;
+    
+    // Motion coalescing: the pump on the sender thread flushes the
+    // accumulators at most once per pump period
+    private boolean motionCoalescing = false;
+    private int motionReportRateHz = 0;  // 0 = one report per connection interval
+    private boolean motionPumpScheduled = false;
+    private BluetoothDevice motionPumpDevice;
+    private final Runnable motionPump = this::flushPendingMotion;
+    
+    // Coalescable state held back while the stack has no notification credit;
+    // it is sent as soon as a credit returns (see onNotificationCreditAvailable)
+    private boolean motionWaitingForCredit = false;
+    private boolean gamepadWaitingForCredit = false;
+    private final Runnable creditResume = this::resumeAfterCredit;
+    
+    // Set while sending a report that only carries motion. Such a report is not
+    // queued or retried when the stack is busy; its motion goes back into the
+    // accumulators and rides along with the next report instead.
+    private boolean motionOnlyReport = false;
+    private boolean motionDeferred = false;
+    private long deferredMotionCount = 0;
+    
+    // Coalescing statistics
+    private long motionInputCount = 0;
+    private long motionReportCount = 0;
+    
+    // Input reports. Report mode uses either the combined report or the split
+    // keyboard/mouse/consumer reports; the boot mouse report is optional.
+    // A zero-motion report identical to the last one sent carries no new
+    // state for the host and is suppressed.
+    private final HidInputReport combinedInputReport;
+    private final HidInputReport keyboardInputReport;
+    private final HidInputReport mouseInputReport;
+    private final HidInputReport consumerInputReport;
+    private final HidInputReport nkroInputReport;
+    private final HidInputReport[] reportModeReports;
+    private final HidInputReport bootMouseReport;
+    private long lastReportTime = 0;
+    
+    // Optional reports for extra top-level collections (split reports only).
+    // They are not part of the zero-report kickstart: a zero absolute
+    // position would move the host cursor to the corner.
+    private HidInputReport absolutePointerReport;
+    private HidInputReport touchpadReport;
+    private HidInputReport gamepadReport;
+    
+    // Gamepad axes are latest-wins: updates between pump ticks overwrite each
+    // other and the pump sends the newest state once per connection interval
+    private boolean gamepadPumpScheduled = false;
+    private BluetoothDevice gamepadPumpDevice;
+    private final Runnable gamepadPump = this::flushGamepadState;
+    
+    // Touchpad contacts the host last saw touching, so the next frame can report their lift
+    private final int[] touchpadContactIds = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private final int[] touchpadContactX = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private final int[] touchpadContactY = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private int touchpadContactCount = 0;
+    private int touchpadButtons = 0;
     
-    private byte currentProtocolMode = HidConstants.Protocol.MODE_REPORT;
-    private boolean notificationsEnabled = false;
-    private boolean bootNotificationsEnabled = false;
+    // Contacts of the frame being built
+    private final int[] frameContactIds = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private final int[] frameContactX = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private final int[] frameContactY = new int[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    private final boolean[] frameContactTip = new boolean[HidConstants.Split.TOUCHPAD_MAX_CONTACTS];
+    
+    // Mouse input mode: the contact that moves the pointer and where it last was; -1 when none
+    private int mouseModeContactId = -1;
+    private int mouseModeX = 0;
+    private int mouseModeY = 0;
+    
+    // Touchpad input mode and function switch feature reports, as last written by the host
+    private final byte[] touchpadInputMode = new byte[1];
+    private final byte[] touchpadFunctionSwitch = new byte[] {
+            HidConstants.Split.TOUCHPAD_SWITCH_SURFACE | HidConstants.Split.TOUCHPAD_SWITCH_BUTTON};
+    
+    // N-key rollover: keys go out as a bitmap while enabled and in report protocol,
+    // otherwise through the 6KRO array in the combined or keyboard report
+    private boolean nkroEnabled = true;
+    private BluetoothDevice lastReportDevice;
+    
+    // Optional keepalive: resends the current state after this much idle time; 0 = off
+    private int keepaliveIntervalMs = 0;
+    private final Runnable keepalive = this::sendKeepalive;
+    private final Object keepaliveToken = new Object();
+    
+    // Report statistics
+    private long sentReportCount = 0;
+    private long suppressedReportCount = 0;
+    private long keepaliveReportCount = 0;
     
     /**
      * Creates a new HID Report Handler.
@@ -47,14 +179,19 @@ public class HidReportHandler {
      * @param gattServerManager The GATT server manager
      * @param reportCharacteristic The main report characteristic
      * @param bootMouseInputReportChar The boot mouse input report characteristic (optional)
+     * @param scheduler The sender thread used for timed press/release reports
+     * @param connectionManager The connection manager used to derive hold times (optional)
+     * @param wideMotion Whether the report map uses 16-bit X/Y (HidConstants.Combined.REPORT_MAP_16BIT)
      */
     public HidReportHandler(
             BleGattServerManager gattServerManager,
             BluetoothGattCharacteristic reportCharacteristic,
-            BluetoothGattCharacteristic bootMouseInputReportChar) {
-        this.gattServerManager = gattServerManager;
-        this.reportCharacteristic = reportCharacteristic;
-        this.bootMouseInputReportCharacteristic = bootMouseInputReportChar;
+            BluetoothGattCharacteristic bootMouseInputReportChar,
+            HidReportScheduler scheduler,
+            BleConnectionManager connectionManager,
+            boolean wideMotion) {
+        this(gattServerManager, reportCharacteristic, null, null, null, null,
+                bootMouseInputReportChar, scheduler, connectionManager, wideMotion);
     }
     
     /**
@@ -62,11 +199,98 @@ public class HidReportHandler {
      *
      * @param gattServerManager The GATT server manager
      * @param reportCharacteristic The report characteristic
+     * @param scheduler The sender thread used for timed press/release reports
+     * @param connectionManager The connection manager used to derive hold times (optional)
+     * @param wideMotion Whether the report map uses 16-bit X/Y (HidConstants.Combined.REPORT_MAP_16BIT)
+     */
+    public HidReportHandler(
+            BleGattServerManager gattServerManager,
+            BluetoothGattCharacteristic reportCharacteristic,
+            HidReportScheduler scheduler,
+            BleConnectionManager connectionManager,
+            boolean wideMotion) {
+        this(gattServerManager, reportCharacteristic, null, scheduler, connectionManager, wideMotion);
+    }
+    
+    /**
+     * Creates a new HID Report Handler for split reports (HidConstants.Split),
+     * with one Report characteristic per function.
+     *
+     * @param gattServerManager The GATT server manager
+     * @param keyboardReportChar The keyboard report characteristic
+     * @param mouseReportChar The mouse report characteristic
+     * @param consumerReportChar The consumer control report characteristic
+     * @param nkroKeyboardReportChar The NKRO keyboard report characteristic (optional)
+     * @param scheduler The sender thread used for timed press/release reports
+     * @param connectionManager The connection manager used to derive hold times (optional)
+     * @param wideMotion Whether the report map uses 16-bit X/Y (HidConstants.Split.REPORT_MAP_16BIT)
      */
     public HidReportHandler(
             BleGattServerManager gattServerManager,
-            BluetoothGattCharacteristic reportCharacteristic) {
-        this(gattServerManager, reportCharacteristic, null);
+            BluetoothGattCharacteristic keyboardReportChar,
+            BluetoothGattCharacteristic mouseReportChar,
+            BluetoothGattCharacteristic consumerReportChar,
+            BluetoothGattCharacteristic nkroKeyboardReportChar,
+            HidReportScheduler scheduler,
+            BleConnectionManager connectionManager,
+            boolean wideMotion) {
+        this(gattServerManager, null, keyboardReportChar, mouseReportChar, consumerReportChar,
+                nkroKeyboardReportChar, null, scheduler, connectionManager, wideMotion);
+    }
+    
+    private HidReportHandler(
+            BleGattServerManager gattServerManager,
+            BluetoothGattCharacteristic combinedReportChar,
+            BluetoothGattCharacteristic keyboardReportChar,
+            BluetoothGattCharacteristic mouseReportChar,
+            BluetoothGattCharacteristic consumerReportChar,
+            BluetoothGattCharacteristic nkroKeyboardReportChar,
+            BluetoothGattCharacteristic bootMouseInputReportChar,
+            HidReportScheduler scheduler,
+            BleConnectionManager connectionManager,
+            boolean wideMotion) {
+        this.gattServerManager = gattServerManager;
+        this.scheduler = scheduler;
+        this.connectionManager = connectionManager;
+        
+        this.axisBytes = wideMotion ? 2 : 1;
+        this.wheelIndex = MOUSE_X_INDEX + 2 * axisBytes;
+        this.panIndex = wheelIndex + 1;
+        this.modifiersIndex = panIndex + 1;
+        this.keysIndex = modifiersIndex + 2;
+        this.maxMotion = wideMotion ? HidConstants.Combined.MAX_MOTION_16BIT : HidConstants.Combined.MAX_MOTION;
+        this.combinedReport = new byte[wideMotion
+                ? HidConstants.Combined.REPORT_LENGTH_16BIT : HidConstants.Combined.REPORT_LENGTH];
+        
+        if (combinedReportChar != null) {
+            this.combinedInputReport = new HidInputReport(combinedReportChar, combinedReport);
+            this.keyboardInputReport = null;
+            this.mouseInputReport = null;
+            this.consumerInputReport = null;
+            this.nkroInputReport = null;
+            this.reportModeReports = new HidInputReport[] {combinedInputReport};
+        } else {
+            this.combinedInputReport = null;
+            this.keyboardInputReport = new HidInputReport(keyboardReportChar,
+                    HidConstants.Split.KEYBOARD_REPORT_LENGTH);
+            this.mouseInputReport = new HidInputReport(mouseReportChar, wideMotion
+                    ? HidConstants.Split.MOUSE_REPORT_LENGTH_16BIT : HidConstants.Split.MOUSE_REPORT_LENGTH);
+            this.consumerInputReport = new HidInputReport(consumerReportChar,
+                    HidConstants.Split.CONSUMER_REPORT_LENGTH);
+            if (nkroKeyboardReportChar != null) {
+                this.nkroInputReport = new HidInputReport(nkroKeyboardReportChar,
+                        HidConstants.Split.NKRO_REPORT_LENGTH);
+                this.reportModeReports = new HidInputReport[] {
+                        keyboardInputReport, mouseInputReport, consumerInputReport, nkroInputReport};
+            } else {
+                this.nkroInputReport = null;
+                this.reportModeReports = new HidInputReport[] {
+                        keyboardInputReport, mouseInputReport, consumerInputReport};
+            }
+        }
+        
+        this.bootMouseReport = bootMouseInputReportChar != null
+                ? new HidInputReport(bootMouseInputReportChar, 3) : null;
     }
     
     // ==================== Media Control Methods ====================
@@ -78,56 +302,166 @@ public class HidReportHandler {
      * @param buttons Media button state bitmap (see HidConstants.Media)
      * @return true if the report was sent successfully, false otherwise
      */
-    public boolean sendMediaReport(BluetoothDevice device, int buttons) {
+    public synchronized boolean sendMediaReport(BluetoothDevice device, int buttons) {
         // Keep existing mouse and keyboard values
-        return sendFullReport(device, buttons, combinedReport[1], 0, 0, 
-                            combinedReport[4], extractKeyboardKeys());
+        return sendReport(device, buttons, combinedReport[1], 0, 0);
     }
     
     /**
-     * Sends a button press and release for a media control action.
+     * Queues a button press and release for a media control action.
+     * Returns immediately; the release is sent after the hold time.
      * 
      * @param device The connected Bluetooth device
      * @param button The button to press and release (see HidConstants.Media)
-     * @return true if both press and release were successful, false otherwise
+     * @return true if the press and release were queued, false otherwise
      */
     public boolean sendMediaControlAction(BluetoothDevice device, int button) {
-        boolean pressResult = sendMediaReport(device, button);
+        return scheduleTap(device,
+                () -> sendMediaReport(device, button),
+                () -> sendMediaReport(device, 0));
+    }
+    
+    // ==================== Mouse Control Methods ====================
+    
+    /**
+     * Sends a mouse movement report.
+     * Movement beyond one report's range is carried into subsequent reports.
+     * 
+     * @param device The connected Bluetooth device
+     * @param x X movement
+     * @param y Y movement
+     * @return true if the movement was sent or queued, false otherwise
+     */
+    public synchronized boolean movePointer(BluetoothDevice device, int x, int y) {
+        return movePointer(device, (float) x, (float) y);
+    }
+    
+    /**
+     * Sends mouse movement with sub-unit precision.
+     * Deltas are added to per-axis accumulators; only whole units are sent and
+     * the remainder is carried forward, so the total displacement delivered to
+     * the host matches the input exactly.
+     * 
+     * @param device The connected Bluetooth device
+     * @param dx X movement
+     * @param dy Y movement
+     * @return true if the movement was sent or queued, false otherwise
+     */
+    public synchronized boolean movePointer(BluetoothDevice device, float dx, float dy) {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "movePointer - x: " + dx + ", y: " + dy);
+        }
+        motionInputCount++;
         
-        try {
-            Thread.sleep(100); // Delay between press and release
-        } catch (InterruptedException e) {
-            // Ignore
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
         }
         
-        boolean releaseResult = sendMediaReport(device, 0);
-        return pressResult && releaseResult;
+        motionResidualX += dx;
+        motionResidualY += dy;
+        motionPumpDevice = device;
+        
+        if (motionCoalescing) {
+            return startMotionPump();
+        }
+        
+        // Sub-unit motion is carried until it adds up to a whole unit
+        if (!hasPendingMotion()) {
+            return true;
+        }
+        
+        if (!hasNotificationCredit(motionReport())) {
+            // The stack is backed up: keep accumulating and let the pump send the sum
+            return startMotionPump();
+        }
+        
+        int x = takePendingMotion(true);
+        int y = takePendingMotion(false);
+        boolean result = sendPointerReport(device, x, y);
+        
+        // Drain anything beyond one report's range on the sender thread
+        if (hasPendingMotion()) {
+            startMotionPump();
+        }
+        return result;
     }
     
-    // ==================== Mouse Control Methods ====================
+    /**
+     * Scrolls the wheel and pans horizontally, with sub-detent precision.
+     * Deltas are added to fractional accumulators and drained by the motion
+     * pump, at most one report per pump period, in the finest units the host
+     * has enabled through the Resolution Multiplier feature report.
+     * 
+     * @param device The connected Bluetooth device
+     * @param wheel Vertical scroll in detents; positive scrolls up (away from the user)
+     * @param pan Horizontal scroll in detents; positive scrolls right
+     * @return true if the scroll was queued, false otherwise
+     */
+    public synchronized boolean scroll(BluetoothDevice device, float wheel, float pan) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        scrollResidualWheel += wheel * wheelMultiplier;
+        scrollResidualPan += pan * panMultiplier;
+        motionPumpDevice = device;
+        
+        if (!hasPendingMotion()) {
+            return true;
+        }
+        return startMotionPump();
+    }
     
     /**
-     * Sends a mouse movement report.
+     * Sends a mouse movement report immediately.
+     * Pending wheel and pan movement rides along.
      * 
      * @param device The connected Bluetooth device
-     * @param x X movement (-127 to 127)
-     * @param y Y movement (-127 to 127)
+     * @param x X movement (within the report's motion range)
+     * @param y Y movement (within the report's motion range)
      * @return true if the report was sent successfully, false otherwise
      */
-    public boolean movePointer(BluetoothDevice device, int x, int y) {
-        Log.d(TAG, "movePointer - x: " + x + ", y: " + y);
+    private synchronized boolean sendPointerReport(BluetoothDevice device, int x, int y) {
+        motionReportCount++;
+        motionOnlyReport = true;
+        motionDeferred = false;
+        
+        boolean result;
+        int wheel = 0;
+        int pan = 0;
         
         // In boot protocol mode, use simpler report if available
-        if (currentProtocolMode == HidConstants.Protocol.MODE_BOOT && 
-                bootMouseInputReportCharacteristic != null) {
-            return sendBootMouseReport(device, combinedReport[1], x, y);
+        if (isBootMouseActive()) {
+            // Boot mouse reports have no wheel; drop pending scroll
+            scrollResidualWheel = 0;
+            scrollResidualPan = 0;
+            result = sendBootMouseReport(device, combinedReport[1], x, y);
+        } else {
+            // Otherwise use the combined report, keeping existing media, mouse button, and keyboard values
+            wheel = takePendingScroll(true);
+            pan = takePendingScroll(false);
+            result = sendReport(device, combinedReport[0], combinedReport[1], x, y, wheel, pan);
         }
+        motionOnlyReport = false;
         
-        // Otherwise use the combined report, keeping existing media, mouse button, and keyboard values
-        boolean result = sendFullReport(device, combinedReport[0], combinedReport[1], x, y, 
-                            combinedReport[4], extractKeyboardKeys());
+        if (motionDeferred) {
+            // The stack is busy: keep the motion for the next report rather than queue a stale one
+            motionDeferred = false;
+            deferredMotionCount++;
+            motionResidualX += x;
+            motionResidualY += y;
+            scrollResidualWheel += wheel;
+            scrollResidualPan += pan;
+            motionWaitingForCredit = true;
+            motionPumpDevice = device;
+            startMotionPump();
+        }
         
-        Log.d(TAG, "movePointer result: " + result);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "movePointer result: " + result);
+        }
         return result;
     }
     
@@ -138,36 +472,32 @@ public class HidReportHandler {
      * @param buttons Mouse button state bitmap (see HidConstants.Mouse)
      * @return true if the report was sent successfully, false otherwise
      */
-    public boolean sendMouseButtons(BluetoothDevice device, int buttons) {
+    public synchronized boolean sendMouseButtons(BluetoothDevice device, int buttons) {
         // In boot protocol mode, use simpler report if available
-        if (currentProtocolMode == HidConstants.Protocol.MODE_BOOT && 
-                bootMouseInputReportCharacteristic != null) {
+        if (isBootMouseActive()) {
             return sendBootMouseReport(device, buttons, 0, 0);
         }
         
-        // Otherwise use the combined report, keeping existing media and keyboard values, no movement
-        return sendFullReport(device, combinedReport[0], buttons, 0, 0, 
-                            combinedReport[4], extractKeyboardKeys());
+        // Otherwise use the combined report, keeping existing media and keyboard values.
+        // Pending coalesced motion rides along so button edges stay ordered with movement.
+        int x = takePendingMotion(true);
+        int y = takePendingMotion(false);
+        return sendReport(device, combinedReport[0], buttons, x, y,
+                takePendingScroll(true), takePendingScroll(false));
     }
     
     /**
-     * Performs a mouse button click.
+     * Queues a mouse button click.
+     * Returns immediately; the release is sent after the hold time.
      * 
      * @param device The connected Bluetooth device
      * @param button The button to click (see HidConstants.Mouse)
-     * @return true if both press and release were successful, false otherwise
+     * @return true if the press and release were queued, false otherwise
      */
     public boolean click(BluetoothDevice device, int button) {
-        boolean pressResult = sendMouseButtons(device, button);
-        
-        try {
-            Thread.sleep(50); // Short delay between press and release
-        } catch (InterruptedException e) {
-            // Ignore
-        }
-        
-        boolean releaseResult = sendMouseButtons(device, 0);
-        return pressResult && releaseResult;
+        return scheduleTap(device,
+                () -> sendMouseButtons(device, button),
+                () -> sendMouseButtons(device, 0));
     }
     
     /**
@@ -177,7 +507,7 @@ public class HidReportHandler {
      * @param button The button to release (BUTTON_LEFT, BUTTON_RIGHT, BUTTON_MIDDLE)
      * @return true if the report was sent successfully, false otherwise
      */
-    public boolean releaseMouseButton(BluetoothDevice device, int button) {
+    public synchronized boolean releaseMouseButton(BluetoothDevice device, int button) {
         // Get current button state
         int currentButtons = combinedReport[1] & 0xFF;
         
@@ -190,7 +520,7 @@ public class HidReportHandler {
     
     /**
      * Sends a boot protocol mouse report.
-     * Only used in boot protocol mode when bootMouseInputReportCharacteristic is available.
+     * Only used in boot protocol mode when the boot mouse input report characteristic is available.
      * 
      * @param device The connected device
      * @param buttons Button state
@@ -198,13 +528,13 @@ public class HidReportHandler {
      * @param y Y movement
      * @return true if successful, false otherwise
      */
-    private boolean sendBootMouseReport(BluetoothDevice device, int buttons, int x, int y) {
-        if (device == null || bootMouseInputReportCharacteristic == null) {
+    private synchronized boolean sendBootMouseReport(BluetoothDevice device, int buttons, int x, int y) {
+        if (device == null || bootMouseReport == null) {
             return false;
         }
         
         // Boot mouse report is 3 bytes: [buttons, x, y]
-        byte[] bootReport = new byte[3];
+        byte[] bootReport = bootMouseReport.data;
         bootReport[0] = (byte)(buttons & 0x07);  // Buttons (3 bits)
         bootReport[1] = (byte)(Math.max(-127, Math.min(127, x)));  // X movement
         bootReport[2] = (byte)(Math.max(-127, Math.min(127, y)));  // Y movement
@@ -216,241 +546,1357 @@ public class HidReportHandler {
         }
         
         // Send notification
-        return sendNotificationWithRetry(
-                bootMouseInputReportCharacteristic.getUuid(), bootReport);
+        return sendInputReport(device, bootMouseReport, x != 0 || y != 0);
     }
     
-    // ==================== Keyboard Control Methods ====================
+    // ==================== Absolute Pointer Methods ====================
     
     /**
-     * Sends a keyboard report with modifiers and key codes.
+     * Attaches the absolute pointer report (HidConstants.Split.ABSOLUTE_POINTER).
      * 
-     * @param device The connected Bluetooth device
-     * @param modifiers Modifier keys (shift, ctrl, alt, etc.)
-     * @param keyCodes Array of key codes to send (up to 6)
-     * @return true if the report was sent successfully, false otherwise
+     * @param characteristic The absolute pointer report characteristic
      */
-    public boolean sendKeyboardReport(BluetoothDevice device, int modifiers, byte[] keyCodes) {
-        // Keep existing media and mouse values
-        return sendFullReport(device, combinedReport[0], combinedReport[1], 0, 0, 
-                            modifiers, keyCodes);
+    public synchronized void setAbsolutePointerCharacteristic(BluetoothGattCharacteristic characteristic) {
+        absolutePointerReport = characteristic != null ? new HidInputReport(characteristic,
+                HidConstants.Split.ABSOLUTE_POINTER_REPORT_LENGTH) : null;
     }
     
-    /**
-     * Sends a single key press.
-     * 
-     * @param device The connected Bluetooth device
-     * @param keyCode The key code to send
-     * @param modifiers Optional modifier keys (shift, ctrl, alt, etc.)
-     * @return true if the report was sent successfully, false otherwise
-     */
-    public boolean sendKey(BluetoothDevice device, byte keyCode, int modifiers) {
-        byte[] keys = new byte[1];
-        keys[0] = keyCode;
-        return sendKeyboardReport(device, modifiers, keys);
+    public synchronized boolean hasAbsolutePointer() {
+        return absolutePointerReport != null;
     }
     
     /**
-     * Releases all keyboard keys.
+     * Moves the pointer to an absolute screen position in one report,
+     * keeping the absolute pointer's buttons as they are.
      * 
      * @param device The connected Bluetooth device
+     * @param x X position, 0 (left) to HidConstants.Split.ABSOLUTE_MAX (right)
+     * @param y Y position, 0 (top) to HidConstants.Split.ABSOLUTE_MAX (bottom)
      * @return true if the report was sent successfully, false otherwise
      */
-    public boolean releaseKeys(BluetoothDevice device) {
-        // Send a report with no keys pressed, keeping media and mouse state
-        return sendKeyboardReport(device, 0, null);
+    public synchronized boolean movePointerTo(BluetoothDevice device, int x, int y) {
+        int buttons = absolutePointerReport != null ? absolutePointerReport.data[0] : 0;
+        return sendAbsolutePointer(device, x, y, buttons);
     }
     
     /**
-     * Sends a key press and release.
+     * Sends an absolute pointer report.
+     * The absolute pointer is its own device to the host, with its own buttons,
+     * so pressing here and releasing on the relative mouse leaves a button held.
      * 
      * @param device The connected Bluetooth device
-     * @param keyCode The key code to press and release
-     * @param modifiers Optional modifier keys (shift, ctrl, alt, etc.)
-     * @return true if both the press and release were successful, false otherwise
+     * @param x X position, 0 (left) to HidConstants.Split.ABSOLUTE_MAX (right)
+     * @param y Y position, 0 (top) to HidConstants.Split.ABSOLUTE_MAX (bottom)
+     * @param buttons Mouse button state bitmap (see HidConstants.Mouse)
+     * @return true if the report was sent successfully, false otherwise
      */
-    public boolean typeKey(BluetoothDevice device, byte keyCode, int modifiers) {
-        // Press the key
-        boolean pressResult = sendKey(device, keyCode, modifiers);
+    public synchronized boolean sendAbsolutePointer(BluetoothDevice device, int x, int y, int buttons) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
         
-        try {
-            Thread.sleep(50); // Small delay between press and release
-        } catch (InterruptedException e) {
-            // Ignore
+        if (absolutePointerReport == null) {
+            Log.e(TAG, "Absolute pointer report not available");
+            return false;
+        }
+        
+        if (currentProtocolMode == HidConstants.Protocol.MODE_BOOT) {
+            Log.w(TAG, "Absolute pointer unavailable in boot protocol");
+            return false;
         }
         
-        // Release the key
-        boolean releaseResult = releaseKeys(device);
+        x = Math.max(0, Math.min(HidConstants.Split.ABSOLUTE_MAX, x));
+        y = Math.max(0, Math.min(HidConstants.Split.ABSOLUTE_MAX, y));
         
-        return pressResult && releaseResult;
+        byte[] report = absolutePointerReport.data;
+        report[0] = (byte) (buttons & 0x07);
+        report[1] = (byte) x;
+        report[2] = (byte) (x >> 8);
+        report[3] = (byte) y;
+        report[4] = (byte) (y >> 8);
+        
+        // Position is absolute: a repeat of the last report changes nothing
+        return sendInputReport(device, absolutePointerReport, false);
     }
     
-    // ==================== Combined Report Methods ====================
+    // ==================== Touchpad Methods ====================
     
     /**
-     * Sends a full combined report with media, mouse, and keyboard data.
+     * Attaches the precision touchpad report (HidConstants.Split.TOUCHPAD).
+     * 
+     * @param characteristic The touchpad report characteristic
+     */
+    public synchronized void setTouchpadCharacteristic(BluetoothGattCharacteristic characteristic) {
+        touchpadReport = characteristic != null ? new HidInputReport(characteristic,
+                HidConstants.Split.TOUCHPAD_REPORT_LENGTH) : null;
+        touchpadContactCount = 0;
+        touchpadButtons = 0;
+    }
+    
+    public synchronized boolean hasTouchpad() {
+        return touchpadReport != null;
+    }
+    
+    /**
+     * Sends one touchpad frame: every contact currently on the surface.
+     * Contacts that were touching in the previous frame and are missing from
+     * this one are reported as lifted, so callers only pass what is down.
+     * The host recognizes gestures (scrolling, pinch, swipes) from the frames.
+     * Until the host selects touchpad input mode the pad acts as a mouse:
+     * one contact moves the pointer and the pad button is the left button.
      * 
      * @param device The connected Bluetooth device
-     * @param mediaButtons Media button state bitmap
-     * @param mouseButtons Mouse button state bitmap
-     * @param x X movement (-127 to 127)
-     * @param y Y movement (-127 to 127)
-     * @param modifiers Keyboard modifiers (CTRL, SHIFT, ALT, etc.)
-     * @param keys Array of keyboard key codes (up to 6 keys)
-     * @return true if the report was sent successfully, false otherwise
+     * @param contacts Contacts of 3 ints: [contactId (0-63), x (0-TOUCHPAD_MAX_X), y (0-TOUCHPAD_MAX_Y)],
+     *                 at most HidConstants.Split.TOUCHPAD_MAX_CONTACTS
+     * @param buttons Pad button state (bit 0: surface pressed)
+     * @return true if the frame was sent successfully, false otherwise
      */
-    public boolean sendFullReport(BluetoothDevice device, int mediaButtons, 
-                                 int mouseButtons, int x, int y,
-                                 int modifiers, byte[] keys) {
-        Log.d(TAG, "sendFullReport - mediaButtons: " + mediaButtons 
-                + ", mouseButtons: " + mouseButtons + ", x: " + x + ", y: " + y
-                + ", modifiers: " + modifiers);
-        
+    public synchronized boolean sendTouchpadFrame(BluetoothDevice device, int[] contacts, int buttons) {
         if (device == null) {
             Log.e(TAG, "No connected device");
             return false;
         }
         
-        // Simple check to ensure notifications are enabled
-        if (!notificationsEnabled) {
-            Log.d(TAG, "Ensuring notifications are enabled");
-            enableReportModeNotifications();
-            notificationsEnabled = true;
+        if (touchpadReport == null) {
+            Log.e(TAG, "Touchpad report not available");
+            return false;
         }
         
-        // Clamp values to byte range
-        x = Math.max(-127, Math.min(127, x));
-        y = Math.max(-127, Math.min(127, y));
+        if (currentProtocolMode == HidConstants.Protocol.MODE_BOOT) {
+            Log.w(TAG, "Touchpad unavailable in boot protocol");
+            return false;
+        }
         
-        // Update report data
-        combinedReport[0] = (byte) (mediaButtons & 0x3F);  // Media buttons (6 bits)
-        combinedReport[1] = (byte) (mouseButtons & 0x07);  // Mouse buttons (3 bits)
-        combinedReport[2] = (byte) x;                      // X movement
-        combinedReport[3] = (byte) y;                      // Y movement
-        combinedReport[4] = (byte) (modifiers & 0xFF);     // Keyboard modifiers
-        combinedReport[5] = 0;                             // Reserved byte
+        int count = contacts != null ? contacts.length / 3 : 0;
+        if (contacts != null && (contacts.length % 3 != 0 || count > HidConstants.Split.TOUCHPAD_MAX_CONTACTS)) {
+            Log.e(TAG, "Invalid touchpad frame: " + contacts.length + " values");
+            return false;
+        }
         
-        // Set up to 6 keyboard keys
-        int keyCount = (keys != null) ? Math.min(keys.length, 6) : 0;
-        for (int i = 0; i < 6; i++) {
-            combinedReport[i + 6] = (i < keyCount) ? keys[i] : 0;
+        for (int i = 0; i < count; i++) {
+            int id = contacts[i * 3];
+            if (id < 0 || id > HidConstants.Split.TOUCHPAD_MAX_CONTACT_ID || containsContact(contacts, i, id)) {
+                Log.e(TAG, "Invalid touchpad contact ID: " + id);
+                return false;
+            }
         }
         
-        // Log detailed report information
-        if (Log.isLoggable(TAG, Log.DEBUG)) {
-            StringBuilder keyStr = new StringBuilder();
-            for (int i = 0; i < keyCount; i++) {
-                keyStr.append(String.format("0x%02X ", keys[i]));
+        // The host turns off the surface or the button when it only wants one of them
+        if ((touchpadFunctionSwitch[0] & HidConstants.Split.TOUCHPAD_SWITCH_SURFACE) == 0) {
+            count = 0;
+        }
+        if ((touchpadFunctionSwitch[0] & HidConstants.Split.TOUCHPAD_SWITCH_BUTTON) == 0) {
+            buttons = 0;
+        }
+        buttons &= 0x01;
+        
+        // Contact reports only once the host has switched the pad out of mouse mode
+        if (touchpadInputMode[0] != HidConstants.Split.TOUCHPAD_INPUT_MODE_TOUCHPAD) {
+            return sendTouchpadAsMouse(device, contacts, count, buttons);
+        }
+        
+        // Lifts of contacts that are gone, then contacts still down, then new ones.
+        // New contacts that do not fit are reported in the next frame.
+        int frameCount = 0;
+        for (int i = 0; i < touchpadContactCount; i++) {
+            if (!containsContact(contacts, count, touchpadContactIds[i])) {
+                addFrameContact(frameCount++, touchpadContactIds[i], touchpadContactX[i], touchpadContactY[i], false);
+            }
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count && frameCount < HidConstants.Split.TOUCHPAD_MAX_CONTACTS; i++) {
+                int id = contacts[i * 3];
+                boolean wasDown = false;
+                for (int j = 0; j < touchpadContactCount && !wasDown; j++) {
+                    wasDown = touchpadContactIds[j] == id;
+                }
+                if (wasDown == (pass == 0)) {
+                    addFrameContact(frameCount++, id,
+                            Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_X, contacts[i * 3 + 1])),
+                            Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_Y, contacts[i * 3 + 2])), true);
+                }
             }
-            
-            Log.d(TAG, String.format("FULL REPORT DATA - mediaButtons=%d, mouseButtons=%d, x=%d, y=%d, modifiers=0x%02X, keys=[%s]",
-                    mediaButtons, mouseButtons, x, y, modifiers, keyStr.toString().trim()));
         }
         
-        // Send notification with retry for more reliability
-        boolean success = sendNotificationWithRetry(reportCharacteristic.getUuid(), combinedReport);
+        if (frameCount == 0 && buttons == touchpadButtons) {
+            // Nothing on the surface before or now
+            return true;
+        }
         
-        if (success) {
-            Log.d(TAG, "Combined report sent successfully");
-        } else {
-            Log.e(TAG, "Failed to send combined report after retries");
+        // Remember what the host will see as touching
+        touchpadContactCount = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if (frameContactTip[i]) {
+                touchpadContactIds[touchpadContactCount] = frameContactIds[i];
+                touchpadContactX[touchpadContactCount] = frameContactX[i];
+                touchpadContactY[touchpadContactCount] = frameContactY[i];
+                touchpadContactCount++;
+            }
         }
+        touchpadButtons = buttons;
         
-        return success;
+        // Scan time in 100 us units; it is the same in every report of one frame
+        int scanTime = (int) (scheduler.now() * 10);
+        
+        // Hybrid mode: the first report carries the contact count, later ones carry 0
+        int perReport = HidConstants.Split.TOUCHPAD_CONTACTS_PER_REPORT;
+        int contactBytes = perReport * HidConstants.Split.TOUCHPAD_CONTACT_LENGTH;
+        byte[] report = touchpadReport.data;
+        int next = 0;
+        do {
+            Arrays.fill(report, 0, contactBytes, (byte) 0);
+            for (int slot = 0; slot < perReport && next < frameCount; slot++, next++) {
+                int offset = slot * HidConstants.Split.TOUCHPAD_CONTACT_LENGTH;
+                report[offset] = (byte) (0x01 | (frameContactTip[next] ? 0x02 : 0) | (frameContactIds[next] << 2));
+                report[offset + 1] = (byte) frameContactX[next];
+                report[offset + 2] = (byte) (frameContactX[next] >> 8);
+                report[offset + 3] = (byte) frameContactY[next];
+                report[offset + 4] = (byte) (frameContactY[next] >> 8);
+            }
+            report[contactBytes] = (byte) scanTime;
+            report[contactBytes + 1] = (byte) (scanTime >> 8);
+            report[contactBytes + 2] = (byte) (next <= perReport ? frameCount : 0);
+            report[contactBytes + 3] = (byte) buttons;
+            
+            if (!sendInputReport(device, touchpadReport, true)) {
+                return false;
+            }
+        } while (next < frameCount);
+        
+        return true;
     }
     
     /**
-     * Sends a combined media and mouse report.
-     * 
-     * @param device The connected Bluetooth device
-     * @param mediaButtons Media button state bitmap
-     * @param mouseButtons Mouse button state bitmap
-     * @param x X movement (-127 to 127)
-     * @param y Y movement (-127 to 127)
-     * @return true if the report was sent successfully, false otherwise
+     * Sends a touchpad frame through the mouse report, for mouse input mode.
+     * The first contact down moves the pointer until it lifts; a new contact
+     * takes over without moving it.
      */
-    public boolean sendCombinedReport(BluetoothDevice device, int mediaButtons, int mouseButtons, int x, int y) {
-        return sendFullReport(device, mediaButtons, mouseButtons, x, y, combinedReport[4], extractKeyboardKeys());
+    private boolean sendTouchpadAsMouse(BluetoothDevice device, int[] contacts, int count, int buttons) {
+        int index = -1;
+        for (int i = 0; i < count && index < 0; i++) {
+            if (contacts[i * 3] == mouseModeContactId) {
+                index = i;
+            }
+        }
+        
+        boolean success = true;
+        if (index >= 0) {
+            int x = Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_X, contacts[index * 3 + 1]));
+            int y = Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_Y, contacts[index * 3 + 2]));
+            if (x != mouseModeX || y != mouseModeY) {
+                float scale = 1f / HidConstants.Split.TOUCHPAD_MOUSE_UNITS_PER_COUNT;
+                success = movePointer(device, (x - mouseModeX) * scale, (y - mouseModeY) * scale);
+            }
+            mouseModeX = x;
+            mouseModeY = y;
+        } else if (count > 0) {
+            mouseModeContactId = contacts[0];
+            mouseModeX = Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_X, contacts[1]));
+            mouseModeY = Math.max(0, Math.min(HidConstants.Split.TOUCHPAD_MAX_Y, contacts[2]));
+        } else {
+            mouseModeContactId = -1;
+        }
+        
+        if (buttons != touchpadButtons) {
+            touchpadButtons = buttons;
+            int mouseButtons = (combinedReport[1] & ~HidConstants.Mouse.BUTTON_LEFT)
+                    | (buttons != 0 ? HidConstants.Mouse.BUTTON_LEFT : 0);
+            success &= sendMouseButtons(device, mouseButtons);
+        }
+        return success;
     }
     
-    // ==================== Helper Methods ====================
+    private void addFrameContact(int index, int id, int x, int y, boolean tip) {
+        frameContactIds[index] = id;
+        frameContactX[index] = x;
+        frameContactY[index] = y;
+        frameContactTip[index] = tip;
+    }
+    
+    private static boolean containsContact(int[] contacts, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (contacts[i * 3] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public synchronized byte[] getTouchpadInputMode() {
+        return touchpadInputMode;
+    }
     
     /**
-     * Helper method to extract the keyboard keys from the combined report.
+     * Applies the touchpad input mode feature report written by the host.
      * 
-     * @return Array of key codes from the combined report
+     * @param value The feature report value
+     * @return true if the value was accepted, false otherwise
      */
-    private byte[] extractKeyboardKeys() {
-        byte[] keys = new byte[6];
-        for (int i = 0; i < 6; i++) {
-            keys[i] = combinedReport[i + 6];
+    public synchronized boolean setTouchpadInputMode(byte[] value) {
+        if (value == null || value.length < 1) {
+            Log.w(TAG, "Invalid touchpad input mode report");
+            return false;
+        }
+        
+        if (touchpadInputMode[0] != value[0]) {
+            // Contacts and the button start over in the new mode
+            touchpadContactCount = 0;
+            touchpadButtons = 0;
+            mouseModeContactId = -1;
         }
-        return keys;
+        touchpadInputMode[0] = value[0];
+        Log.d(TAG, "Touchpad input mode: " + value[0]);
+        return true;
+    }
+    
+    public synchronized byte[] getTouchpadFunctionSwitch() {
+        return touchpadFunctionSwitch;
     }
     
     /**
-     * Helper method to send notification with retry.
+     * Applies the touchpad function switch feature report written by the host.
+     * 
+     * @param value The feature report value: surface and button reporting bits
+     * @return true if the value was accepted, false otherwise
      */
-    private boolean sendNotificationWithRetry(UUID charUuid, byte[] value) {
-        boolean success = false;
-        for (int retry = 0; retry < 2 && !success; retry++) {
-            success = gattServerManager.sendNotification(charUuid, value);
-            
-            if (!success && retry == 0) {
-                Log.w(TAG, "First notification attempt failed, retrying after delay");
-                try {
-                    Thread.sleep(10); // Small delay before retry
-                } catch (InterruptedException e) {
-                    // Ignore
-                }
-            }
+    public synchronized boolean setTouchpadFunctionSwitch(byte[] value) {
+        if (value == null || value.length < 1) {
+            Log.w(TAG, "Invalid touchpad function switch report");
+            return false;
         }
-        return success;
+        
+        touchpadFunctionSwitch[0] = (byte) (value[0]
+                & (HidConstants.Split.TOUCHPAD_SWITCH_SURFACE | HidConstants.Split.TOUCHPAD_SWITCH_BUTTON));
+        Log.d(TAG, "Touchpad function switch: " + touchpadFunctionSwitch[0]);
+        return true;
     }
     
+    // ==================== Gamepad Methods ====================
+    
     /**
-     * Enables notifications for report mode.
+     * Attaches the gamepad report (HidConstants.Split.GAMEPAD).
+     * 
+     * @param characteristic The gamepad report characteristic
      */
-    private void enableReportModeNotifications() {
-        BluetoothGattDescriptor descriptor = reportCharacteristic.getDescriptor(
-                HidConstants.Uuids.CLIENT_CONFIG);
-                
-        if (descriptor != null) {
-            // Enable notifications (0x01, 0x00)
-            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-            Log.d(TAG, "Set report characteristic descriptor value to enable notifications");
-            
-            // Send a zero report to initialize the connection
-            for (int i = 0; i < combinedReport.length; i++) {
-                combinedReport[i] = 0; // Initialize all bytes to 0
-            }
-            reportCharacteristic.setValue(combinedReport);
-            
-            // Send two initial reports - one is sometimes not enough
-            try {
-                gattServerManager.sendNotification(reportCharacteristic.getUuid(), combinedReport);
-                Thread.sleep(20); // Small delay
-                gattServerManager.sendNotification(reportCharacteristic.getUuid(), combinedReport);
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending initial report", e);
-            }
-        } else {
-            Log.e(TAG, "Missing Client Configuration Descriptor (CCCD) for report characteristic");
+    public synchronized void setGamepadCharacteristic(BluetoothGattCharacteristic characteristic) {
+        gamepadReport = characteristic != null ? new HidInputReport(characteristic,
+                HidConstants.Split.GAMEPAD_REPORT_LENGTH) : null;
+        if (gamepadReport != null) {
+            gamepadReport.data[2] = HidConstants.Split.GAMEPAD_HAT_CENTERED;
         }
     }
     
+    public synchronized boolean hasGamepad() {
+        return gamepadReport != null;
+    }
+    
     /**
-     * Enables notifications for boot mode.
+     * Sets the whole gamepad state.
+     * Button and hat changes are sent right away so no press is lost; stick and
+     * trigger changes are coalesced and flushed at most once per connection interval.
+     * 
+     * @param device The connected Bluetooth device
+     * @param buttons Button bitmap, bit 0 = button 1 through bit 15 = button 16
+     * @param hat Hat direction 0-7 (0 = up, clockwise), or HidConstants.Split.GAMEPAD_HAT_CENTERED
+     * @param leftX Left stick X, -127 (left) to 127 (right)
+     * @param leftY Left stick Y, -127 (up) to 127 (down)
+     * @param rightX Right stick X, -127 to 127
+     * @param rightY Right stick Y, -127 to 127
+     * @param leftTrigger Left trigger, 0 to 255
+     * @param rightTrigger Right trigger, 0 to 255
+     * @return true if the state was sent or queued, false otherwise
      */
-    private void enableBootModeNotifications() {
-        if (bootMouseInputReportCharacteristic == null) {
-            Log.e(TAG, "Boot mouse report characteristic not available");
-            return;
+    public synchronized boolean setGamepadState(BluetoothDevice device, int buttons, int hat,
+                                                int leftX, int leftY, int rightX, int rightY,
+                                                int leftTrigger, int rightTrigger) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
         }
         
-        BluetoothGattDescriptor descriptor = bootMouseInputReportCharacteristic.getDescriptor(
-                HidConstants.Uuids.CLIENT_CONFIG);
-                
+        if (gamepadReport == null) {
+            Log.e(TAG, "Gamepad report not available");
+            return false;
+        }
+        
+        if (currentProtocolMode == HidConstants.Protocol.MODE_BOOT) {
+            Log.w(TAG, "Gamepad unavailable in boot protocol");
+            return false;
+        }
+        
+        if (hat < 0 || hat > HidConstants.Split.GAMEPAD_HAT_CENTERED) {
+            hat = HidConstants.Split.GAMEPAD_HAT_CENTERED;
+        }
+        
+        byte[] report = gamepadReport.data;
+        boolean buttonsChanged = report[0] != (byte) buttons || report[1] != (byte) (buttons >> 8)
+                || report[2] != (byte) hat;
+        
+        report[0] = (byte) buttons;
+        report[1] = (byte) (buttons >> 8);
+        report[2] = (byte) hat;
+        report[3] = (byte) clampStick(leftX);
+        report[4] = (byte) clampStick(leftY);
+        report[5] = (byte) clampStick(rightX);
+        report[6] = (byte) clampStick(rightY);
+        report[7] = (byte) Math.max(0, Math.min(HidConstants.Split.GAMEPAD_MAX_TRIGGER, leftTrigger));
+        report[8] = (byte) Math.max(0, Math.min(HidConstants.Split.GAMEPAD_MAX_TRIGGER, rightTrigger));
+        
+        if (buttonsChanged) {
+            // Carries the newest axes too; a pending pump tick then finds nothing new
+            return sendInputReport(device, gamepadReport, false);
+        }
+        
+        gamepadPumpDevice = device;
+        if (!gamepadPumpScheduled) {
+            // First change after idle goes out on the next sender thread turn
+            gamepadPumpScheduled = scheduler.post(gamepadPump);
+        }
+        return gamepadPumpScheduled;
+    }
+    
+    private static int clampStick(int value) {
+        return Math.max(-HidConstants.Split.GAMEPAD_MAX_STICK, Math.min(HidConstants.Split.GAMEPAD_MAX_STICK, value));
+    }
+    
+    /**
+     * Gamepad pump tick: sends the newest state if the host does not have it yet
+     * and schedules the next tick. The pump stops once a tick finds nothing new.
+     */
+    private synchronized void flushGamepadState() {
+        if (gamepadReport == null || gamepadReport.isUnchanged()) {
+            gamepadPumpScheduled = false;
+            return;
+        }
+        
+        // Without a credit the newest state waits for one
+        gamepadWaitingForCredit = !hasNotificationCredit(gamepadReport);
+        if (!gamepadWaitingForCredit) {
+            sendInputReport(gamepadPumpDevice, gamepadReport, false);
+        }
+        gamepadPumpScheduled = scheduler.postAt(gamepadPump, scheduler.now() + getConnectionIntervalMs());
+    }
+    
+    // ==================== Keyboard Control Methods ====================
+    
+    /**
+     * Sends a keyboard report with modifiers and key codes.
+     * 
+     * @param device The connected Bluetooth device
+     * @param modifiers Modifier keys (shift, ctrl, alt, etc.)
+     * @param keyCodes Array of key codes to send (up to 6, or any number with NKRO)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean sendKeyboardReport(BluetoothDevice device, int modifiers, byte[] keyCodes) {
+        // Keep existing media and mouse values
+        return sendFullReport(device, combinedReport[0], combinedReport[1], 0, 0, 
+                            modifiers, keyCodes);
+    }
+    
+    /**
+     * Sends a single key press.
+     * 
+     * @param device The connected Bluetooth device
+     * @param keyCode The key code to send
+     * @param modifiers Optional modifier keys (shift, ctrl, alt, etc.)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean sendKey(BluetoothDevice device, byte keyCode, int modifiers) {
+        singleKey[0] = keyCode;
+        return sendKeyboardReport(device, modifiers, singleKey);
+    }
+    
+    /**
+     * Sends one pre-encoded macro frame: [mediaButtons, modifiers, keyCode].
+     * Mouse buttons are left as they are.
+     * 
+     * @param device The connected Bluetooth device
+     * @param frames Encoded frames
+     * @param offset Offset of the frame to send
+     * @return true if the report was sent successfully, false otherwise
+     */
+    synchronized boolean sendMacroFrame(BluetoothDevice device, byte[] frames, int offset) {
+        singleKey[0] = frames[offset + 2];
+        return sendFullReport(device, frames[offset] & 0xFF, combinedReport[1], 0, 0,
+                frames[offset + 1] & 0xFF, singleKey);
+    }
+    
+    /**
+     * Releases all keyboard keys.
+     * 
+     * @param device The connected Bluetooth device
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public boolean releaseKeys(BluetoothDevice device) {
+        // Send a report with no keys pressed, keeping media and mouse state
+        return sendKeyboardReport(device, 0, null);
+    }
+    
+    /**
+     * Presses one key, leaving other held keys down.
+     * Modifier usages (0xE0-0xE7) set the matching modifier bit.
+     * 
+     * @param device The connected Bluetooth device
+     * @param keyCode The key code to press
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean pressKey(BluetoothDevice device, byte keyCode) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        ensureNotificationsEnabled();
+        setKeyState(keyCode & 0xFF, true);
+        return sendReport(device, combinedReport[0], combinedReport[1], 0, 0);
+    }
+    
+    /**
+     * Releases one key, leaving other held keys down.
+     * 
+     * @param device The connected Bluetooth device
+     * @param keyCode The key code to release
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean releaseKey(BluetoothDevice device, byte keyCode) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        ensureNotificationsEnabled();
+        setKeyState(keyCode & 0xFF, false);
+        return sendReport(device, combinedReport[0], combinedReport[1], 0, 0);
+    }
+    
+    /**
+     * Enables or disables N-key rollover.
+     * Only has an effect when the report map includes the NKRO keyboard;
+     * when disabled, keys go out through the 6KRO report for hosts that
+     * don't handle the bitmap. Held keys are released on the old report first.
+     * 
+     * @param device The connected Bluetooth device (may be null when not connected)
+     * @param enabled Whether to send keys as an NKRO bitmap
+     */
+    public synchronized void setNkroEnabled(BluetoothDevice device, boolean enabled) {
+        if (nkroEnabled == enabled) {
+            return;
+        }
+        
+        if (device != null) {
+            sendKeyboardReport(device, 0, null);
+        }
+        nkroEnabled = enabled;
+        Log.d(TAG, "NKRO " + (enabled ? "enabled" : "disabled"));
+    }
+    
+    /**
+     * Checks whether keys currently go out as an NKRO bitmap.
+     * 
+     * @return true if the NKRO report is in use
+     */
+    public synchronized boolean isNkroActive() {
+        return nkroInputReport != null && nkroEnabled
+                && currentProtocolMode == HidConstants.Protocol.MODE_REPORT;
+    }
+    
+    /**
+     * Queues a key press and release.
+     * Returns immediately; consecutive calls are typed in order.
+     * 
+     * @param device The connected Bluetooth device
+     * @param keyCode The key code to press and release
+     * @param modifiers Optional modifier keys (shift, ctrl, alt, etc.)
+     * @return true if the press and release were queued, false otherwise
+     */
+    public boolean typeKey(BluetoothDevice device, byte keyCode, int modifiers) {
+        return scheduleTap(device,
+                () -> sendKey(device, keyCode, modifiers),
+                () -> releaseKeys(device));
+    }
+    
+    // ==================== Combined Report Methods ====================
+    
+    /**
+     * Sends a full combined report with media, mouse, and keyboard data.
+     * 
+     * @param device The connected Bluetooth device
+     * @param mediaButtons Media button state bitmap
+     * @param mouseButtons Mouse button state bitmap
+     * @param x X movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @param y Y movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @param modifiers Keyboard modifiers (CTRL, SHIFT, ALT, etc.)
+     * @param keys Array of keyboard key codes (up to 6 keys)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean sendFullReport(BluetoothDevice device, int mediaButtons, 
+                                 int mouseButtons, int x, int y,
+                                 int modifiers, byte[] keys) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        ensureNotificationsEnabled();
+        setKeyboardState(modifiers, keys);
+        return sendReport(device, mediaButtons, mouseButtons, x, y);
+    }
+    
+    /**
+     * Sends the current state with new media, mouse button and movement values.
+     * Keyboard state is left as it is.
+     * 
+     * @param device The connected Bluetooth device
+     * @param mediaButtons Media button state bitmap
+     * @param mouseButtons Mouse button state bitmap
+     * @param x X movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @param y Y movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    private synchronized boolean sendReport(BluetoothDevice device, int mediaButtons,
+                                            int mouseButtons, int x, int y) {
+        return sendReport(device, mediaButtons, mouseButtons, x, y, 0, 0);
+    }
+    
+    /**
+     * Sends the current state with new media, mouse button, movement and scroll values.
+     * Keyboard state is left as it is.
+     * 
+     * @param device The connected Bluetooth device
+     * @param mediaButtons Media button state bitmap
+     * @param mouseButtons Mouse button state bitmap
+     * @param x X movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @param y Y movement (-127 to 127, or -32767 to 32767 with 16-bit X/Y)
+     * @param wheel Vertical wheel movement (-127 to 127)
+     * @param pan Horizontal pan movement (-127 to 127)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    private synchronized boolean sendReport(BluetoothDevice device, int mediaButtons,
+                                            int mouseButtons, int x, int y, int wheel, int pan) {
+        boolean debug = Log.isLoggable(TAG, Log.DEBUG);
+        if (debug) {
+            Log.d(TAG, "sendReport - mediaButtons: " + mediaButtons 
+                    + ", mouseButtons: " + mouseButtons + ", x: " + x + ", y: " + y);
+        }
+        
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        ensureNotificationsEnabled();
+        
+        // Clamp values to the report's motion range
+        x = Math.max(-maxMotion, Math.min(maxMotion, x));
+        y = Math.max(-maxMotion, Math.min(maxMotion, y));
+        
+        // Update report data
+        combinedReport[0] = (byte) (mediaButtons & 0x3F);  // Media buttons (6 bits)
+        combinedReport[1] = (byte) (mouseButtons & 0x07);  // Mouse buttons (3 bits)
+        writeAxis(MOUSE_X_INDEX, x);                       // X movement
+        writeAxis(MOUSE_X_INDEX + axisBytes, y);           // Y movement
+        combinedReport[wheelIndex] = (byte) Math.max(-HidConstants.Combined.MAX_SCROLL,
+                Math.min(HidConstants.Combined.MAX_SCROLL, wheel));  // Vertical wheel
+        combinedReport[panIndex] = (byte) Math.max(-HidConstants.Combined.MAX_SCROLL,
+                Math.min(HidConstants.Combined.MAX_SCROLL, pan));    // Horizontal pan
+        
+        // Log detailed report information
+        if (debug) {
+            StringBuilder keyStr = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                keyStr.append(String.format("0x%02X ", combinedReport[keysIndex + i]));
+            }
+            
+            Log.d(TAG, String.format("FULL REPORT DATA - mediaButtons=%d, mouseButtons=%d, x=%d, y=%d, modifiers=0x%02X, keys=[%s]",
+                    mediaButtons, mouseButtons, x, y, combinedReport[modifiersIndex] & 0xFF, keyStr.toString().trim()));
+        }
+        
+        boolean success = sendReportModeReports(device, x != 0 || y != 0 || wheel != 0 || pan != 0);
+        
+        if (success) {
+            if (debug) {
+                Log.d(TAG, "Combined report sent successfully");
+            }
+        } else {
+            Log.e(TAG, "Failed to send combined report");
+        }
+        
+        return success;
+    }
+    
+    /**
+     * Sends a combined media and mouse report.
+     * 
+     * @param device The connected Bluetooth device
+     * @param mediaButtons Media button state bitmap
+     * @param mouseButtons Mouse button state bitmap
+     * @param x X movement (excess beyond the report's motion range is carried into later reports)
+     * @param y Y movement (excess beyond the report's motion range is carried into later reports)
+     * @return true if the report was sent successfully, false otherwise
+     */
+    public synchronized boolean sendCombinedReport(BluetoothDevice device, int mediaButtons, int mouseButtons, int x, int y) {
+        // Route movement through the accumulators so out-of-range deltas are carried, not clamped
+        motionResidualX += x;
+        motionResidualY += y;
+        boolean result = sendReport(device, mediaButtons, mouseButtons,
+                takePendingMotion(true), takePendingMotion(false));
+        
+        if (device != null && hasPendingMotion()) {
+            motionPumpDevice = device;
+            startMotionPump();
+        }
+        return result;
+    }
+    
+    // ==================== Motion Coalescing Methods ====================
+    
+    /**
+     * Enables or disables motion coalescing.
+     * When enabled, movePointer only accumulates deltas and a pump on the
+     * sender thread sends one report per period, decoupling the caller's
+     * input rate from the link's transport rate.
+     * 
+     * @param enabled Whether to coalesce mouse motion
+     * @param reportRateHz Pump rate in reports per second, or 0 for one report per connection interval
+     */
+    public synchronized void setMotionCoalescing(boolean enabled, int reportRateHz) {
+        this.motionCoalescing = enabled;
+        this.motionReportRateHz = Math.max(0, reportRateHz);
+        
+        // Leftover motion is still drained by the pump if it is running
+        Log.d(TAG, "Motion coalescing " + (enabled ? "enabled" : "disabled")
+                + ", rate: " + (motionReportRateHz > 0 ? motionReportRateHz + "Hz" : "connection interval"));
+    }
+    
+    /**
+     * Checks whether motion coalescing is enabled.
+     * 
+     * @return true if coalescing is enabled
+     */
+    public synchronized boolean isMotionCoalescing() {
+        return motionCoalescing;
+    }
+    
+    /**
+     * Gets the number of movePointer calls received.
+     * 
+     * @return The motion input count
+     */
+    public synchronized long getMotionInputCount() {
+        return motionInputCount;
+    }
+    
+    /**
+     * Gets the number of mouse movement reports actually sent.
+     * 
+     * @return The motion report count
+     */
+    public synchronized long getMotionReportCount() {
+        return motionReportCount;
+    }
+    
+    /**
+     * Starts the pump if it is idle.
+     * 
+     * @return true if the pump is running
+     */
+    private synchronized boolean startMotionPump() {
+        if (!motionPumpScheduled) {
+            // First delta after idle goes out on the next sender thread turn
+            motionPumpScheduled = scheduler.post(motionPump);
+        }
+        return motionPumpScheduled;
+    }
+    
+    /**
+     * Pump tick: sends the accumulated motion as one report and schedules the
+     * next tick. The pump stops once a tick finds nothing to send.
+     */
+    private synchronized void flushPendingMotion() {
+        if (!hasPendingMotion()) {
+            motionPumpScheduled = false;
+            return;
+        }
+        
+        // Without a credit the motion keeps coalescing until one returns
+        motionWaitingForCredit = !hasNotificationCredit(motionReport());
+        if (!motionWaitingForCredit) {
+            sendPendingMotion();
+        }
+        
+        motionPumpScheduled = scheduler.postAt(motionPump, scheduler.now() + getMotionPumpPeriodMs());
+    }
+    
+    private void sendPendingMotion() {
+        int x = takePendingMotion(true);
+        int y = takePendingMotion(false);
+        sendPointerReport(motionPumpDevice, x, y);
+    }
+    
+    /**
+     * Called when the stack returns a notification credit. Motion and gamepad
+     * state held back for lack of credit go out on the sender thread right away
+     * instead of at the next pump tick.
+     */
+    public void onNotificationCreditAvailable() {
+        scheduler.post(creditResume);
+    }
+    
+    private synchronized void resumeAfterCredit() {
+        if (motionWaitingForCredit && hasPendingMotion() && hasNotificationCredit(motionReport())) {
+            motionWaitingForCredit = false;
+            sendPendingMotion();
+        }
+        if (gamepadWaitingForCredit && gamepadReport != null && !gamepadReport.isUnchanged()
+                && hasNotificationCredit(gamepadReport)) {
+            gamepadWaitingForCredit = false;
+            sendInputReport(gamepadPumpDevice, gamepadReport, false);
+        }
+    }
+    
+    /**
+     * Checks whether at least one whole unit of motion or scroll is pending on any axis.
+     */
+    private boolean hasPendingMotion() {
+        return Math.abs(motionResidualX) >= 1 || Math.abs(motionResidualY) >= 1
+                || Math.abs(scrollResidualWheel) >= 1 || Math.abs(scrollResidualPan) >= 1;
+    }
+    
+    /**
+     * Removes up to one report's worth of whole-unit motion from an axis.
+     * The fraction and anything beyond the report range stay in the accumulator.
+     */
+    private int takePendingMotion(boolean xAxis) {
+        double pending = xAxis ? motionResidualX : motionResidualY;
+        // Boot reports are always 8-bit, report mode follows the report map
+        int limit = isBootMouseActive() ? HidConstants.Combined.MAX_MOTION : maxMotion;
+        // Cast truncates toward zero, leaving a residual in (-1, 1)
+        int take = (int) Math.max(-limit, Math.min(limit, pending));
+        if (xAxis) {
+            motionResidualX -= take;
+        } else {
+            motionResidualY -= take;
+        }
+        return take;
+    }
+    
+    /**
+     * Removes up to one report's worth of whole-unit scroll from the wheel or pan.
+     */
+    private int takePendingScroll(boolean wheel) {
+        double pending = wheel ? scrollResidualWheel : scrollResidualPan;
+        int limit = HidConstants.Combined.MAX_SCROLL;
+        int take = (int) Math.max(-limit, Math.min(limit, pending));
+        if (wheel) {
+            scrollResidualWheel -= take;
+        } else {
+            scrollResidualPan -= take;
+        }
+        return take;
+    }
+    
+    // ==================== Resolution Multiplier Methods ====================
+    
+    /**
+     * Gets the Resolution Multiplier feature report, for host reads.
+     * 
+     * @return The feature report
+     */
+    public synchronized byte[] getFeatureReport() {
+        return featureReport;
+    }
+    
+    /**
+     * Applies a Resolution Multiplier feature report written by the host.
+     * Pending scroll is rescaled so no movement is lost across the switch.
+     * 
+     * @param value The feature report value
+     * @return true if the value was accepted, false otherwise
+     */
+    public synchronized boolean setFeatureReport(byte[] value) {
+        if (value == null || value.length < HidConstants.Combined.FEATURE_REPORT_LENGTH) {
+            Log.w(TAG, "Invalid Resolution Multiplier report");
+            return false;
+        }
+        
+        featureReport[0] = (byte) (value[0] & (HidConstants.Combined.FEATURE_WHEEL_MULTIPLIER
+                | HidConstants.Combined.FEATURE_PAN_MULTIPLIER));
+        int newWheelMultiplier = (featureReport[0] & HidConstants.Combined.FEATURE_WHEEL_MULTIPLIER) != 0
+                ? HidConstants.Combined.RESOLUTION_MULTIPLIER : 1;
+        int newPanMultiplier = (featureReport[0] & HidConstants.Combined.FEATURE_PAN_MULTIPLIER) != 0
+                ? HidConstants.Combined.RESOLUTION_MULTIPLIER : 1;
+        
+        scrollResidualWheel = scrollResidualWheel * newWheelMultiplier / wheelMultiplier;
+        scrollResidualPan = scrollResidualPan * newPanMultiplier / panMultiplier;
+        wheelMultiplier = newWheelMultiplier;
+        panMultiplier = newPanMultiplier;
+        
+        Log.d(TAG, "Resolution multiplier: wheel x" + wheelMultiplier + ", pan x" + panMultiplier);
+        return true;
+    }
+    
+    /**
+     * Returns the wheel and pan to detent resolution and the touchpad to its
+     * power-on configuration, as a host that has not written the feature
+     * reports expects. Call when a new host connects.
+     */
+    public synchronized void resetFeatureReport() {
+        touchpadInputMode[0] = HidConstants.Split.TOUCHPAD_INPUT_MODE_MOUSE;
+        mouseModeContactId = -1;
+        touchpadFunctionSwitch[0] = HidConstants.Split.TOUCHPAD_SWITCH_SURFACE
+                | HidConstants.Split.TOUCHPAD_SWITCH_BUTTON;
+        featureReport[0] = 0;
+        scrollResidualWheel /= wheelMultiplier;
+        scrollResidualPan /= panMultiplier;
+        wheelMultiplier = 1;
+        panMultiplier = 1;
+    }
+    
+    /**
+     * Gets the pump period.
+     * 
+     * @return Milliseconds between motion reports
+     */
+    private int getMotionPumpPeriodMs() {
+        if (motionReportRateHz > 0) {
+            return Math.max(1, 1000 / motionReportRateHz);
+        }
+        
+        return getConnectionIntervalMs();
+    }
+    
+    // ==================== Deduplication Methods ====================
+    
+    /**
+     * Forgets the last sent reports, so the next report always goes out.
+     * Call when a host (re)connects or re-subscribes.
+     */
+    public synchronized void resetLastReport() {
+        for (HidInputReport report : reportModeReports) {
+            report.invalidate();
+        }
+        if (bootMouseReport != null) {
+            bootMouseReport.invalidate();
+        }
+        if (absolutePointerReport != null) {
+            absolutePointerReport.invalidate();
+        }
+        if (gamepadReport != null) {
+            gamepadReport.invalidate();
+        }
+        
+        // A newly subscribed host has no contacts down
+        touchpadContactCount = 0;
+        touchpadButtons = 0;
+    }
+    
+    /**
+     * Sets the keepalive interval.
+     * Hosts that time out idle HID devices get the current state resent after
+     * this much time without a report; reports are otherwise suppressed while idle.
+     * 
+     * @param intervalMs Keepalive interval in milliseconds, or 0 to disable
+     */
+    public synchronized void setKeepaliveIntervalMs(int intervalMs) {
+        keepaliveIntervalMs = Math.max(0, intervalMs);
+        scheduler.cancel(keepaliveToken);
+        if (keepaliveIntervalMs > 0) {
+            scheduler.postAt(keepalive, keepaliveToken, scheduler.now() + keepaliveIntervalMs);
+        }
+        Log.d(TAG, "Keepalive " + (keepaliveIntervalMs > 0 ? keepaliveIntervalMs + "ms" : "disabled"));
+    }
+    
+    /**
+     * Records a report that reached the host.
+     */
+    private void onReportSent(BluetoothDevice device) {
+        sentReportCount++;
+        lastReportTime = scheduler.now();
+        lastReportDevice = device;
+    }
+    
+    /**
+     * Keepalive tick: resends the current state, without motion, if the link
+     * has been idle for a full interval, then schedules the next tick.
+     */
+    private synchronized void sendKeepalive() {
+        if (keepaliveIntervalMs <= 0) {
+            return;
+        }
+        
+        long now = scheduler.now();
+        if (lastReportDevice != null && now - lastReportTime >= keepaliveIntervalMs) {
+            // Resend a report that has no motion fields, or clear them first
+            HidInputReport report;
+            if (isBootMouseActive()) {
+                report = bootMouseReport;
+                report.data[1] = 0;
+                report.data[2] = 0;
+            } else if (combinedInputReport != null) {
+                report = combinedInputReport;
+                writeAxis(MOUSE_X_INDEX, 0);
+                writeAxis(MOUSE_X_INDEX + axisBytes, 0);
+                combinedReport[wheelIndex] = 0;
+                combinedReport[panIndex] = 0;
+            } else {
+                report = isNkroActive() ? nkroInputReport : keyboardInputReport;
+            }
+            
+            if (gattServerManager.sendNotification(report.characteristic, report.data)) {
+                report.markSent();
+                keepaliveReportCount++;
+                onReportSent(lastReportDevice);
+            }
+        }
+        
+        scheduler.postAt(keepalive, keepaliveToken, Math.max(now, lastReportTime) + keepaliveIntervalMs);
+    }
+    
+    /**
+     * Gets report traffic statistics.
+     * 
+     * @return Counts of reports sent, suppressed as duplicates, and sent as keepalives
+     */
+    public synchronized Map<String, String> getReportStatistics() {
+        Map<String, String> stats = new HashMap<>();
+        
+        stats.put("sentReports", String.valueOf(sentReportCount));
+        stats.put("suppressedReports", String.valueOf(suppressedReportCount));
+        stats.put("keepaliveReports", String.valueOf(keepaliveReportCount));
+        stats.put("motionInputs", String.valueOf(motionInputCount));
+        stats.put("motionReports", String.valueOf(motionReportCount));
+        stats.put("deferredMotionReports", String.valueOf(deferredMotionCount));
+        stats.putAll(gattServerManager.getNotificationStatistics());
+        
+        return stats;
+    }
+    
+    // ==================== Scheduling Methods ====================
+    
+    /**
+     * Queues a press report followed by a release report one hold time later.
+     * Taps are serialized: a new press never starts before the previous
+     * release plus one hold time, so back-to-back taps stay distinct.
+     * 
+     * @param device The connected Bluetooth device
+     * @param press Sends the press report
+     * @param release Sends the release report
+     * @return true if both reports were queued, false otherwise
+     */
+    private boolean scheduleTap(BluetoothDevice device, Runnable press, Runnable release) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+        
+        long hold = getHoldTimeMs();
+        long pressAt;
+        synchronized (this) {
+            pressAt = Math.max(scheduler.now(), tapQueueTail);
+            tapQueueTail = pressAt + 2 * hold;
+        }
+        
+        return scheduler.postAt(press, pressAt) && scheduler.postAt(release, pressAt + hold);
+    }
+    
+    /**
+     * Gets the press/release hold time.
+     * 
+     * @return The configured hold time, or one connection interval if none is set
+     */
+    public int getHoldTimeMs() {
+        int hold = holdTimeMs;
+        if (hold > 0) {
+            return hold;
+        }
+        
+        return getConnectionIntervalMs();
+    }
+    
+    /**
+     * Gets the current connection interval.
+     * 
+     * @return The connection interval in milliseconds, or a safe default if unknown
+     */
+    private int getConnectionIntervalMs() {
+        if (connectionManager != null && connectionManager.getConnectionInterval() > 0) {
+            return connectionManager.getConnectionInterval();
+        }
+        
+        return DEFAULT_HOLD_TIME_MS;
+    }
+    
+    /**
+     * Sets the press/release hold time.
+     * 
+     * @param holdTimeMs Hold time in milliseconds, or 0 to use one connection interval
+     */
+    public void setHoldTimeMs(int holdTimeMs) {
+        this.holdTimeMs = Math.max(0, holdTimeMs);
+    }
+    
+    // ==================== Helper Methods ====================
+    
+    /**
+     * Replaces the keyboard state: modifiers plus the set of held keys.
+     * The NKRO bitmap keeps every key up to NKRO_MAX_USAGE. The 6KRO array
+     * keeps the first six keys, or with NKRO active the first six above the bitmap.
+     */
+    private void setKeyboardState(int modifiers, byte[] keys) {
+        combinedReport[modifiersIndex] = (byte) (modifiers & 0xFF);  // Keyboard modifiers
+        combinedReport[modifiersIndex + 1] = 0;                     // Reserved byte
+        
+        // Set up to 6 keyboard keys
+        boolean nkro = isNkroActive();
+        int slot = 0;
+        if (keys != null) {
+            for (int i = 0; i < keys.length && slot < 6; i++) {
+                if (!nkro || (keys[i] & 0xFF) > HidConstants.Split.NKRO_MAX_USAGE) {
+                    combinedReport[keysIndex + slot++] = keys[i];
+                }
+            }
+        }
+        for (; slot < 6; slot++) {
+            combinedReport[keysIndex + slot] = 0;
+        }
+        
+        if (nkroInputReport != null) {
+            byte[] bitmap = nkroInputReport.data;
+            Arrays.fill(bitmap, 1, bitmap.length, (byte) 0);
+            if (keys != null) {
+                for (byte key : keys) {
+                    setBitmapKey(bitmap, key & 0xFF, true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Presses or releases a single key in the keyboard state.
+     */
+    private void setKeyState(int usage, boolean pressed) {
+        // Modifier usages map onto the modifier byte
+        if (usage >= 0xE0 && usage <= 0xE7) {
+            int bit = 1 << (usage - 0xE0);
+            int modifiers = combinedReport[modifiersIndex] & 0xFF;
+            combinedReport[modifiersIndex] = (byte) (pressed ? modifiers | bit : modifiers & ~bit);
+            return;
+        }
+        
+        if (isNkroActive() && setBitmapKey(nkroInputReport.data, usage, pressed)) {
+            return;
+        }
+        
+        // 6KRO: take a free slot on press, clear the key's slot on release.
+        // With NKRO active only keys above the bitmap get here.
+        int free = -1;
+        for (int i = 0; i < 6; i++) {
+            int slot = combinedReport[keysIndex + i] & 0xFF;
+            if (slot == usage) {
+                if (!pressed) {
+                    combinedReport[keysIndex + i] = 0;
+                }
+                return;
+            }
+            if (slot == 0 && free < 0) {
+                free = i;
+            }
+        }
+        if (pressed) {
+            if (free >= 0) {
+                combinedReport[keysIndex + free] = (byte) usage;
+            } else {
+                Log.w(TAG, "6KRO report full, dropping key: " + usage);
+            }
+        }
+    }
+    
+    /**
+     * Sets or clears one usage's bit in an NKRO report (bitmap starts at byte 1).
+     * 
+     * @return false if the usage is outside the bitmap
+     */
+    private static boolean setBitmapKey(byte[] report, int usage, boolean pressed) {
+        if (usage <= 0 || usage > HidConstants.Split.NKRO_MAX_USAGE) {
+            return usage == 0;
+        }
+        
+        int index = 1 + (usage >> 3);
+        int bit = 1 << (usage & 7);
+        report[index] = (byte) (pressed ? report[index] | bit : report[index] & ~bit);
+        return true;
+    }
+    
+    /**
+     * Writes a signed axis value into the combined report, little-endian.
+     */
+    private void writeAxis(int index, int value) {
+        combinedReport[index] = (byte) value;
+        if (axisBytes == 2) {
+            combinedReport[index + 1] = (byte) (value >> 8);
+        }
+    }
+    
+    /**
+     * Reads a signed axis value from the combined report.
+     */
+    private int readAxis(int index) {
+        if (axisBytes == 2) {
+            return (short) ((combinedReport[index] & 0xFF) | (combinedReport[index + 1] << 8));
+        }
+        return combinedReport[index];
+    }
+    
+    /**
+     * Gets the report pointer motion currently goes out in.
+     */
+    private HidInputReport motionReport() {
+        if (isBootMouseActive()) {
+            return bootMouseReport;
+        }
+        return combinedInputReport != null ? combinedInputReport : mouseInputReport;
+    }
+    
+    /**
+     * Checks whether a report sent now would go straight to the stack for
+     * every host it goes to.
+     */
+    private boolean hasNotificationCredit(HidInputReport report) {
+        if (report.attributeIndex < 0) {
+            report.attributeIndex = gattServerManager.getAttributeIndex(report.characteristic);
+        }
+        return gattServerManager.hasNotificationCredit(report.attributeIndex);
+    }
+    
+    /**
+     * Checks whether mouse reports currently go out as boot protocol reports.
+     */
+    private boolean isBootMouseActive() {
+        return currentProtocolMode == HidConstants.Protocol.MODE_BOOT
+                && bootMouseReport != null;
+    }
+    
+    /**
+     * Sends the report-mode state held in the combined report: either as one
+     * combined report, or split into keyboard, mouse and consumer reports of
+     * which only the ones that changed go out.
+     */
+    private boolean sendReportModeReports(BluetoothDevice device, boolean hasMotion) {
+        if (combinedInputReport != null) {
+            return sendInputReport(device, combinedInputReport, hasMotion);
+        }
+        
+        consumerInputReport.data[0] = combinedReport[0];
+        mouseInputReport.data[0] = combinedReport[1];
+        // X, Y, wheel and pan
+        System.arraycopy(combinedReport, MOUSE_X_INDEX, mouseInputReport.data, 1, 2 * axisBytes + 2);
+        System.arraycopy(combinedReport, modifiersIndex, keyboardInputReport.data, 0,
+                HidConstants.Split.KEYBOARD_REPORT_LENGTH);
+        
+        boolean success = sendInputReport(device, consumerInputReport, false);
+        success &= sendInputReport(device, mouseInputReport, hasMotion);
+        if (isNkroActive()) {
+            nkroInputReport.data[0] = combinedReport[modifiersIndex];
+            success &= sendInputReport(device, nkroInputReport, false);
+            // Keys above the bitmap; modifiers already go out with the NKRO report
+            keyboardInputReport.data[0] = 0;
+        }
+        success &= sendInputReport(device, keyboardInputReport, false);
+        return success;
+    }
+    
+    /**
+     * Sends one input report, unless it carries no motion and matches what
+     * the host already has.
+     */
+    private boolean sendInputReport(BluetoothDevice device, HidInputReport report, boolean hasMotion) {
+        if (!hasMotion && report.isUnchanged()) {
+            suppressedReportCount++;
+            return true;
+        }
+        
+        if (report.attributeIndex < 0) {
+            report.attributeIndex = gattServerManager.getAttributeIndex(report.characteristic);
+        }
+        int result = gattServerManager.sendNotification(report.attributeIndex, report.data, motionOnlyReport);
+        if (result == BleGattServerManager.NOTIFY_BUSY) {
+            // Only motion-only reports are dropped; the sender folds the motion into the next one
+            motionDeferred = true;
+            return true;
+        }
+        if (result == BleGattServerManager.NOTIFY_FAILED) {
+            return false;
+        }
+        
+        report.markSent();
+        onReportSent(device);
+        return true;
+    }
+    
+    /**
+     * Enables report-mode notifications if they aren't yet. This zeroes the
+     * report state, so callers run it before writing the keyboard state.
+     */
+    private void ensureNotificationsEnabled() {
+        if (!notificationsEnabled) {
+            Log.d(TAG, "Ensuring notifications are enabled");
+            enableReportModeNotifications();
+            notificationsEnabled = true;
+        }
+    }
+    
+    /**
+     * Enables notifications for report mode.
+     */
+    private void enableReportModeNotifications() {
+        // Start from a zero report on every report-mode characteristic
+        for (int i = 0; i < combinedReport.length; i++) {
+            combinedReport[i] = 0; // Initialize all bytes to 0
+        }
+        
+        for (HidInputReport report : reportModeReports) {
+            BluetoothGattDescriptor descriptor = report.characteristic.getDescriptor(
+                    HidConstants.Uuids.CLIENT_CONFIG);
+            if (descriptor == null) {
+                Log.e(TAG, "Missing Client Configuration Descriptor (CCCD) for report characteristic");
+                continue;
+            }
+            
+            // Enable notifications (0x01, 0x00)
+            descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+            Arrays.fill(report.data, (byte) 0);
+            report.characteristic.setValue(report.data);
+        }
+        Log.d(TAG, "Set report characteristic descriptor values to enable notifications");
+        
+        // Send two initial reports - one is sometimes not enough
+        try {
+            for (HidInputReport report : reportModeReports) {
+                gattServerManager.sendNotification(report.characteristic, report.data);
+            }
+            Thread.sleep(20); // Small delay
+            for (HidInputReport report : reportModeReports) {
+                gattServerManager.sendNotification(report.characteristic, report.data);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending initial report", e);
+        }
+    }
+    
+    /**
+     * Enables notifications for boot mode.
+     */
+    private void enableBootModeNotifications() {
+        if (bootMouseReport == null) {
+            Log.e(TAG, "Boot mouse report characteristic not available");
+            return;
+        }
+        
+        BluetoothGattCharacteristic characteristic = bootMouseReport.characteristic;
+        BluetoothGattDescriptor descriptor = characteristic.getDescriptor(
+                HidConstants.Uuids.CLIENT_CONFIG);
+                
         if (descriptor != null) {
             // Enable notifications (0x01, 0x00)
             descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
@@ -461,13 +1907,13 @@ public class HidReportHandler {
             bootReport[0] = 0; // No buttons
             bootReport[1] = 0; // No X movement
             bootReport[2] = 0; // No Y movement
-            bootMouseInputReportCharacteristic.setValue(bootReport);
+            characteristic.setValue(bootReport);
             
             // Send two initial reports - one is sometimes not enough
             try {
-                gattServerManager.sendNotification(bootMouseInputReportCharacteristic.getUuid(), bootReport);
+                gattServerManager.sendNotification(characteristic, bootReport);
                 Thread.sleep(20); // Small delay
-                gattServerManager.sendNotification(bootMouseInputReportCharacteristic.getUuid(), bootReport);
+                gattServerManager.sendNotification(characteristic, bootReport);
             } catch (Exception e) {
                 Log.e(TAG, "Error sending initial boot report", e);
             }
@@ -489,6 +1935,7 @@ public class HidReportHandler {
             // Reset notifications for the new protocol mode
             this.notificationsEnabled = false;
             this.bootNotificationsEnabled = false;
+            resetLastReport();
         }
     }
     
@@ -504,6 +1951,8 @@ public class HidReportHandler {
         } else if (characteristicUuid.equals(HidConstants.Uuids.HID_BOOT_MOUSE_INPUT_REPORT)) {
             this.bootNotificationsEnabled = enabled;
         }
+        // A new subscription needs the current state, even if unchanged
+        resetLastReport();
     }
     
     /**
@@ -515,6 +1964,30 @@ public class HidReportHandler {
         return combinedReport;
     }
     
+    /**
+     * Gets the last report built for a report characteristic.
+     * 
+     * @param characteristic The report characteristic being read
+     * @return The report for that characteristic, or the combined report if it is not one of ours
+     */
+    public synchronized byte[] getReport(BluetoothGattCharacteristic characteristic) {
+        for (HidInputReport report : reportModeReports) {
+            if (report.characteristic == characteristic) {
+                return report.data;
+            }
+        }
+        if (absolutePointerReport != null && absolutePointerReport.characteristic == characteristic) {
+            return absolutePointerReport.data;
+        }
+        if (touchpadReport != null && touchpadReport.characteristic == characteristic) {
+            return touchpadReport.data;
+        }
+        if (gamepadReport != null && gamepadReport.characteristic == characteristic) {
+            return gamepadReport.data;
+        }
+        return combinedReport;
+    }
+    
     /**
      * Gets the boot mouse report (simplified version of the combined report).
      * 
@@ -524,8 +1997,8 @@ public class HidReportHandler {
         // Create a 3-byte boot mouse report from the combined report
         byte[] bootReport = new byte[3];
         bootReport[0] = combinedReport[1]; // Mouse buttons
-        bootReport[1] = combinedReport[2]; // X
-        bootReport[2] = combinedReport[3]; // Y
+        bootReport[1] = (byte) Math.max(-127, Math.min(127, readAxis(MOUSE_X_INDEX)));              // X
+        bootReport[2] = (byte) Math.max(-127, Math.min(127, readAxis(MOUSE_X_INDEX + axisBytes))); // Y
         return bootReport;
     }
 }
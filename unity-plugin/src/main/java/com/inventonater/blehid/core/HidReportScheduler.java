@@ -0,0 +1,101 @@
+package com.inventonater.blehid.core;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Dedicated sender thread for HID reports.
+ * Reports that must go out at a specific time (e.g. the release half of a
+ * key press) are queued here so callers never block on a hold delay.
+ */
+public class HidReportScheduler {
+    private static final String TAG = "HidReportScheduler";
+
+    private final HandlerThread senderThread;
+    private final Handler handler;
+
+    /**
+     * Creates and starts the sender thread.
+     */
+    public HidReportScheduler() {
+        senderThread = new HandlerThread("HidReportSender", Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        senderThread.start();
+        handler = new Handler(senderThread.getLooper());
+        Log.d(TAG, "HID sender thread started");
+    }
+
+    /**
+     * Gets the scheduler clock.
+     *
+     * @return Current uptime in milliseconds
+     */
+    public long now() {
+        return SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Runs an action on the sender thread as soon as possible.
+     *
+     * @param action The action to run
+     * @return true if the action was queued, false otherwise
+     */
+    public boolean post(Runnable action) {
+        return handler.post(action);
+    }
+
+    /**
+     * Runs an action on the sender thread at the given time.
+     *
+     * @param action The action to run
+     * @param uptimeMillis The time to run it, in the {@link #now()} time base
+     * @return true if the action was queued, false otherwise
+     */
+    public boolean postAt(Runnable action, long uptimeMillis) {
+        return handler.postAtTime(action, uptimeMillis);
+    }
+
+    /**
+     * Runs an action on the sender thread at the given time, tagged with a
+     * token so it can be cancelled as a group.
+     *
+     * @param action The action to run
+     * @param token Cancellation token
+     * @param uptimeMillis The time to run it, in the {@link #now()} time base
+     * @return true if the action was queued, false otherwise
+     */
+    public boolean postAt(Runnable action, Object token, long uptimeMillis) {
+        return handler.postAtTime(action, token, uptimeMillis);
+    }
+
+    /**
+     * Removes every pending action queued with the given token.
+     *
+     * @param token The cancellation token
+     */
+    public void cancel(Object token) {
+        if (token != null) {
+            handler.removeCallbacksAndMessages(token);
+        }
+    }
+
+    /**
+     * Checks whether the caller is running on the sender thread.
+     *
+     * @return true if called from the sender thread
+     */
+    public boolean isSenderThread() {
+        return Thread.currentThread() == senderThread;
+    }
+
+    /**
+     * Drops all pending reports and stops the sender thread.
+     */
+    public void close() {
+        handler.removeCallbacksAndMessages(null);
+        senderThread.quitSafely();
+        Log.d(TAG, "HID sender thread stopped");
+    }
+}
@@ -0,0 +1,143 @@
+package com.inventonater.blehid.core;
+
+import java.util.Arrays;
+
+/**
+ * Compiles text into a minimal sequence of keyboard reports ahead of time.
+ * Each keystroke becomes one report holding its key (characters behind a
+ * dead key take two). A key is only released on its own when the next
+ * keystroke reuses it, and a modifier change gets one extra report, so runs
+ * sharing a modifier need no separate releases.
+ */
+public class HidTextCompiler {
+    private HidTextCompiler() {
+        // Static utility class
+    }
+
+    /**
+     * A compiled report sequence.
+     * Report i holds modifiers[i] and the single key keys[i] (0 = no key);
+     * completesCharacter[i] is set on the report that finishes a character.
+     */
+    public static class CompiledText {
+        final byte[] modifiers;
+        final byte[] keys;
+        final boolean[] completesCharacter;
+        final int characterCount;
+
+        CompiledText(byte[] modifiers, byte[] keys, boolean[] completesCharacter, int characterCount) {
+            this.modifiers = modifiers;
+            this.keys = keys;
+            this.completesCharacter = completesCharacter;
+            this.characterCount = characterCount;
+        }
+
+        /**
+         * @return Number of reports in the sequence
+         */
+        public int getReportCount() {
+            return keys.length;
+        }
+
+        /**
+         * @return Number of characters that will be typed (unsupported characters are skipped)
+         */
+        public int getCharacterCount() {
+            return characterCount;
+        }
+    }
+
+    /**
+     * Compiles text for a US host layout.
+     *
+     * @param text The text to type
+     * @return The compiled report sequence
+     */
+    public static CompiledText compile(String text) {
+        return compile(text, HidKeyboardLayout.US);
+    }
+
+    /**
+     * Compiles text into a report sequence that ends with all keys released.
+     *
+     * @param text The text to type
+     * @param layout The keyboard layout the host uses
+     * @return The compiled report sequence
+     */
+    public static CompiledText compile(String text, HidKeyboardLayout layout) {
+        // Worst case: dead key and base key, each with a release, plus the final release
+        Sequence sequence = new Sequence(4 * text.length() + 1);
+        int characters = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            int entry = layout.lookup(text.charAt(i));
+            if (entry == 0) {
+                // Skip characters the layout cannot type
+                continue;
+            }
+
+            int deadKey = entry >>> 16;
+            if (deadKey != 0) {
+                sequence.press(deadKey, false);
+            }
+            sequence.press(entry & 0xFFFF, true);
+            characters++;
+        }
+
+        sequence.releaseAll();
+        return new CompiledText(Arrays.copyOf(sequence.modifiers, sequence.count),
+                Arrays.copyOf(sequence.keys, sequence.count),
+                Arrays.copyOf(sequence.completesCharacter, sequence.count), characters);
+    }
+
+    /**
+     * Report sequence under construction, tracking what the host holds down.
+     */
+    private static class Sequence {
+        final byte[] modifiers;
+        final byte[] keys;
+        final boolean[] completesCharacter;
+        int count = 0;
+
+        private int heldKey = 0;
+        private int heldModifiers = 0;
+
+        Sequence(int capacity) {
+            modifiers = new byte[capacity];
+            keys = new byte[capacity];
+            completesCharacter = new boolean[capacity];
+        }
+
+        /**
+         * Adds a keystroke; (modifiers << 8) | usage.
+         */
+        void press(int keystroke, boolean completes) {
+            int key = keystroke & 0xFF;
+            int mods = (keystroke >> 8) & 0xFF;
+
+            // Same key needs a release edge; a modifier change is applied with no key down
+            if (heldKey != 0 && (key == heldKey || mods != heldModifiers)) {
+                add(mods, 0);
+            }
+            add(mods, key);
+            completesCharacter[count - 1] = completes;
+
+            heldKey = key;
+            heldModifiers = mods;
+        }
+
+        void releaseAll() {
+            if (heldKey != 0 || heldModifiers != 0) {
+                add(0, 0);
+            }
+            heldKey = 0;
+            heldModifiers = 0;
+        }
+
+        private void add(int mods, int key) {
+            modifiers[count] = (byte) mods;
+            keys[count] = (byte) key;
+            count++;
+        }
+    }
+}
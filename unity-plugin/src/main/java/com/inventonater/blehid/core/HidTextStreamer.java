@@ -0,0 +1,191 @@
+package com.inventonater.blehid.core;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+
+/**
+ * Streams compiled text on the HID sender thread, a few reports per
+ * connection event, without blocking the caller.
+ * Texts queued while one is streaming are typed after it, in order.
+ */
+public class HidTextStreamer {
+    private static final String TAG = "HidTextStreamer";
+
+    // Pacing used when no connection interval is known
+    private static final int DEFAULT_INTERVAL_MS = 50;
+    private static final int DEFAULT_REPORTS_PER_EVENT = 4;
+
+    /**
+     * Receives the outcome of each streamed text.
+     */
+    public interface Listener {
+        /**
+         * Called on the sender thread when a text finishes, fails or is cancelled.
+         *
+         * @param charactersTyped Characters whose press reached the host
+         * @param characterCount Characters in the compiled text
+         * @param completed true if the whole text was typed
+         */
+        void onTextComplete(int charactersTyped, int characterCount, boolean completed);
+    }
+
+    private static class Job {
+        final BluetoothDevice device;
+        final HidTextCompiler.CompiledText text;
+
+        Job(BluetoothDevice device, HidTextCompiler.CompiledText text) {
+            this.device = device;
+            this.text = text;
+        }
+    }
+
+    private final HidReportHandler reportHandler;
+    private final HidReportScheduler scheduler;
+    private final BleConnectionManager connectionManager;
+
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private final Runnable pump = this::streamNext;
+    private final Object pumpToken = new Object();
+    private final byte[] singleKey = new byte[1];
+
+    private Job current;
+    private int position;
+    private int charactersTyped;
+    private int reportsPerEvent = DEFAULT_REPORTS_PER_EVENT;
+    private Listener listener;
+
+    /**
+     * Creates a text streamer.
+     *
+     * @param reportHandler The report handler that sends keyboard reports
+     * @param scheduler The sender thread
+     * @param connectionManager The connection manager used for pacing (optional)
+     */
+    public HidTextStreamer(HidReportHandler reportHandler, HidReportScheduler scheduler,
+                           BleConnectionManager connectionManager) {
+        this.reportHandler = reportHandler;
+        this.scheduler = scheduler;
+        this.connectionManager = connectionManager;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets how many reports go out per connection event.
+     *
+     * @param reportsPerEvent Reports per connection interval (at least 1)
+     */
+    public synchronized void setReportsPerEvent(int reportsPerEvent) {
+        this.reportsPerEvent = Math.max(1, reportsPerEvent);
+    }
+
+    /**
+     * Queues compiled text for streaming.
+     *
+     * @param device The connected Bluetooth device
+     * @param text The compiled text
+     * @return true if the text was queued, false otherwise
+     */
+    public synchronized boolean stream(BluetoothDevice device, HidTextCompiler.CompiledText text) {
+        if (device == null) {
+            Log.e(TAG, "No connected device");
+            return false;
+        }
+
+        queue.add(new Job(device, text));
+        if (current == null) {
+            return startNext();
+        }
+        return true;
+    }
+
+    /**
+     * Stops the current text and drops queued ones, releasing any held key.
+     */
+    public synchronized void cancel() {
+        scheduler.cancel(pumpToken);
+        if (current != null) {
+            reportHandler.sendKeyboardReport(current.device, 0, null);
+            finish(false);
+        }
+        while (!queue.isEmpty()) {
+            Job job = queue.poll();
+            notifyListener(0, job.text.getCharacterCount(), false);
+        }
+    }
+
+    /**
+     * Checks whether text is being streamed or waiting to be.
+     *
+     * @return true if typing is in progress
+     */
+    public synchronized boolean isStreaming() {
+        return current != null;
+    }
+
+    private boolean startNext() {
+        current = queue.poll();
+        position = 0;
+        charactersTyped = 0;
+        if (current == null) {
+            return false;
+        }
+        return scheduler.postAt(pump, pumpToken, scheduler.now());
+    }
+
+    /**
+     * Pump tick: sends up to reportsPerEvent reports, then waits one connection interval.
+     */
+    private synchronized void streamNext() {
+        if (current == null) {
+            return;
+        }
+
+        HidTextCompiler.CompiledText text = current.text;
+        int end = Math.min(position + reportsPerEvent, text.getReportCount());
+        for (; position < end; position++) {
+            singleKey[0] = text.keys[position];
+            if (!reportHandler.sendKeyboardReport(current.device, text.modifiers[position] & 0xFF, singleKey)) {
+                Log.e(TAG, "Keyboard report failed, stopping text at character " + charactersTyped);
+                reportHandler.sendKeyboardReport(current.device, 0, null);
+                finish(false);
+                startNext();
+                return;
+            }
+            if (text.completesCharacter[position]) {
+                charactersTyped++;
+            }
+        }
+
+        if (position >= text.getReportCount()) {
+            finish(true);
+            startNext();
+            return;
+        }
+
+        scheduler.postAt(pump, pumpToken, scheduler.now() + getIntervalMs());
+    }
+
+    private void finish(boolean completed) {
+        notifyListener(charactersTyped, current.text.getCharacterCount(), completed);
+        current = null;
+    }
+
+    private void notifyListener(int typed, int total, boolean completed) {
+        if (listener != null) {
+            listener.onTextComplete(typed, total, completed);
+        }
+    }
+
+    private int getIntervalMs() {
+        if (connectionManager != null && connectionManager.getConnectionInterval() > 0) {
+            return connectionManager.getConnectionInterval();
+        }
+
+        return DEFAULT_INTERVAL_MS;
+    }
+}
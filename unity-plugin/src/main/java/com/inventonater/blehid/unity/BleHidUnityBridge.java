@@ -2,6 +2,7 @@ package com.inventonater.blehid.unity;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
 import android.content.Context;
@@ -9,10 +10,14 @@ import android.content.Intent;
 import android.util.Log;
 
 import com.inventonater.blehid.core.BleConnectionManager;
+import com.inventonater.blehid.core.BleConnectionStateMachine;
 import com.inventonater.blehid.core.BleGattServerManager;
 import com.inventonater.blehid.core.BleHidManager;
 import com.inventonater.blehid.core.BlePairingManager;
 import com.inventonater.blehid.core.HidConstants;
+import com.inventonater.blehid.core.HidMacro;
+import com.inventonater.blehid.core.HidMacroPlayer;
+import com.inventonater.blehid.core.HidTextStreamer;
 import com.inventonater.blehid.core.LocalInputManager;
 import com.unity3d.player.UnityPlayer;
 
@@ -37,6 +42,12 @@ public class BleHidUnityBridge {
     private BleHidUnityCallback callback;
     private boolean isInitialized = false;
     private LocalInputManager localInputManager;
+    private boolean highResolutionPointer = false;
+    private boolean splitReports = false;
+    private boolean nkroKeyboard = false;
+    private boolean absolutePointer = false;
+    private boolean touchpad = false;
+    private boolean gamepad = false;
 
     // called from Unity
     public static synchronized BleHidUnityBridge getInstance() {
@@ -61,9 +72,18 @@ public class BleHidUnityBridge {
             else Log.e(TAG, "Failed to start foreground service");
 
             bleHidManager = new BleHidManager(unityActivity, callback);
+            bleHidManager.setHighResolutionPointer(highResolutionPointer);
+            bleHidManager.setSplitReports(splitReports);
+            bleHidManager.setNkroKeyboard(nkroKeyboard);
+            bleHidManager.setAbsolutePointer(absolutePointer);
+            bleHidManager.setTouchpad(touchpad);
+            bleHidManager.setGamepad(gamepad);
 
             setupBlePairingManager();
             setupConnectionParameterListener();
+            setupConnectionStateListener();
+            setupTextListener();
+            setupMacroListener();
 
             isInitialized = bleHidManager.initialize();
         } catch (Exception e) {
@@ -137,6 +157,36 @@ public class BleHidUnityBridge {
         connectionManager.setConnectionParameterListener(listener);
     }
 
+    private void setupConnectionStateListener() {
+        bleHidManager.setConnectionStateListener(new BleConnectionStateMachine.Listener() {
+            @Override
+            public void onConnectionMilestone(int state, long elapsedMs) {
+                Log.d(TAG, "Connection " + BleConnectionStateMachine.getStateName(state) + " after " + elapsedMs + "ms");
+                callback.onConnectionMilestone(BleConnectionStateMachine.getStateName(state), elapsedMs);
+            }
+        });
+    }
+
+    private void setupTextListener() {
+        bleHidManager.setTextListener(new HidTextStreamer.Listener() {
+            @Override
+            public void onTextComplete(int charactersTyped, int characterCount, boolean completed) {
+                Log.d(TAG, "Typing complete: " + charactersTyped + "/" + characterCount + " completed=" + completed);
+                callback.onTypingComplete(charactersTyped, characterCount, completed);
+            }
+        });
+    }
+
+    private void setupMacroListener() {
+        bleHidManager.setMacroListener(new HidMacroPlayer.Listener() {
+            @Override
+            public void onMacroComplete(String name, int loopsPlayed, boolean completed) {
+                Log.d(TAG, "Macro complete: " + name + " loops=" + loopsPlayed + " completed=" + completed);
+                callback.onMacroComplete(name, loopsPlayed, completed);
+            }
+        });
+    }
+
     public void notifyPipModeChanged(boolean isInPipMode) {
         if (callback != null) callback.onPipModeChanged(isInPipMode);
     }
@@ -273,20 +323,33 @@ public class BleHidUnityBridge {
     public boolean sendKey(byte keyCode, byte modifiers) {
         if (!checkConnected()) return false;
 
-        boolean result = bleHidManager.sendKey(keyCode, modifiers);
-        if (result) {
-            // Release key after a short delay
-            new Thread(() -> {
-                try {
-                    Thread.sleep(100);
-                    bleHidManager.releaseAllKeys();
-                } catch (InterruptedException e) {
-                    // Ignore
-                }
-            }).start();
+        // Press and release are queued on the HID sender thread
+        return bleHidManager.typeKey(keyCode, modifiers);
+    }
+
+    public boolean pressKey(int keyCode) {
+        if (!checkConnected()) return false;
+
+        return bleHidManager.pressKey((byte) keyCode);
+    }
+
+    public boolean releaseKey(int keyCode) {
+        if (!checkConnected()) return false;
+
+        return bleHidManager.releaseKey((byte) keyCode);
+    }
+
+    public boolean setHoldTime(int holdTimeMs) {
+        if (!checkInitialized()) return false;
+
+        if (holdTimeMs < 0) {
+            Log.e(TAG, "Invalid hold time: " + holdTimeMs);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid hold time: " + holdTimeMs);
+            return false;
         }
 
-        return result;
+        bleHidManager.setHoldTimeMs(holdTimeMs);
+        return true;
     }
 
     public boolean typeText(String text) {
@@ -295,16 +358,261 @@ public class BleHidUnityBridge {
         return bleHidManager.typeText(text);
     }
 
+    // Frames are [delayMs, modifiers, keyCode, mediaButtons], flattened
+    public boolean registerMacro(String name, int[] frames) {
+        if (!checkInitialized()) return false;
+
+        HidMacro macro = HidMacro.encode(name, frames);
+        if (macro == null) {
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid macro: " + name);
+            return false;
+        }
+
+        bleHidManager.registerMacro(macro);
+        return true;
+    }
+
+    public boolean unregisterMacro(String name) {
+        if (!checkInitialized()) return false;
+
+        return bleHidManager.unregisterMacro(name);
+    }
+
+    // loops: number of passes, or -1 to repeat until cancelled; timeoutMs: 0 for no deadline
+    public boolean playMacro(String name, int loops, int timeoutMs) {
+        if (!checkConnected()) return false;
+
+        if (loops == 0 || loops < HidMacroPlayer.LOOP_FOREVER || timeoutMs < 0) {
+            Log.e(TAG, "Invalid macro playback: loops=" + loops + ", timeoutMs=" + timeoutMs);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid macro playback: loops=" + loops + ", timeoutMs=" + timeoutMs);
+            return false;
+        }
+
+        return bleHidManager.playMacro(name, loops, timeoutMs);
+    }
+
+    public void cancelMacro() {
+        if (!checkInitialized()) return;
+
+        bleHidManager.cancelMacro();
+    }
+
+    public boolean isMacroPlaying() {
+        if (!checkInitialized()) return false;
+
+        return bleHidManager.isMacroPlaying();
+    }
+
+    // Host keyboard layout used by typeText: "US", "UK", "DE" or "FR"
+    public boolean setKeyboardLayout(String name) {
+        if (!checkInitialized()) return false;
+
+        if (!bleHidManager.setKeyboardLayout(name)) {
+            callback.onError(ERROR_INVALID_PARAMETER, "Unknown keyboard layout: " + name);
+            return false;
+        }
+        return true;
+    }
+
+    public String getKeyboardLayout() {
+        if (!checkInitialized()) return null;
+
+        return bleHidManager.getKeyboardLayout();
+    }
+
+    public void cancelTyping() {
+        if (!checkInitialized()) return;
+
+        bleHidManager.cancelTyping();
+    }
+
+    public boolean isTyping() {
+        if (!checkInitialized()) return false;
+
+        return bleHidManager.isTyping();
+    }
+
+    // Keyboard reports sent per connection event while typing text
+    public boolean setTypingReportsPerEvent(int reportsPerEvent) {
+        if (!checkInitialized()) return false;
+
+        if (reportsPerEvent < 1) {
+            Log.e(TAG, "Invalid reports per event: " + reportsPerEvent);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid reports per event: " + reportsPerEvent);
+            return false;
+        }
+
+        bleHidManager.setTypingReportsPerEvent(reportsPerEvent);
+        return true;
+    }
+
     public boolean moveMouse(int deltaX, int deltaY) {
         if (!checkConnected()) return false;
 
-        // Clamp values to valid range
-        deltaX = Math.max(-127, Math.min(127, deltaX));
-        deltaY = Math.max(-127, Math.min(127, deltaY));
+        // Out-of-range deltas are carried into subsequent reports by the report handler
+        return bleHidManager.moveMouse(deltaX, deltaY);
+    }
 
+    // Wheel and pan in detents (fractions allowed); positive scrolls up / right
+    public boolean scroll(float wheel, float pan) {
+        if (!checkConnected()) return false;
+
+        return bleHidManager.scroll(wheel, pan);
+    }
+
+    public boolean moveMouseFloat(float deltaX, float deltaY) {
+        if (!checkConnected()) return false;
+
+        // Fractional deltas accumulate in the report handler instead of being rounded away
         return bleHidManager.moveMouse(deltaX, deltaY);
     }
 
+    // Selects the 16-bit pointer report map; call before initialize()
+    public void setHighResolutionPointer(boolean enabled) {
+        highResolutionPointer = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Pointer resolution applies on next initialize");
+        }
+    }
+
+    // Selects per-function keyboard/mouse/consumer reports; call before initialize()
+    public void setSplitReports(boolean enabled) {
+        splitReports = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Report layout applies on next initialize");
+        }
+    }
+
+    // Adds the NKRO bitmap keyboard (implies split reports); call before initialize()
+    public void setNkroKeyboard(boolean enabled) {
+        nkroKeyboard = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Keyboard layout applies on next initialize");
+        }
+    }
+
+    // Adds the absolute pointer (implies split reports); call before initialize()
+    public void setAbsolutePointer(boolean enabled) {
+        absolutePointer = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Absolute pointer applies on next initialize");
+        }
+    }
+
+    // Normalized position: 0..1 from the left / top edge of the host screen
+    public boolean moveMouseTo(float x, float y) {
+        if (!checkConnected()) return false;
+
+        if (!checkNormalizedPosition(x, y)) return false;
+
+        return bleHidManager.moveMouseTo(toAbsolute(x), toAbsolute(y));
+    }
+
+    public boolean sendAbsolutePointer(float x, float y, int buttons) {
+        if (!checkConnected()) return false;
+
+        if (!checkNormalizedPosition(x, y)) return false;
+
+        return bleHidManager.sendAbsolutePointer(toAbsolute(x), toAbsolute(y), buttons);
+    }
+
+    private boolean checkNormalizedPosition(float x, float y) {
+        if (x < 0 || x > 1 || y < 0 || y > 1 || Float.isNaN(x) || Float.isNaN(y)) {
+            Log.e(TAG, "Invalid absolute position: " + x + ", " + y);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid absolute position: " + x + ", " + y);
+            return false;
+        }
+        return true;
+    }
+
+    private static int toAbsolute(float normalized) {
+        return Math.round(normalized * HidConstants.Split.ABSOLUTE_MAX);
+    }
+
+    // Adds the precision touchpad (implies split reports); call before initialize()
+    public void setTouchpad(boolean enabled) {
+        touchpad = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Touchpad applies on next initialize");
+        }
+    }
+
+    // One frame of the touches currently down: contact IDs (0-63) and normalized
+    // positions as x, y pairs, 0..1 from the left / top edge of the touch surface
+    public boolean sendTouchpadFrame(int[] contactIds, float[] positions, int buttons) {
+        if (!checkConnected()) return false;
+
+        int count = contactIds != null ? contactIds.length : 0;
+        if (count > HidConstants.Split.TOUCHPAD_MAX_CONTACTS
+                || (positions != null ? positions.length : 0) != count * 2) {
+            Log.e(TAG, "Invalid touchpad frame: " + count + " contacts");
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid touchpad frame: " + count + " contacts");
+            return false;
+        }
+
+        int[] contacts = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            float x = positions[i * 2];
+            float y = positions[i * 2 + 1];
+            if (!checkNormalizedPosition(x, y)) return false;
+
+            contacts[i * 3] = contactIds[i];
+            contacts[i * 3 + 1] = Math.round(x * HidConstants.Split.TOUCHPAD_MAX_X);
+            contacts[i * 3 + 2] = Math.round(y * HidConstants.Split.TOUCHPAD_MAX_Y);
+        }
+
+        return bleHidManager.sendTouchpadFrame(contacts, buttons);
+    }
+
+    // Adds the gamepad (implies split reports); call before initialize()
+    public void setGamepad(boolean enabled) {
+        gamepad = enabled;
+        if (isInitialized) {
+            Log.w(TAG, "Gamepad applies on next initialize");
+        }
+    }
+
+    // Whole gamepad state in one call: sticks -1..1 (+Y down), triggers 0..1,
+    // hat 0-7 clockwise from up or 8 for centered. Stick updates are coalesced
+    // to the connection interval, so calling every frame is fine.
+    public boolean setGamepadState(int buttons, int hat, float leftX, float leftY, float rightX, float rightY,
+                                   float leftTrigger, float rightTrigger) {
+        if (!checkConnected()) return false;
+
+        return bleHidManager.setGamepadState(buttons, hat, toStick(leftX), toStick(leftY),
+                toStick(rightX), toStick(rightY), toTrigger(leftTrigger), toTrigger(rightTrigger));
+    }
+
+    // NaN maps to 0 (centered / released); out-of-range values are clamped by the report handler
+    private static int toStick(float value) {
+        return Math.round(value * HidConstants.Split.GAMEPAD_MAX_STICK);
+    }
+
+    private static int toTrigger(float value) {
+        return Math.round(value * HidConstants.Split.GAMEPAD_MAX_TRIGGER);
+    }
+
+    // Switches between NKRO and the 6KRO fallback at runtime
+    public boolean setNkroEnabled(boolean enabled) {
+        if (!checkInitialized()) return false;
+
+        bleHidManager.setNkroEnabled(enabled);
+        return true;
+    }
+
+    public boolean setMotionCoalescing(boolean enabled, int reportRateHz) {
+        if (!checkInitialized()) return false;
+
+        if (reportRateHz < 0 || reportRateHz > 1000) {
+            Log.e(TAG, "Invalid motion report rate: " + reportRateHz);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid motion report rate: " + reportRateHz);
+            return false;
+        }
+
+        bleHidManager.setMotionCoalescing(enabled, reportRateHz);
+        return true;
+    }
+
     public boolean clickMouseButton(int button) {
         if (!checkConnected()) return false;
 
@@ -523,6 +831,130 @@ public class BleHidUnityBridge {
         return bleHidManager.getConnectionManager().getAllConnectionParameters();
     }
 
+    public Map<String, String> getConnectionTimeline() {
+        if (!checkConnected()) return null;
+
+        return bleHidManager.getConnectionStateMachine().getTimeline();
+    }
+
+    public Map<String, String> getReportStatistics() {
+        if (!checkInitialized()) return null;
+
+        return bleHidManager.getHidMediaService().getReportStatistics();
+    }
+
+    public boolean setKeepaliveInterval(int intervalMs) {
+        if (!checkInitialized()) return false;
+
+        if (intervalMs < 0) {
+            Log.e(TAG, "Invalid keepalive interval: " + intervalMs);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid keepalive interval: " + intervalMs);
+            return false;
+        }
+
+        bleHidManager.setKeepaliveIntervalMs(intervalMs);
+        return true;
+    }
+
+    // Notifications handed to the stack before it confirms one; the rest are queued
+    public boolean setMaxNotificationsInFlight(int maxInFlight) {
+        if (!checkInitialized()) return false;
+
+        if (maxInFlight < 1) {
+            Log.e(TAG, "Invalid notifications in flight: " + maxInFlight);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid notifications in flight: " + maxInFlight);
+            return false;
+        }
+
+        bleHidManager.setMaxNotificationsInFlight(maxInFlight);
+        return true;
+    }
+
+    // Client GATT link back to the host, needed only for connection priority, MTU requests and RSSI
+    public boolean setClientConnectionEnabled(boolean enabled) {
+        if (!checkInitialized()) return false;
+
+        bleHidManager.setClientConnectionEnabled(enabled);
+        return true;
+    }
+
+    public boolean setMaxHosts(int hosts) {
+        if (!checkInitialized()) return false;
+
+        if (hosts < 1) {
+            Log.e(TAG, "Invalid host count: " + hosts);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid host count: " + hosts);
+            return false;
+        }
+
+        bleHidManager.setMaxHosts(hosts);
+        return true;
+    }
+
+    public String[] getConnectedHosts() {
+        if (!checkInitialized()) return new String[0];
+
+        List<BluetoothDevice> hosts = bleHidManager.getConnectedDevices();
+        String[] addresses = new String[hosts.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = hosts.get(i).getAddress();
+        }
+        return addresses;
+    }
+
+    public boolean switchActiveHost(String hostAddress) {
+        if (!checkConnected()) return false;
+
+        if (hostAddress == null || !BluetoothAdapter.checkBluetoothAddress(hostAddress)) {
+            Log.e(TAG, "Invalid host address: " + hostAddress);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid host address: " + hostAddress);
+            return false;
+        }
+
+        if (!bleHidManager.switchActiveHost(hostAddress)) {
+            callback.onError(ERROR_NOT_CONNECTED, "Host not connected: " + hostAddress);
+            return false;
+        }
+        return true;
+    }
+
+    public String getActiveHost() {
+        if (!checkInitialized()) return null;
+
+        return bleHidManager.getActiveHost();
+    }
+
+    public boolean setStandbyConnectionPriority(int priority) {
+        if (!checkInitialized()) return false;
+
+        if (priority < 0 || priority > 2) {
+            Log.e(TAG, "Invalid connection priority: " + priority);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid connection priority: " + priority);
+            return false;
+        }
+
+        bleHidManager.getConnectionManager().setStandbyConnectionPriority(priority);
+        return true;
+    }
+
+    // An empty or null address sends the report type to every connected host
+    public boolean setReportRoute(int reportType, String hostAddress) {
+        if (!checkInitialized()) return false;
+
+        if (hostAddress != null && !hostAddress.isEmpty() && !BluetoothAdapter.checkBluetoothAddress(hostAddress)) {
+            Log.e(TAG, "Invalid host address: " + hostAddress);
+            callback.onError(ERROR_INVALID_PARAMETER, "Invalid host address: " + hostAddress);
+            return false;
+        }
+
+        String route = hostAddress == null || hostAddress.isEmpty() ? null : hostAddress;
+        if (!bleHidManager.setReportRoute(reportType, route)) {
+            callback.onError(ERROR_INVALID_PARAMETER, "Cannot route report type: " + reportType);
+            return false;
+        }
+        return true;
+    }
+
     public void close() {
         // Stop the foreground service when closing the plugin
         Log.d(TAG, "Stopping foreground service on plugin close");
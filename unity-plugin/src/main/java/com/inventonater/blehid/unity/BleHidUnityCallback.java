@@ -51,10 +51,22 @@ public class BleHidUnityCallback {
         sendMessageToUnity("HandleConnectionParameterRequestComplete", parameterName + ":" + success + ":" + actualValue);
     }
 
+    public void onConnectionMilestone(String state, long elapsedMs) {
+        sendMessageToUnity("HandleConnectionMilestone", state + ":" + elapsedMs);
+    }
+
     public void onPipModeChanged(boolean isInPipMode) {
         sendMessageToUnity("HandlePipModeChanged", String.format("%s", isInPipMode));
     }
 
+    public void onTypingComplete(int charactersTyped, int characterCount, boolean completed) {
+        sendMessageToUnity("HandleTypingComplete", charactersTyped + ":" + characterCount + ":" + completed);
+    }
+
+    public void onMacroComplete(String name, int loopsPlayed, boolean completed) {
+        sendMessageToUnity("HandleMacroComplete", loopsPlayed + ":" + completed + ":" + name);
+    }
+
     public void onError(int errorCode, String errorMessage) {
         sendMessageToUnity("HandleError", errorCode + ":" + errorMessage);
     }
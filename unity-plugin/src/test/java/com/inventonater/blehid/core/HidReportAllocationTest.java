@@ -0,0 +1,282 @@
+package com.inventonater.blehid.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattServer;
+import android.bluetooth.BluetoothGattServerCallback;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Test;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Checks that encoding, sending, queueing and draining input reports
+ * allocates nothing once warmed up, so a 250 Hz pointer stream causes no
+ * garbage collection.
+ *
+ * Runs on the JVM against android.jar with stubbed methods. The real
+ * BleGattServerManager sends to one connected host; every round sends more
+ * reports than the host has credits for, so reports queue and drain as the
+ * test confirms them through onNotificationSent. The motion pump and credit
+ * checks run on a scheduler driven by the test clock.
+ *
+ * Mockito stays off every class on the measured path: once it has mocked a
+ * class, every call on that class allocates, even on plain instances. The
+ * GATT server and the host are plain instances of the android.jar stubs
+ * instead; the server takes every notification (0 is SUCCESS) and the
+ * host's address is null.
+ */
+public class HidReportAllocationTest {
+    private static final int WARMUP_ROUNDS = 20000;
+    private static final int MEASURED_ROUNDS = 10000;
+    // Confirmations per round: enough to drain everything a round queues
+    private static final int DELIVERIES_PER_ROUND = 16;
+    private static final int MOTION_RATE_HZ = 250;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Objenesis OBJENESIS = new ObjenesisStd();
+
+    /**
+     * Runs posted actions on the test thread when the test moves its clock
+     * on, from fixed arrays so scheduling allocates nothing.
+     */
+    private static final class ManualScheduler extends HidReportScheduler {
+        private static final int CAPACITY = 256;
+
+        private final Runnable[] actions = new Runnable[CAPACITY];
+        private final Object[] tokens = new Object[CAPACITY];
+        private final long[] times = new long[CAPACITY];
+        private int count = 0;
+        private long now = 0;
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public boolean post(Runnable action) {
+            return postAt(action, null, now);
+        }
+
+        @Override
+        public boolean postAt(Runnable action, long uptimeMillis) {
+            return postAt(action, null, uptimeMillis);
+        }
+
+        @Override
+        public boolean postAt(Runnable action, Object token, long uptimeMillis) {
+            if (count == CAPACITY) {
+                throw new IllegalStateException("Scheduler full");
+            }
+            actions[count] = action;
+            tokens[count] = token;
+            times[count] = uptimeMillis;
+            count++;
+            return true;
+        }
+
+        @Override
+        public void cancel(Object token) {
+            if (token == null) {
+                return;
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                if (tokens[i] == token) {
+                    remove(i);
+                }
+            }
+        }
+
+        /**
+         * Moves the clock on and runs the actions that are due, earliest
+         * first. Actions they post for a time already due may wait for the
+         * next call.
+         */
+        void advance(long ms) {
+            now += ms;
+            for (int runs = count; runs > 0; runs--) {
+                int next = -1;
+                for (int i = 0; i < count; i++) {
+                    if (times[i] <= now && (next < 0 || times[i] < times[next])) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    return;
+                }
+                Runnable action = actions[next];
+                remove(next);
+                action.run();
+            }
+        }
+
+        private void remove(int index) {
+            count--;
+            System.arraycopy(actions, index + 1, actions, index, count - index);
+            System.arraycopy(tokens, index + 1, tokens, index, count - index);
+            System.arraycopy(times, index + 1, times, index, count - index);
+            actions[count] = null;
+            tokens[count] = null;
+        }
+    }
+
+    /**
+     * Stands in for the parts of the manager the GATT server calls back into.
+     */
+    private static final class TestHidManager extends BleHidManager {
+        private final BleConnectionStateMachine connectionStateMachine = new BleConnectionStateMachine();
+
+        TestHidManager() {
+            super(mockContext(), null);
+        }
+
+        @Override
+        void onDeviceConnected(BluetoothDevice device) {
+        }
+
+        @Override
+        public BleConnectionStateMachine getConnectionStateMachine(BluetoothDevice device) {
+            return connectionStateMachine;
+        }
+
+        private static Context mockContext() {
+            Context context = mock(Context.class);
+            when(context.getApplicationContext()).thenReturn(context);
+            when(context.getSystemService(Context.BLUETOOTH_SERVICE)).thenReturn(mock(BluetoothManager.class));
+            return context;
+        }
+    }
+
+    private final BluetoothDevice device = OBJENESIS.newInstance(BluetoothDevice.class);
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private BleGattServerManager gattServerManager;
+    private BluetoothGattServerCallback serverCallback;
+
+    @After
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    public void combinedReportDoesNotAllocate() {
+        BluetoothGattCharacteristic report = reportCharacteristic();
+        connect(report);
+        assertNoSteadyStateAllocation(new HidReportHandler(gattServerManager, report, scheduler, null, false));
+    }
+
+    @Test
+    public void combinedReportWith16BitMotionDoesNotAllocate() {
+        BluetoothGattCharacteristic report = reportCharacteristic();
+        connect(report);
+        assertNoSteadyStateAllocation(new HidReportHandler(gattServerManager, report, scheduler, null, true));
+    }
+
+    @Test
+    public void splitReportsWithNkroDoNotAllocate() {
+        BluetoothGattCharacteristic keyboard = reportCharacteristic();
+        BluetoothGattCharacteristic mouse = reportCharacteristic();
+        BluetoothGattCharacteristic consumer = reportCharacteristic();
+        BluetoothGattCharacteristic nkro = reportCharacteristic();
+        connect(keyboard, mouse, consumer, nkro);
+        assertNoSteadyStateAllocation(new HidReportHandler(gattServerManager,
+                keyboard, mouse, consumer, nkro, scheduler, null, false));
+    }
+
+    private static BluetoothGattCharacteristic reportCharacteristic() {
+        return new BluetoothGattCharacteristic(HidConstants.Uuids.HID_REPORT,
+                BluetoothGattCharacteristic.PROPERTY_NOTIFY, BluetoothGattCharacteristic.PERMISSION_READ);
+    }
+
+    /**
+     * Builds the GATT server manager around a HID service with these
+     * characteristics and connects the host.
+     */
+    private void connect(BluetoothGattCharacteristic... characteristics) {
+        BluetoothGattService service = mock(BluetoothGattService.class);
+        when(service.getCharacteristics()).thenReturn(Arrays.asList(characteristics));
+
+        gattServerManager = new BleGattServerManager(new TestHidManager(),
+                OBJENESIS.newInstance(BluetoothGattServer.class), service);
+        gattServerManager.setReportScheduler(scheduler);
+        serverCallback = gattServerManager.getServerCallback();
+        serverCallback.onConnectionStateChange(device, BluetoothGatt.GATT_SUCCESS, BluetoothProfile.STATE_CONNECTED);
+    }
+
+    private void assertNoSteadyStateAllocation(HidReportHandler handler) {
+        gattServerManager.setNotificationListener(handler::onNotificationCreditAvailable);
+        handler.setMotionCoalescing(true, MOTION_RATE_HZ);
+        handler.setNotificationsEnabled(HidConstants.Uuids.HID_REPORT, true);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRound(handler, i);
+        }
+
+        long queuedBefore = queuedNotifications();
+        long motionBefore = handler.getMotionReportCount();
+        long start = allocatedBytes();
+        long overhead = allocatedBytes() - start;
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            runRound(handler, i);
+        }
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertTrue("No reports were queued", queuedNotifications() > queuedBefore);
+        assertTrue("The motion pump sent nothing", handler.getMotionReportCount() > motionBefore);
+        assertEquals("Bytes allocated over " + MEASURED_ROUNDS + " rounds", 0, allocated);
+    }
+
+    /**
+     * One round: more reports than the host has credits for, then the
+     * stack's confirmations, then the motion pump and credit resume.
+     */
+    private void runRound(HidReportHandler handler, int round) {
+        sendReports(handler, round);
+        for (int i = 0; i < DELIVERIES_PER_ROUND; i++) {
+            serverCallback.onNotificationSent(device, BluetoothGatt.GATT_SUCCESS);
+        }
+        scheduler.advance(1000 / MOTION_RATE_HZ);
+    }
+
+    /**
+     * The report types the handler encodes: mouse buttons, media keys,
+     * keyboard reports, single keys and motion (whole and sub-unit). Motion
+     * comes last so the pump sends it rather than the button reports.
+     */
+    private void sendReports(HidReportHandler handler, int round) {
+        handler.sendMouseButtons(device, HidConstants.Mouse.BUTTON_LEFT);
+        handler.sendMouseButtons(device, 0);
+        handler.sendMediaReport(device, HidConstants.Media.BUTTON_VOLUME_UP);
+        handler.sendMediaReport(device, 0);
+        handler.sendKey(device, HidConstants.Keyboard.KEY_A, HidConstants.Keyboard.MOD_LSHIFT);
+        handler.releaseKeys(device);
+        handler.pressKey(device, HidConstants.Keyboard.KEY_A);
+        handler.releaseKey(device, HidConstants.Keyboard.KEY_A);
+        int step = (round & 1) == 0 ? 5 : -5;
+        handler.movePointer(device, step, -step);
+        handler.movePointer(device, 0.25f * step, 0.5f);
+    }
+
+    private long queuedNotifications() {
+        return Long.parseLong(gattServerManager.getNotificationStatistics().get("queuedNotifications"));
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}